@@ -0,0 +1,37 @@
+package org.jenkinsci.plugins.minio;
+
+import org.jenkinsci.plugins.workflow.steps.AbstractStepExecutionImpl;
+
+/**
+ * Execution of a step which waits for a remote call. The call may finish
+ * while the step is being stopped, so the context is completed by whichever
+ * comes first, and only once.
+ */
+abstract class AsyncStepExecution extends AbstractStepExecutionImpl {
+	private static final long serialVersionUID = 1L;
+
+	private transient boolean completed;
+
+	/**
+	 * Claims the completion of the step.
+	 *
+	 * @return Returns true if the caller is the first to complete the step
+	 *         and must complete its context, false if it is already done
+	 */
+	protected final synchronized boolean claim() {
+		if (completed) {
+			return false;
+		}
+		completed = true;
+		return true;
+	}
+
+	/**
+	 * Fails the step, unless it is already done.
+	 */
+	protected final void fail(Throwable cause) {
+		if (claim()) {
+			getContext().onFailure(cause);
+		}
+	}
+}
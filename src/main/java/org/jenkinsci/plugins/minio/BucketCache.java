@@ -0,0 +1,98 @@
+package org.jenkinsci.plugins.minio;
+
+import io.minio.MinioClient;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidBucketNameException;
+import io.minio.errors.NoResponseException;
+import io.minio.errors.RegionConflictException;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * JVM-wide cache of the buckets known to exist, so that builds do not check
+ * for, or create, the bucket on every run. It is used on the controller, and
+ * on agents by the uploads of Pipeline steps, which create the bucket from
+ * the agent so that the step does not wait for the server. An entry expires
+ * after a time to live, and is dropped when an upload finds the bucket
+ * missing.
+ */
+public final class BucketCache {
+
+	/**
+	 * Time after which a known bucket is checked again.
+	 */
+	static final long TTL = Long.getLong(BucketCache.class.getName() + ".ttlMillis", TimeUnit.HOURS.toMillis(1));
+
+	private static final ConcurrentMap<String, Long> KNOWN = new ConcurrentHashMap<>();
+
+	private BucketCache() {
+	}
+
+	/**
+	 * Makes sure the bucket exists, creating it if not present, unless it is
+	 * already known to exist.
+	 */
+	public static void ensureBucket(MinioClient minioClient, String serverURL, String bucketName)
+			throws InvalidKeyException, InvalidBucketNameException, NoSuchAlgorithmException,
+			InsufficientDataException, NoResponseException, ErrorResponseException, InternalException,
+			XmlPullParserException, RegionConflictException, IOException {
+		final String key = key(serverURL, bucketName);
+		final long now = System.currentTimeMillis();
+		Long expiry = KNOWN.get(key);
+		if (expiry != null && expiry > now) {
+			return;
+		}
+
+		// Check if bucket already exists
+		boolean bucketFound = minioClient.bucketExists(bucketName);
+
+		// If bucket not present, create bucket
+		if (!bucketFound) {
+			minioClient.makeBucket(bucketName);
+		}
+		KNOWN.put(key, now + TTL);
+	}
+
+	/**
+	 * Makes sure the bucket exists with the REST client, creating it unless
+	 * it is already known to exist. Creating a bucket owned by the caller
+	 * succeeds, so the bucket is not checked first.
+	 */
+	public static void ensureBucket(MinioRestClient client, String bucketName) throws IOException {
+		final String key = key(client.getEndpoint(), bucketName);
+		final long now = System.currentTimeMillis();
+		Long expiry = KNOWN.get(key);
+		if (expiry != null && expiry > now) {
+			return;
+		}
+		client.makeBucket(bucketName);
+		KNOWN.put(key, now + TTL);
+	}
+
+	/**
+	 * Forgets a bucket, called when an upload found it missing.
+	 */
+	public static void invalidate(String serverURL, String bucketName) {
+		KNOWN.remove(key(serverURL, bucketName));
+	}
+
+	/**
+	 * Forgets every bucket, called when the global configuration changes.
+	 */
+	public static void invalidateAll() {
+		KNOWN.clear();
+	}
+
+	private static String key(String serverURL, String bucketName) {
+		return serverURL + '/' + bucketName;
+	}
+}
@@ -0,0 +1,109 @@
+package org.jenkinsci.plugins.minio;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of reusable direct buffers shared by every upload of the JVM.
+ * The total capacity of the buffers, in use or cached, never exceeds the
+ * memory budget: a request which does not fit waits for buffers to be
+ * released instead of allocating more, so memory use does not grow with the
+ * number of concurrent uploads.
+ */
+public final class BufferPool {
+
+	/**
+	 * Buffer sizes are rounded up to a multiple of this granularity so that
+	 * released buffers can be reused by similar requests.
+	 */
+	private static final int GRANULARITY = 64 * 1024;
+
+	/**
+	 * Pool shared by the uploads of this JVM, with a budget of a quarter of
+	 * the maximum heap size, at most 256 MiB, unless configured.
+	 */
+	public static final BufferPool SHARED = new BufferPool(Long.getLong(BufferPool.class.getName() + ".budget",
+			Math.min(256L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 4)));
+
+	private final long budget;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition released = lock.newCondition();
+	private final TreeMap<Integer, ArrayDeque<ByteBuffer>> free = new TreeMap<>();
+	private long allocated;
+
+	public BufferPool(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Returns a cleared buffer whose limit is the requested size, waiting
+	 * while the budget is exhausted. A request larger than the whole budget
+	 * is served once no other buffer is allocated.
+	 */
+	public ByteBuffer acquire(int size) throws InterruptedException {
+		final int capacity = (int) Math.min(Integer.MAX_VALUE,
+				((long) size + GRANULARITY - 1) / GRANULARITY * GRANULARITY);
+		lock.lockInterruptibly();
+		try {
+			while (true) {
+				ArrayDeque<ByteBuffer> cached = free.get(capacity);
+				if (cached != null && !cached.isEmpty()) {
+					ByteBuffer buffer = cached.pop();
+					buffer.clear().limit(size);
+					return buffer;
+				}
+				if (allocated + capacity <= budget || allocated == 0) {
+					allocated += capacity;
+					break;
+				}
+				if (!evictOtherThan(capacity)) {
+					released.await();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+		buffer.limit(size);
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer to the pool.
+	 */
+	public void release(ByteBuffer buffer) {
+		lock.lock();
+		try {
+			ArrayDeque<ByteBuffer> cached = free.get(buffer.capacity());
+			if (cached == null) {
+				cached = new ArrayDeque<>();
+				free.put(buffer.capacity(), cached);
+			}
+			cached.push(buffer);
+			released.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Drops one cached buffer of another size, leaving its memory to the
+	 * garbage collector, so that the budget can be used for a new size.
+	 */
+	private boolean evictOtherThan(int capacity) {
+		for (Iterator<Map.Entry<Integer, ArrayDeque<ByteBuffer>>> it = free.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<Integer, ArrayDeque<ByteBuffer>> entry = it.next();
+			if (entry.getKey() != capacity && !entry.getValue().isEmpty()) {
+				entry.getValue().pop();
+				allocated -= entry.getKey();
+				return true;
+			}
+		}
+		return false;
+	}
+}
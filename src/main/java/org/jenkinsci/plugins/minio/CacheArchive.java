@@ -0,0 +1,351 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.tools.tar.TarConstants;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarInputStream;
+import org.apache.tools.tar.TarOutputStream;
+
+/**
+ * Archive of a cached directory, split into chunks which are compressed,
+ * uploaded, downloaded and extracted independently of each other. The
+ * archive is deterministic: entries are sorted by path and carry neither
+ * owner nor archiving time, so the same tree always gives the same chunks.
+ */
+public final class CacheArchive {
+
+	/**
+	 * Size of the files of a chunk before compression. A larger file makes a
+	 * chunk of its own.
+	 */
+	static final long CHUNK_SIZE = Long.getLong(CacheArchive.class.getName() + ".chunkSize", 64L * 1024 * 1024);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int HEADER_SIZE = 512;
+
+	static final String MANIFEST = "manifest";
+
+	private static final PosixFilePermission[] PERMISSIONS = { PosixFilePermission.OTHERS_EXECUTE,
+			PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_READ, PosixFilePermission.GROUP_EXECUTE,
+			PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_READ, PosixFilePermission.OWNER_EXECUTE,
+			PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_READ };
+
+	/**
+	 * File, directory or symbolic link of the cached directory.
+	 */
+	static final class Entry implements Comparable<Entry> {
+		private final Path file;
+		private final String name;
+		private final BasicFileAttributes attrs;
+
+		Entry(Path file, String name, BasicFileAttributes attrs) {
+			this.file = file;
+			this.name = name;
+			this.attrs = attrs;
+		}
+
+		/**
+		 * @return Returns the bytes the entry takes in the archive before
+		 *         compression
+		 */
+		long getArchivedSize() {
+			return HEADER_SIZE + (attrs.isRegularFile() ? attrs.size() : 0);
+		}
+
+		long getSize() {
+			return attrs.isRegularFile() ? attrs.size() : 0;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			return name.compareTo(other.name);
+		}
+	}
+
+	/**
+	 * Entries and bytes of the files extracted from a chunk, which the
+	 * restore checks against the manifest.
+	 */
+	static final class Totals {
+		private final int entries;
+		private final long bytes;
+
+		Totals(int entries, long bytes) {
+			this.entries = entries;
+			this.bytes = bytes;
+		}
+
+		int getEntries() {
+			return entries;
+		}
+
+		long getBytes() {
+			return bytes;
+		}
+	}
+
+	private CacheArchive() {
+	}
+
+	/**
+	 * Returns the name of the object listing the chunks of the cache, which
+	 * is uploaded last and makes the cache visible.
+	 */
+	static String manifestName(String key) {
+		return key + "/" + MANIFEST;
+	}
+
+	static String chunkName(String key, int chunk) {
+		return String.format("%s/chunk-%05d.tgz", key, chunk);
+	}
+
+	/**
+	 * Lists the entries below the directory, without following symbolic
+	 * links, and groups them in path order into chunks of about
+	 * {@link #CHUNK_SIZE} bytes.
+	 */
+	static List<List<Entry>> chunks(final Path root) throws IOException {
+		final List<Entry> entries = new ArrayList<>();
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				if (!dir.equals(root)) {
+					entries.add(new Entry(dir, name(root, dir) + "/", attrs));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile() || attrs.isSymbolicLink()) {
+					entries.add(new Entry(file, name(root, file), attrs));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(entries);
+
+		List<List<Entry>> chunks = new ArrayList<>();
+		List<Entry> chunk = new ArrayList<>();
+		long size = 0;
+		for (Entry entry : entries) {
+			if (size > 0 && size + entry.getArchivedSize() > CHUNK_SIZE) {
+				chunks.add(chunk);
+				chunk = new ArrayList<>();
+				size = 0;
+			}
+			chunk.add(entry);
+			size += entry.getArchivedSize();
+		}
+		if (!chunk.isEmpty()) {
+			chunks.add(chunk);
+		}
+		return chunks;
+	}
+
+	private static String name(Path root, Path file) {
+		return root.relativize(file).toString().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Writes the entries of a chunk as a compressed tar archive.
+	 */
+	static void write(List<Entry> chunk, OutputStream out) throws IOException {
+		try (TarOutputStream tar = new TarOutputStream(
+				UploadCodec.GZIP.compress(new BufferedOutputStream(out, BUFFER_SIZE)), "UTF-8")) {
+			tar.setLongFileMode(TarOutputStream.LONGFILE_POSIX);
+			tar.setBigNumberMode(TarOutputStream.BIGNUMBER_POSIX);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			for (Entry entry : chunk) {
+				TarEntry tarEntry;
+				if (entry.attrs.isSymbolicLink()) {
+					tarEntry = new TarEntry(entry.name, TarConstants.LF_SYMLINK);
+					tarEntry.setLinkName(Files.readSymbolicLink(entry.file).toString());
+				} else {
+					tarEntry = new TarEntry(entry.name);
+					tarEntry.setSize(entry.getSize());
+				}
+				tarEntry.setMode(mode(entry));
+				tarEntry.setModTime(entry.attrs.lastModifiedTime().toMillis());
+				tarEntry.setIds(0, 0);
+				tarEntry.setNames("", "");
+				tar.putNextEntry(tarEntry);
+				if (entry.attrs.isRegularFile()) {
+					try (InputStream in = Files.newInputStream(entry.file)) {
+						int n;
+						while ((n = in.read(buffer)) != -1) {
+							tar.write(buffer, 0, n);
+						}
+					}
+				}
+				tar.closeEntry();
+			}
+		}
+	}
+
+	private static int mode(Entry entry) throws IOException {
+		int type = entry.attrs.isDirectory() ? 040000 : entry.attrs.isSymbolicLink() ? 0120000 : 0100000;
+		PosixFileAttributeView posix = Files.getFileAttributeView(entry.file, PosixFileAttributeView.class,
+				LinkOption.NOFOLLOW_LINKS);
+		if (posix == null) {
+			return type | (entry.attrs.isDirectory() || Files.isExecutable(entry.file) ? 0755 : 0644);
+		}
+		Set<PosixFilePermission> permissions = posix.readAttributes().permissions();
+		int mode = 0;
+		for (int i = 0; i < PERMISSIONS.length; i++) {
+			if (permissions.contains(PERMISSIONS[i])) {
+				mode |= 1 << i;
+			}
+		}
+		return type | mode;
+	}
+
+	/**
+	 * Extracts a compressed chunk into the directory, replacing the files
+	 * already present. Entries whose name leads out of the directory, or
+	 * which would be written out of it through a symbolic link, and symbolic
+	 * links whose target is out of the directory, are refused. Every member
+	 * of the compressed chunk is decoded up to the end of the stream, so
+	 * that a truncated chunk is an error rather than missing entries.
+	 *
+	 * @return Returns the number of entries extracted and of bytes of the
+	 *         extracted files
+	 */
+	static Totals extract(InputStream in, Path root) throws IOException {
+		int entries = 0;
+		long bytes = 0;
+		Path realRoot = root.toRealPath();
+		List<TarEntry> directories = new ArrayList<>();
+		List<Path> directoryFiles = new ArrayList<>();
+		try (InputStream gzip = new GzipMembersInputStream(new BufferedInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+				TarInputStream tar = new TarInputStream(gzip, "UTF-8")) {
+			TarEntry entry;
+			while ((entry = tar.getNextEntry()) != null) {
+				entries++;
+				Path file = root.resolve(entry.getName()).normalize();
+				if (!file.startsWith(root) || file.equals(root)) {
+					throw new IOException("Refusing to extract " + entry.getName() + " out of " + root);
+				}
+				file = inside(realRoot, root, file, entry.getName());
+				if (entry.isDirectory()) {
+					Files.createDirectories(file);
+					file = file.toRealPath();
+					check(realRoot, file, entry.getName());
+					directories.add(entry);
+					directoryFiles.add(file);
+					continue;
+				}
+				if (entry.isSymbolicLink()) {
+					Path target = file.getFileSystem().getPath(entry.getLinkName());
+					if (!isInside(realRoot, file.getParent(), target)) {
+						throw new IOException("Refusing to extract " + entry.getName() + " linking to "
+								+ entry.getLinkName() + " out of " + root);
+					}
+					Files.deleteIfExists(file);
+					Files.createSymbolicLink(file, target);
+					continue;
+				}
+				// replaces a symbolic link in place of the file rather than following it
+				bytes += Files.copy(tar, file, StandardCopyOption.REPLACE_EXISTING);
+				restore(file, entry);
+			}
+			// the padding after the end of the archive, checked by the trailer
+			// of the last member
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (gzip.read(buffer) != -1) {
+				// skipped
+			}
+		}
+		// directories last, as extracting their content changes them
+		for (int i = 0; i < directories.size(); i++) {
+			restore(directoryFiles.get(i), directories.get(i));
+		}
+		return new Totals(entries, bytes);
+	}
+
+	/**
+	 * Creates the parent directories of the file below the root and returns
+	 * the file in its parent resolved to its real path, refusing parents
+	 * which are out of the root once symbolic links are followed.
+	 */
+	private static Path inside(Path realRoot, Path root, Path file, String name) throws IOException {
+		Path existing = file.getParent();
+		while (!existing.equals(root) && !Files.exists(existing)) {
+			existing = existing.getParent();
+		}
+		// checked before creating anything through a link out of the root
+		check(realRoot, existing.toRealPath(), name);
+		Files.createDirectories(file.getParent());
+		Path parent = file.getParent().toRealPath();
+		check(realRoot, parent, name);
+		return parent.resolve(file.getFileName());
+	}
+
+	private static void check(Path realRoot, Path real, String name) throws IOException {
+		if (!real.startsWith(realRoot)) {
+			throw new IOException("Refusing to extract " + name + " through a link to " + real);
+		}
+	}
+
+	/**
+	 * Tells whether the target of a symbolic link in the directory, whose
+	 * real path is given, stays in the root. The target must be relative,
+	 * and may only go up with leading <tt>..</tt> segments: a <tt>..</tt>
+	 * after a name would go up from wherever that name links to, which is
+	 * not known while the link may dangle.
+	 */
+	static boolean isInside(Path realRoot, Path dir, Path target) {
+		if (target.isAbsolute()) {
+			return false;
+		}
+		boolean leading = true;
+		for (Path segment : target) {
+			if (segment.toString().equals("..")) {
+				if (!leading) {
+					return false;
+				}
+			} else if (!segment.toString().equals(".")) {
+				leading = false;
+			}
+		}
+		return dir.resolve(target).normalize().startsWith(realRoot);
+	}
+
+	private static void restore(Path file, TarEntry entry) throws IOException {
+		PosixFileAttributeView posix = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+		if (posix != null) {
+			Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+			for (int i = 0; i < PERMISSIONS.length; i++) {
+				if ((entry.getMode() & (1 << i)) != 0) {
+					permissions.add(PERMISSIONS[i]);
+				}
+			}
+			posix.setPermissions(permissions);
+		} else if ((entry.getMode() & 0100) != 0) {
+			file.toFile().setExecutable(true);
+		}
+		Files.setLastModifiedTime(file, FileTime.fromMillis(entry.getModTime().getTime()));
+	}
+}
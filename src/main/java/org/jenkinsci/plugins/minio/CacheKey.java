@@ -0,0 +1,70 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import hudson.AbortException;
+
+/**
+ * Key of a cache, made of a name and of the hash of the lock files of the
+ * workspace, so that the cache is saved again whenever the dependencies they
+ * describe change.
+ */
+public final class CacheKey {
+
+	private CacheKey() {
+	}
+
+	/**
+	 * Returns the key followed by the SHA-256 of the paths and contents of the
+	 * matching lock files, or the key alone if no pattern is given. Files of
+	 * the cached directory are not lock files.
+	 *
+	 * @param lockFiles
+	 *            Comma separated patterns of the lock files, such as
+	 *            <tt>**&#47;pom.xml</tt>, may be null
+	 */
+	static String resolve(File ws, String key, String lockFiles, String path)
+			throws IOException, InterruptedException {
+		if (lockFiles == null || lockFiles.trim().isEmpty()) {
+			return key;
+		}
+		final Map<String, File> files = new ConcurrentSkipListMap<>();
+		GlobMatcher matcher = new GlobMatcher(lockFiles, path.isEmpty() ? null : path + "/**");
+		new WorkspaceWalker(matcher).walk(ws, new WorkspaceWalker.Visitor() {
+			@Override
+			public void visit(File file, String[] segments, int include) {
+				files.put(String.join("/", segments), file);
+			}
+		});
+		if (files.isEmpty()) {
+			throw new AbortException("No lock file matches " + lockFiles);
+		}
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		byte[] buffer = new byte[64 * 1024];
+		for (Map.Entry<String, File> file : files.entrySet()) {
+			digest.update(file.getKey().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			try (InputStream in = Files.newInputStream(file.getValue().toPath())) {
+				int n;
+				while ((n = in.read(buffer)) != -1) {
+					digest.update(buffer, 0, n);
+				}
+			}
+			digest.update((byte) 0);
+		}
+		return key + "-" + MinioRestClient.hex(digest.digest());
+	}
+}
@@ -0,0 +1,159 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Layout of the deduplicated files of a bucket. Files are split by
+ * {@link FastCdc} into chunks stored once under the SHA-256 of their content,
+ * below {@link #PREFIX}, and each file is stored as a recipe listing its
+ * chunks, named after the file with {@link #RECIPE_SUFFIX}.
+ */
+public final class ChunkStore {
+
+	/**
+	 * Prefix of the chunk objects in the bucket.
+	 */
+	static final String PREFIX = ".minio-chunks/";
+
+	/**
+	 * Suffix of the recipe objects, appended to the object name of the file.
+	 */
+	static final String RECIPE_SUFFIX = ".recipe";
+
+	/**
+	 * Average size of the chunks. Changing it stops new uploads from sharing
+	 * chunks with the files stored before.
+	 */
+	static final int AVERAGE_CHUNK_SIZE = Integer.getInteger(ChunkStore.class.getName() + ".averageChunkSize",
+			512 * 1024);
+
+	private static final String HEADER = "# minio-storage recipe 1";
+
+	/**
+	 * Chunks of a file, in order.
+	 */
+	static final class Recipe {
+		private final List<String> hashes = new ArrayList<>();
+		private final List<Integer> lengths = new ArrayList<>();
+		private final List<Long> offsets = new ArrayList<>();
+		private long size;
+
+		void add(String hash, int length) {
+			hashes.add(hash);
+			lengths.add(length);
+			offsets.add(size);
+			size += length;
+		}
+
+		/**
+		 * @return Returns the size of the file
+		 */
+		long getSize() {
+			return size;
+		}
+
+		int getChunks() {
+			return hashes.size();
+		}
+
+		String getHash(int chunk) {
+			return hashes.get(chunk);
+		}
+
+		int getLength(int chunk) {
+			return lengths.get(chunk);
+		}
+
+		long getOffset(int chunk) {
+			return offsets.get(chunk);
+		}
+
+		List<String> getHashes() {
+			return Collections.unmodifiableList(hashes);
+		}
+
+		ByteBuffer toBytes() {
+			StringBuilder text = new StringBuilder(HEADER).append('\n');
+			for (int i = 0; i < hashes.size(); i++) {
+				text.append(hashes.get(i)).append(' ').append(lengths.get(i)).append('\n');
+			}
+			return ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+		}
+
+		static Recipe parse(InputStream in) throws IOException {
+			Recipe recipe = new Recipe();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+			if (!HEADER.equals(reader.readLine())) {
+				throw new IOException("Not a chunk recipe");
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int space = line.indexOf(' ');
+				if (space < 0) {
+					throw new IOException("Invalid chunk recipe line " + line);
+				}
+				recipe.add(line.substring(0, space), Integer.parseInt(line.substring(space + 1)));
+			}
+			return recipe;
+		}
+	}
+
+	private ChunkStore() {
+	}
+
+	/**
+	 * Returns the name of the chunk with the given hash, below a directory
+	 * named after its first two digits.
+	 */
+	static String chunkName(String hash) {
+		return PREFIX + hash.substring(0, 2) + "/" + hash;
+	}
+
+	/**
+	 * Returns a digest computing the hashes of the chunks.
+	 */
+	static MessageDigest digest() throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	static boolean isRecipe(String objectName) {
+		return objectName.endsWith(RECIPE_SUFFIX) && !objectName.startsWith(PREFIX);
+	}
+
+	/**
+	 * Reads a recipe, or returns null if it does not exist.
+	 *
+	 * @param etag
+	 *            ETag the recipe must still have, or null
+	 */
+	static Recipe readRecipe(MinioRestClient client, String bucketName, String recipeName, String etag)
+			throws IOException {
+		HttpURLConnection conn;
+		try {
+			conn = client.getObject(bucketName, recipeName, 0, -1, etag);
+		} catch (MinioRestException e) {
+			if (e.getStatus() == HttpURLConnection.HTTP_NOT_FOUND) {
+				return null;
+			}
+			throw e;
+		}
+		try (InputStream in = conn.getInputStream()) {
+			return Recipe.parse(in);
+		}
+	}
+}
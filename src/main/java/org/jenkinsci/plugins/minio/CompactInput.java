@@ -0,0 +1,75 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the compact format written by {@link CompactOutput}.
+ */
+final class CompactInput {
+
+	private final DataInput in;
+	private final List<String> table = new ArrayList<>();
+	private String previousPath = "";
+
+	CompactInput(DataInput in) {
+		this.in = in;
+	}
+
+	long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new StreamCorruptedException("Malformed variable length integer");
+	}
+
+	long readSignedVarLong() throws IOException {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reads a count or an index, rejecting values which cannot be one.
+	 */
+	int readVarInt() throws IOException {
+		long value = readVarLong();
+		if (value < 0 || value > Integer.MAX_VALUE) {
+			throw new StreamCorruptedException("Invalid count " + value);
+		}
+		return (int) value;
+	}
+
+	String readString() throws IOException {
+		byte[] bytes = new byte[readVarInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	String readPath() throws IOException {
+		int common = readVarInt();
+		if (common > previousPath.length()) {
+			throw new StreamCorruptedException("Invalid path prefix length " + common);
+		}
+		previousPath = previousPath.substring(0, common) + readString();
+		return previousPath;
+	}
+
+	String readShared() throws IOException {
+		int index = readVarInt();
+		if (index == table.size()) {
+			table.add(readString());
+		} else if (index > table.size()) {
+			throw new StreamCorruptedException("Invalid string table index " + index);
+		}
+		return table.get(index);
+	}
+}
@@ -0,0 +1,84 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the compact format of the file lists exchanged between agent and
+ * controller, read back by {@link CompactInput}. Numbers are written as
+ * variable length integers; paths are front coded, each one as the length of
+ * the prefix it shares with the previous path and the rest; strings which
+ * repeat, such as object name prefixes, go through a string table and are
+ * written once.
+ */
+final class CompactOutput {
+
+	private final DataOutput out;
+	private final Map<String, Integer> table = new HashMap<>();
+	private String previousPath = "";
+
+	CompactOutput(DataOutput out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writes a non-negative number in 7-bit groups, least significant first.
+	 */
+	void writeVarLong(long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.writeByte((int) (value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Writes a number which may be negative, such as a difference.
+	 */
+	void writeSignedVarLong(long value) throws IOException {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	void writeString(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Writes a path relative to the previous one. Paths written in sorted
+	 * order share long prefixes.
+	 */
+	void writePath(String path) throws IOException {
+		int common = 0;
+		int max = Math.min(path.length(), previousPath.length());
+		while (common < max && path.charAt(common) == previousPath.charAt(common)) {
+			common++;
+		}
+		if (common > 0 && Character.isHighSurrogate(path.charAt(common - 1))) {
+			// do not split a surrogate pair
+			common--;
+		}
+		writeVarLong(common);
+		writeString(path.substring(common));
+		previousPath = path;
+	}
+
+	/**
+	 * Writes a string through the string table: the index of the string, and
+	 * the string itself the first time only.
+	 */
+	void writeShared(String value) throws IOException {
+		Integer index = table.get(value);
+		if (index != null) {
+			writeVarLong(index);
+		} else {
+			writeVarLong(table.size());
+			writeString(value);
+			table.put(value, table.size());
+		}
+	}
+}
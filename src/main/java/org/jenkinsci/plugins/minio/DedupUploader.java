@@ -0,0 +1,357 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.FilePath.FileCallable;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Uploads the matching files of the workspace to the {@link ChunkStore} of
+ * the bucket: each file is split by {@link FastCdc}, only the chunks missing
+ * from the bucket are sent, and a recipe listing the chunks is written under
+ * the object name of the file with {@link ChunkStore#RECIPE_SUFFIX}. Each
+ * distinct chunk is checked with one HEAD request per upload, even when the
+ * previous recipe of the file lists it, as chunks may have been deleted from
+ * the bucket since; a file which changed by a few percent costs one cheap
+ * request per chunk and uploads only the changed chunks. The previous recipe
+ * is only used to leave an unchanged recipe alone.
+ * <p>
+ * The walk finds the files concurrently, but they are read one at a time
+ * through a single buffer of four times the largest chunk, while their
+ * chunks are sent concurrently: besides the buffer, at most twice the
+ * concurrency of chunks read but not stored yet are held in memory. A bucket
+ * found missing is created again, once, and reported in the summary.
+ */
+public class DedupUploader implements FileCallable<UploadSummary> {
+	private static final long serialVersionUID = 1;
+
+	private final MinioClientFactory minioClientFactory;
+
+	/**
+	 * Bucket name to store the build artifacts.
+	 */
+	private final String bucketName;
+
+	/**
+	 * Resolves the matching files to object names.
+	 */
+	private final UploadPlanner planner;
+
+	private final int concurrency;
+
+	/**
+	 * TaskListener listener needed for reading exceptions.
+	 */
+	private final TaskListener listener;
+
+	/**
+	 * Print a line for every uploaded file besides the periodic progress.
+	 */
+	private boolean verbose;
+
+	/**
+	 * Create the bucket from the agent before uploading, unless it is known
+	 * to exist.
+	 */
+	private boolean createBucket;
+
+	public DedupUploader(MinioClientFactory minioClientFactory, String bucketName, UploadPlanner planner,
+			int concurrency, TaskListener listener) {
+		this.minioClientFactory = minioClientFactory;
+		this.bucketName = bucketName;
+		this.planner = planner;
+		this.concurrency = concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+		this.listener = listener;
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	public void setCreateBucket(boolean createBucket) {
+		this.createBucket = createBucket;
+	}
+
+	@Override
+	public void checkRoles(RoleChecker checker) throws SecurityException {
+		// not implemented
+	}
+
+	/**
+	 * invoke splits the matching files into chunks and uploads the chunks
+	 * missing from the bucket and the recipes of the files.
+	 */
+	@Override
+	public UploadSummary invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		final UploadSummary summary = new UploadSummary();
+		final MinioRestClient client = minioClientFactory.createRestClient();
+		if (createBucket) {
+			BucketCache.ensureBucket(client, bucketName);
+		}
+		final UploadProgress progress = new UploadProgress(listener.getLogger(), bucketName, summary);
+		progress.setVerbose(verbose);
+
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Minio chunk upload " + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		final Store store = new Store(client, executor);
+		final List<CompletableFuture<Void>> files = Collections.synchronizedList(new ArrayList<>());
+		progress.start();
+		try {
+			planner.plan(ws, new UploadPlanner.Listener() {
+				@Override
+				public void planned(File file, UploadPlan.Entry entry) throws IOException {
+					progress.planned(entry);
+					files.add(store.upload(file, entry, progress));
+				}
+			});
+			progress.planComplete();
+			CompletableFuture<Void> all;
+			synchronized (files) {
+				all = CompletableFuture.allOf(files.toArray(new CompletableFuture<?>[0]));
+			}
+			try {
+				all.get();
+			} catch (ExecutionException e) {
+				// the failures are counted per file
+			}
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+			progress.close();
+		}
+		listener.getLogger().println(String.format("%s: sent %d of %d bytes in %d new chunks",
+				MinioUploader.DISPLAY_NAME, store.sentBytes.get(), store.readBytes.get(), store.sentChunks.get()));
+		summary.setBucketMissing(store.bucketMissing.get());
+		summary.setElapsedMillis(System.currentTimeMillis() - start);
+		return summary;
+	}
+
+	/**
+	 * Chunks of the bucket known during one upload.
+	 */
+	private final class Store {
+		private final MinioRestClient client;
+		private final ExecutorService executor;
+		private final FastCdc chunker = new FastCdc(ChunkStore.AVERAGE_CHUNK_SIZE);
+
+		/**
+		 * Buffer of the file being read, keeping at least the largest chunk
+		 * ahead of the cut.
+		 */
+		private final byte[] buffer = new byte[4 * chunker.getMaxSize()];
+
+		/**
+		 * Chunks which exist or are being sent, by hash. A chunk found in
+		 * several files or several times in a file is sent once.
+		 */
+		private final ConcurrentMap<String, CompletableFuture<Void>> chunks = new ConcurrentHashMap<>();
+
+		/**
+		 * Chunks read but not stored yet, bounding the memory held.
+		 */
+		private final Semaphore window = new Semaphore(2 * concurrency);
+
+		private final AtomicLong readBytes = new AtomicLong();
+		private final AtomicLong sentBytes = new AtomicLong();
+		private final AtomicLong sentChunks = new AtomicLong();
+
+		/**
+		 * Set once the bucket was found missing and created again.
+		 */
+		private final AtomicBoolean bucketMissing = new AtomicBoolean();
+
+		Store(MinioRestClient client, ExecutorService executor) {
+			this.client = client;
+			this.executor = executor;
+		}
+
+		/**
+		 * Reads the file and queues its chunks, and returns the completion of
+		 * its recipe once they are stored.
+		 */
+		CompletableFuture<Void> upload(final File file, final UploadPlan.Entry entry, final UploadProgress progress) {
+			final long startMillis = System.currentTimeMillis();
+			final String recipeName = entry.getObjectName() + ChunkStore.RECIPE_SUFFIX;
+			final ChunkStore.Recipe recipe = new ChunkStore.Recipe();
+			final ChunkStore.Recipe previous;
+			final List<CompletableFuture<Void>> stored = new ArrayList<>();
+			try {
+				previous = ChunkStore.readRecipe(client, bucketName, recipeName, null);
+				split(file, recipe, stored);
+			} catch (IOException | InterruptedException e) {
+				IOException failure = e instanceof IOException ? (IOException) e
+						: new IOException("Interrupted while reading " + entry.getRelativePath(), e);
+				progress.done(file.getName(), entry.getObjectName(), entry.getSize(), startMillis, false, failure);
+				return CompletableFuture.completedFuture(null);
+			}
+			final ByteBuffer bytes = recipe.toBytes();
+			final boolean unchanged = previous != null && previous.toBytes().equals(bytes);
+			return CompletableFuture.allOf(stored.toArray(new CompletableFuture<?>[0])).thenRunAsync(() -> {
+				if (!unchanged) {
+					try {
+						put(recipeName, bytes);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}, executor).whenComplete((v, t) -> {
+				IOException failure = t == null ? null : unwrap(t);
+				progress.done(file.getName(), entry.getObjectName(), recipe.getSize(), startMillis, !unchanged,
+						failure);
+			});
+		}
+
+		/**
+		 * Cuts the file into chunks, adding them to the recipe, and stores
+		 * the ones not known yet. The walkers finding files concurrently wait
+		 * here for their turn.
+		 */
+		private synchronized void split(File file, ChunkStore.Recipe recipe, List<CompletableFuture<Void>> stored)
+				throws IOException, InterruptedException {
+			int offset = 0;
+			int length = 0;
+			boolean eof = false;
+			try (InputStream in = Files.newInputStream(file.toPath())) {
+				while (true) {
+					// keep at least the largest chunk in the buffer until the end
+					if (!eof && length < chunker.getMaxSize()) {
+						System.arraycopy(buffer, offset, buffer, 0, length);
+						offset = 0;
+						while (!eof && length < buffer.length) {
+							int read = in.read(buffer, length, buffer.length - length);
+							if (read < 0) {
+								eof = true;
+							} else {
+								length += read;
+							}
+						}
+					}
+					if (length == 0) {
+						break;
+					}
+					int cut = chunker.cut(buffer, offset, length);
+					MessageDigest digest = ChunkStore.digest();
+					digest.update(buffer, offset, cut);
+					String hash = MinioRestClient.hex(digest.digest());
+					recipe.add(hash, cut);
+					readBytes.addAndGet(cut);
+					CompletableFuture<Void> chunk = store(hash, buffer, offset, cut);
+					if (!chunk.isDone() || chunk.isCompletedExceptionally()) {
+						stored.add(chunk);
+					}
+					offset += cut;
+					length -= cut;
+				}
+			}
+		}
+
+		/**
+		 * Sends the chunk unless it is known or already being sent.
+		 */
+		private CompletableFuture<Void> store(final String hash, byte[] buffer, int offset, int length)
+				throws InterruptedException {
+			CompletableFuture<Void> known = chunks.get(hash);
+			if (known != null) {
+				return known;
+			}
+			CompletableFuture<Void> chunk = new CompletableFuture<>();
+			known = chunks.putIfAbsent(hash, chunk);
+			if (known != null) {
+				return known;
+			}
+			window.acquire();
+			final ByteBuffer body = ByteBuffer.wrap(Arrays.copyOfRange(buffer, offset, offset + length));
+			try {
+				executor.execute(() -> {
+					try {
+						String objectName = ChunkStore.chunkName(hash);
+						if (client.headObject(bucketName, objectName, "Content-Length") == null) {
+							put(objectName, body);
+							sentBytes.addAndGet(length);
+							sentChunks.incrementAndGet();
+						}
+						chunk.complete(null);
+					} catch (IOException | RuntimeException e) {
+						// a later file may try again
+						chunks.remove(hash, chunk);
+						chunk.completeExceptionally(e);
+					} finally {
+						window.release();
+					}
+				});
+			} catch (RuntimeException e) {
+				window.release();
+				chunks.remove(hash, chunk);
+				chunk.completeExceptionally(e);
+			}
+			return chunk;
+		}
+
+		/**
+		 * Uploads the object, creating the bucket again if it went missing.
+		 */
+		private void put(String objectName, ByteBuffer body) throws IOException {
+			try {
+				client.putObject(bucketName, objectName, body.duplicate(), Collections.<String, String>emptyMap());
+			} catch (MinioRestException e) {
+				if (!ObjectUploader.isNoSuchBucket(e)) {
+					throw e;
+				}
+				recreateBucket();
+				client.putObject(bucketName, objectName, body.duplicate(), Collections.<String, String>emptyMap());
+			}
+		}
+
+		/**
+		 * Creates the bucket once, however many uploads found it missing.
+		 */
+		private void recreateBucket() throws IOException {
+			synchronized (bucketMissing) {
+				if (bucketMissing.compareAndSet(false, true)) {
+					client.makeBucket(bucketName);
+				}
+			}
+		}
+	}
+
+	private static IOException unwrap(Throwable t) {
+		while (t.getCause() != null && !(t instanceof IOException)) {
+			t = t.getCause();
+		}
+		return t instanceof IOException ? (IOException) t : new IOException(t);
+	}
+}
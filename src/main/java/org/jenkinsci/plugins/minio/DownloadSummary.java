@@ -0,0 +1,83 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counts of a download, returned by the agent in place of a line per file.
+ */
+public class DownloadSummary implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private int downloadedFiles;
+	private long downloadedBytes;
+	private int cachedFiles;
+	private int failedFiles;
+	private long elapsedMillis;
+	private final List<String> failures = new ArrayList<>();
+
+	public synchronized void downloaded(long bytes) {
+		downloadedFiles++;
+		downloadedBytes += bytes;
+	}
+
+	/**
+	 * Counts a file served from the cache of the agent.
+	 */
+	public synchronized void cached(long bytes) {
+		downloaded(bytes);
+		cachedFiles++;
+	}
+
+	public synchronized void failed(String objectName) {
+		failedFiles++;
+		if (failures.size() < UploadSummary.MAX_FAILURES) {
+			failures.add(objectName);
+		}
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public int getDownloadedFiles() {
+		return downloadedFiles;
+	}
+
+	public long getDownloadedBytes() {
+		return downloadedBytes;
+	}
+
+	/**
+	 * @return Returns the number of downloaded files served from the cache of
+	 *         the agent
+	 */
+	public int getCachedFiles() {
+		return cachedFiles;
+	}
+
+	public int getFailedFiles() {
+		return failedFiles;
+	}
+
+	/**
+	 * @return Returns the names of the first failed objects
+	 */
+	public synchronized List<String> getFailures() {
+		return Collections.unmodifiableList(new ArrayList<>(failures));
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("downloaded %d files (%d bytes) in %d ms, %s%d failed", downloadedFiles,
+				downloadedBytes, elapsedMillis, cachedFiles > 0 ? cachedFiles + " from the agent cache, " : "",
+				failedFiles);
+	}
+}
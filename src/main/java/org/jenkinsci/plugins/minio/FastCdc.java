@@ -0,0 +1,88 @@
+package org.jenkinsci.plugins.minio;
+
+/**
+ * Content-defined chunking with the FastCDC algorithm: a gear rolling hash
+ * cuts the data where its top bits are zero, so that chunk boundaries depend
+ * on the content around them rather than on offsets, and an insertion only
+ * changes the chunks around it. Below the average size a stricter mask is
+ * used and above it a looser one, which keeps most chunks close to the
+ * average.
+ */
+public final class FastCdc {
+
+	/**
+	 * Random values of the gear hash for each byte. They decide where the
+	 * chunks are cut, so changing them would stop the chunks of new uploads
+	 * from matching the stored ones.
+	 */
+	private static final long[] GEAR = new long[256];
+
+	static {
+		// SplitMix64 from a fixed seed
+		long seed = 0x6d696e696f636463L;
+		for (int i = 0; i < GEAR.length; i++) {
+			long z = (seed += 0x9e3779b97f4a7c15L);
+			z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+			z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+			GEAR[i] = z ^ (z >>> 31);
+		}
+	}
+
+	private final int minSize;
+	private final int averageSize;
+	private final int maxSize;
+	private final long strictMask;
+	private final long looseMask;
+
+	/**
+	 * @param averageSize
+	 *            Average size of the chunks, a power of two; the chunks are
+	 *            between a quarter and four times this size
+	 */
+	public FastCdc(int averageSize) {
+		if (Integer.bitCount(averageSize) != 1 || averageSize < 256) {
+			throw new IllegalArgumentException("Invalid average chunk size " + averageSize);
+		}
+		int bits = Integer.numberOfTrailingZeros(averageSize);
+		this.minSize = averageSize / 4;
+		this.averageSize = averageSize;
+		this.maxSize = averageSize * 4;
+		this.strictMask = -1L << (64 - (bits + 1));
+		this.looseMask = -1L << (64 - (bits - 1));
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the length of the chunk starting at the offset. The data
+	 * available from the offset must span the maximum chunk size, unless it
+	 * is the end of the input.
+	 *
+	 * @param length
+	 *            Number of bytes available from the offset
+	 */
+	public int cut(byte[] data, int offset, int length) {
+		if (length <= minSize) {
+			return length;
+		}
+		int end = Math.min(length, maxSize);
+		int normal = Math.min(averageSize, end);
+		long hash = 0;
+		int i = minSize;
+		for (; i < normal; i++) {
+			hash = (hash << 1) + GEAR[data[offset + i] & 0xff];
+			if ((hash & strictMask) == 0) {
+				return i + 1;
+			}
+		}
+		for (; i < end; i++) {
+			hash = (hash << 1) + GEAR[data[offset + i] & 0xff];
+			if ((hash & looseMask) == 0) {
+				return i + 1;
+			}
+		}
+		return end;
+	}
+}
@@ -0,0 +1,47 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Region of a file used as a request body, moved with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}. Only a
+ * {@link java.nio.channels.SocketChannel} or a {@link FileChannel} target
+ * lets the kernel move the bytes straight from the page cache, as
+ * {@link NioHttpSender} does for plain <tt>http</tt>. The output stream of an
+ * {@link java.net.HttpURLConnection}, wrapped into a channel for
+ * <tt>https</tt> and for the signed requests of {@link MinioRestClient}, is
+ * fed by the JDK through a small heap buffer like any other stream.
+ */
+public final class FileRegion {
+
+	private final FileChannel channel;
+	private final long position;
+	private final long length;
+
+	public FileRegion(FileChannel channel, long position, long length) {
+		this.channel = channel;
+		this.position = position;
+		this.length = length;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Writes the whole region to the target.
+	 */
+	public void transferTo(WritableByteChannel target) throws IOException {
+		long offset = position;
+		final long end = position + length;
+		while (offset < end) {
+			long n = channel.transferTo(offset, end - offset, target);
+			if (n <= 0 && offset >= channel.size()) {
+				throw new IOException("Unexpected end of file at " + offset);
+			}
+			offset += n;
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.tools.ant.DirectoryScanner;
+
+/**
+ * Compiled set of Ant-style include and exclude patterns, such as
+ * <tt>**&#47;build/test-reports/*.xml</tt>, evaluated against paths relative to
+ * the workspace. Besides matching files, it tells whether a directory can
+ * contain matches at all, so that a walk can prune directories before
+ * descending into them. The default excludes of Ant are always applied, as
+ * they are by {@link hudson.FilePath#list(String, String)}.
+ * <p>
+ * In subtree mode, an include pattern which matches a directory also matches
+ * every file below it, as if it ended with <tt>/**</tt>.
+ */
+public final class GlobMatcher implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final List<String[]> includes;
+	private final List<String[]> excludes;
+
+	/**
+	 * Number of leading literal segments of each include pattern which form
+	 * its search root.
+	 */
+	private final int[] searchRootDepths;
+
+	/**
+	 * Compiled segment patterns, created lazily after deserialization. The
+	 * include patterns are assigned last and publish both lists to the other
+	 * threads of a walk.
+	 */
+	private transient volatile List<Pattern[]> includePatterns;
+	private transient List<Pattern[]> excludePatterns;
+
+	/**
+	 * @param includes
+	 *            Comma separated patterns of the files to match
+	 * @param excludes
+	 *            Comma separated patterns of the files not to match, may be
+	 *            null
+	 */
+	public GlobMatcher(String includes, String excludes) {
+		this(includes, excludes, false);
+	}
+
+	/**
+	 * @param includes
+	 *            Comma separated patterns of the files to match
+	 * @param excludes
+	 *            Comma separated patterns of the files not to match, may be
+	 *            null
+	 * @param subtrees
+	 *            Whether the include patterns also match the content of the
+	 *            directories they match
+	 */
+	public GlobMatcher(String includes, String excludes, boolean subtrees) {
+		this.includes = tokenize(includes);
+		this.excludes = tokenize(excludes);
+		for (String defaultExclude : DirectoryScanner.getDefaultExcludes()) {
+			this.excludes.add(split(defaultExclude));
+		}
+		this.searchRootDepths = new int[this.includes.size()];
+		for (int i = 0; i < this.includes.size(); i++) {
+			String[] tokens = this.includes.get(i);
+			searchRootDepths[i] = searchRootDepth(tokens);
+			if (subtrees && (tokens.length == 0 || !"**".equals(tokens[tokens.length - 1]))) {
+				tokens = Arrays.copyOf(tokens, tokens.length + 1);
+				tokens[tokens.length - 1] = "**";
+				this.includes.set(i, tokens);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the file at the relative path, given as segments,
+	 * matches an include pattern and no exclude pattern.
+	 */
+	public boolean matches(String[] path) {
+		return findInclude(path) >= 0;
+	}
+
+	/**
+	 * Returns the index of the first include pattern matching the file at the
+	 * relative path, given as segments, or -1 if none matches or an exclude
+	 * pattern matches.
+	 */
+	public int findInclude(String[] path) {
+		compile();
+		for (int i = 0; i < includes.size(); i++) {
+			String[] tokens = includes.get(i);
+			if (match(tokens, includePatterns.get(i), 0, path, 0, tokens.length, false)) {
+				return matchesAny(excludePatterns, excludes, path, false) ? -1 : i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of leading segments of a matching path which lie
+	 * above the search root of the include pattern: the literal directories
+	 * before the first wildcard, or the parent directory of a pattern without
+	 * wildcards. The rest of the path is the path below the search root.
+	 */
+	public int getSearchRootDepth(int include) {
+		return searchRootDepths[include];
+	}
+
+	private static int searchRootDepth(String[] tokens) {
+		for (int i = 0; i < tokens.length; i++) {
+			if (tokens[i].indexOf('*') >= 0 || tokens[i].indexOf('?') >= 0) {
+				return i;
+			}
+		}
+		return Math.max(0, tokens.length - 1);
+	}
+
+	/**
+	 * Returns true if the directory at the relative path, given as segments,
+	 * may contain matching files, that is some include pattern could match
+	 * below it and no exclude pattern excludes its whole content.
+	 */
+	public boolean mayContainMatches(String[] dir) {
+		compile();
+		if (!matchesAny(includePatterns, includes, dir, true)) {
+			return false;
+		}
+		for (int i = 0; i < excludes.size(); i++) {
+			String[] tokens = excludes.get(i);
+			// a pattern ending with ** excludes everything below what its start matches
+			if (tokens.length > 0 && "**".equals(tokens[tokens.length - 1])
+					&& match(tokens, excludePatterns.get(i), 0, dir, 0, tokens.length - 1, false)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean matchesAny(List<Pattern[]> patterns, List<String[]> tokens, String[] path,
+			boolean prefix) {
+		for (int i = 0; i < tokens.size(); i++) {
+			String[] t = tokens.get(i);
+			if (match(t, patterns.get(i), 0, path, 0, t.length, prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Matches the tokens up to the end index against the path. In prefix
+	 * mode, a path which runs out before the tokens matches, since deeper
+	 * paths could still match.
+	 */
+	private static boolean match(String[] tokens, Pattern[] patterns, int ti, String[] path, int pi, int end,
+			boolean prefix) {
+		while (true) {
+			if (ti == end) {
+				return pi == path.length;
+			}
+			if (pi == path.length) {
+				if (prefix) {
+					return true;
+				}
+				for (int i = ti; i < end; i++) {
+					if (!"**".equals(tokens[i])) {
+						return false;
+					}
+				}
+				return true;
+			}
+			if ("**".equals(tokens[ti])) {
+				// zero directories, or one more directory and try again
+				if (match(tokens, patterns, ti + 1, path, pi, end, prefix)) {
+					return true;
+				}
+				pi++;
+				continue;
+			}
+			if (!matchSegment(tokens[ti], patterns[ti], path[pi])) {
+				return false;
+			}
+			ti++;
+			pi++;
+		}
+	}
+
+	private static boolean matchSegment(String token, Pattern pattern, String segment) {
+		return pattern == null ? token.equals(segment) : pattern.matcher(segment).matches();
+	}
+
+	private void compile() {
+		if (includePatterns == null) {
+			excludePatterns = compile(excludes);
+			includePatterns = compile(includes);
+		}
+	}
+
+	private static List<Pattern[]> compile(List<String[]> patterns) {
+		List<Pattern[]> compiled = new ArrayList<>(patterns.size());
+		for (String[] tokens : patterns) {
+			Pattern[] segments = new Pattern[tokens.length];
+			for (int i = 0; i < tokens.length; i++) {
+				if (tokens[i].indexOf('*') >= 0 || tokens[i].indexOf('?') >= 0) {
+					segments[i] = Pattern.compile(toRegex(tokens[i]));
+				}
+			}
+			compiled.add(segments);
+		}
+		return compiled;
+	}
+
+	private static String toRegex(String token) {
+		StringBuilder regex = new StringBuilder();
+		StringBuilder literal = new StringBuilder();
+		for (char c : token.toCharArray()) {
+			if (c == '*' || c == '?') {
+				if (literal.length() > 0) {
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				regex.append(c == '*' ? ".*" : ".");
+			} else {
+				literal.append(c);
+			}
+		}
+		if (literal.length() > 0) {
+			regex.append(Pattern.quote(literal.toString()));
+		}
+		return regex.toString();
+	}
+
+	private static List<String[]> tokenize(String patterns) {
+		List<String[]> result = new ArrayList<>();
+		if (patterns == null) {
+			return result;
+		}
+		for (String pattern : patterns.split(",")) {
+			pattern = pattern.trim();
+			if (!pattern.isEmpty()) {
+				result.add(split(pattern));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Splits a pattern into segments the way Ant does: either separator is
+	 * accepted and a trailing separator stands for everything below.
+	 */
+	static String[] split(String pattern) {
+		String normalized = pattern.replace('\\', '/');
+		if (normalized.endsWith("/")) {
+			normalized += "**";
+		}
+		List<String> tokens = new ArrayList<>(Arrays.asList(normalized.split("/")));
+		tokens.removeIf(token -> token.isEmpty() || ".".equals(token));
+		return tokens.toArray(new String[tokens.size()]);
+	}
+}
@@ -0,0 +1,174 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Gzip input stream which decodes every member of a multi-member stream,
+ * such as the one written by {@link ParallelGzipOutputStream}. Unlike
+ * {@link java.util.zip.GZIPInputStream} it does not ask the source for
+ * {@link InputStream#available()} at the end of a member, which stops early
+ * on network streams (JDK-7036144): members are read until the source itself
+ * reaches its end, and a truncated member is an error.
+ */
+class GzipMembersInputStream extends InputStream {
+
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private final InputStream in;
+	private final byte[] buffer;
+	private final Inflater inflater = new Inflater(true);
+	private final CRC32 crc = new CRC32();
+	private int position;
+	private int limit;
+	private boolean inMember;
+	private boolean eof;
+	private long members;
+
+	GzipMembersInputStream(InputStream in, int size) {
+		this.in = in;
+		this.buffer = new byte[size];
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		while (!eof) {
+			if (!inMember) {
+				if (members > 0 && !fill()) {
+					eof = true;
+					break;
+				}
+				readHeader();
+			}
+			int n = inflate(b, off, len);
+			if (inflater.finished()) {
+				position = limit - inflater.getRemaining();
+				readTrailer();
+			}
+			if (n > 0) {
+				return n;
+			}
+		}
+		return -1;
+	}
+
+	private int inflate(byte[] b, int off, int len) throws IOException {
+		if (inflater.needsInput()) {
+			if (!fill()) {
+				throw new EOFException("Unexpected end of gzip member " + (members + 1));
+			}
+			inflater.setInput(buffer, position, limit - position);
+			position = limit;
+		}
+		try {
+			int n = inflater.inflate(b, off, len);
+			if (inflater.needsDictionary()) {
+				throw new ZipException("Corrupt gzip member " + (members + 1) + ": preset dictionary");
+			}
+			crc.update(b, off, n);
+			return n;
+		} catch (DataFormatException e) {
+			throw new ZipException("Corrupt gzip member " + (members + 1) + ": " + e.getMessage());
+		}
+	}
+
+	private void readHeader() throws IOException {
+		if (readByte() != 0x1f || readByte() != 0x8b) {
+			throw new ZipException("Not in gzip format at member " + (members + 1));
+		}
+		if (readByte() != 8) {
+			throw new ZipException("Unsupported compression method at member " + (members + 1));
+		}
+		int flags = readByte();
+		// modification time, extra flags and operating system
+		skip(6);
+		if ((flags & FEXTRA) != 0) {
+			skip(readByte() | readByte() << 8);
+		}
+		if ((flags & FNAME) != 0) {
+			while (readByte() != 0) {
+				// skip the name
+			}
+		}
+		if ((flags & FCOMMENT) != 0) {
+			while (readByte() != 0) {
+				// skip the comment
+			}
+		}
+		if ((flags & FHCRC) != 0) {
+			skip(2);
+		}
+		inflater.reset();
+		crc.reset();
+		inMember = true;
+	}
+
+	private void readTrailer() throws IOException {
+		long expectedCrc = readInt();
+		long expectedSize = readInt();
+		if (expectedCrc != crc.getValue()) {
+			throw new ZipException("Corrupt gzip member " + (members + 1) + ": CRC mismatch");
+		}
+		if (expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+			throw new ZipException("Corrupt gzip member " + (members + 1) + ": size mismatch");
+		}
+		members++;
+		inMember = false;
+	}
+
+	private long readInt() throws IOException {
+		return (readByte() | readByte() << 8 | readByte() << 16 | (long) readByte() << 24) & 0xffffffffL;
+	}
+
+	private int readByte() throws IOException {
+		if (!fill()) {
+			throw new EOFException("Unexpected end of gzip member " + (members + 1));
+		}
+		return buffer[position++] & 0xff;
+	}
+
+	private void skip(int n) throws IOException {
+		for (int i = 0; i < n; i++) {
+			readByte();
+		}
+	}
+
+	/**
+	 * Makes sure the buffer holds at least one byte, returning false at the
+	 * end of the source.
+	 */
+	private boolean fill() throws IOException {
+		while (position == limit) {
+			int n = in.read(buffer, 0, buffer.length);
+			if (n == -1) {
+				return false;
+			}
+			position = 0;
+			limit = n;
+		}
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		inflater.end();
+		in.close();
+	}
+}
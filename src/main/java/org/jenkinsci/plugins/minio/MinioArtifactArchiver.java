@@ -0,0 +1,86 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.FilePath.FileCallable;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Uploads the artifacts of a build from the workspace of the agent below the
+ * prefix of the build, concurrently with an {@link UploadScheduler}, in a
+ * single remoting call.
+ */
+public class MinioArtifactArchiver implements FileCallable<UploadSummary> {
+	private static final long serialVersionUID = 1;
+
+	private final MinioClientFactory minioClientFactory;
+	private final String bucketName;
+
+	/**
+	 * Object name of the root directory of the artifacts.
+	 */
+	private final String key;
+
+	/**
+	 * Relative paths of the artifacts, mapped to the paths of their files in
+	 * the workspace.
+	 */
+	private final TreeMap<String, String> artifacts;
+
+	private final int concurrency;
+
+	/**
+	 * TaskListener listener needed for reading exceptions.
+	 */
+	private final TaskListener listener;
+
+	public MinioArtifactArchiver(MinioClientFactory minioClientFactory, String bucketName, String key,
+			Map<String, String> artifacts, int concurrency, TaskListener listener) {
+		this.minioClientFactory = minioClientFactory;
+		this.bucketName = bucketName;
+		this.key = key;
+		this.artifacts = new TreeMap<>(artifacts);
+		this.concurrency = concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+		this.listener = listener;
+	}
+
+	@Override
+	public void checkRoles(RoleChecker checker) throws SecurityException {
+		// not implemented
+	}
+
+	/**
+	 * invoke uploads every artifact, counting the failed ones in the summary.
+	 */
+	@Override
+	public UploadSummary invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		final UploadSummary summary = new UploadSummary();
+		final ObjectUploader uploader = new ObjectUploader(minioClientFactory, bucketName,
+				MultipartUploader.DEFAULT_PART_SIZE, concurrency);
+		final UploadProgress progress = new UploadProgress(listener.getLogger(), bucketName, summary);
+		progress.start();
+		try (UploadScheduler scheduler = new UploadScheduler(uploader, concurrency)) {
+			for (Map.Entry<String, String> artifact : artifacts.entrySet()) {
+				File file = new File(ws, artifact.getValue());
+				UploadPlan.Entry entry = new UploadPlan.Entry(artifact.getValue(),
+						key + "/" + artifact.getKey(), file.length(), file.lastModified());
+				progress.planned(entry);
+				scheduler.submit(new UploadScheduler.Task(file, entry), progress);
+			}
+			progress.planComplete();
+			scheduler.awaitAll();
+		} finally {
+			progress.close();
+		}
+		summary.setBucketMissing(uploader.isBucketMissing());
+		summary.setElapsedMillis(System.currentTimeMillis() - start);
+		return summary;
+	}
+}
@@ -0,0 +1,118 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.BuildListener;
+import hudson.model.Run;
+import jenkins.model.ArtifactManager;
+import jenkins.model.Jenkins;
+import jenkins.util.VirtualFile;
+
+/**
+ * Artifacts of a build stored below a prefix of a bucket. The files are
+ * uploaded by the agent of the workspace with an {@link MinioArtifactArchiver}
+ * and never go through the controller, and they are browsed through a
+ * {@link MinioVirtualFile} listing the bucket one directory at a time. The
+ * server and the credentials are those of the global configuration at the
+ * time of use, so they are not stored with the build.
+ */
+public final class MinioArtifactManager extends ArtifactManager {
+
+	private transient Run<?, ?> build;
+
+	/**
+	 * Bucket name storing the artifacts.
+	 */
+	private final String bucketName;
+
+	/**
+	 * Object name of the root directory of the artifacts, without trailing
+	 * separator.
+	 */
+	private final String key;
+
+	private final int concurrency;
+
+	public MinioArtifactManager(Run<?, ?> build, String bucketName, String key, int concurrency) {
+		this.build = build;
+		this.bucketName = bucketName;
+		this.key = key;
+		this.concurrency = concurrency;
+	}
+
+	@Override
+	public void onLoad(Run<?, ?> build) {
+		this.build = build;
+	}
+
+	private static MinioUploader.DescriptorImpl config() {
+		return Jenkins.getInstance().getDescriptorByType(MinioUploader.DescriptorImpl.class);
+	}
+
+	/**
+	 * Uploads the artifacts from the agent of the workspace.
+	 *
+	 * @param artifacts
+	 *            Relative paths of the artifacts, mapped to the paths of
+	 *            their files in the workspace
+	 */
+	@Override
+	public void archive(FilePath workspace, Launcher launcher, BuildListener listener, Map<String, String> artifacts)
+			throws IOException, InterruptedException {
+		MinioUploader.DescriptorImpl config = config();
+		UploadSummary summary = workspace.act(new MinioArtifactArchiver(config.createClientFactory(), bucketName,
+				key, artifacts, concurrency, listener));
+		listener.getLogger().println("Archived artifacts to Minio bucket " + bucketName + ": " + summary);
+		if (summary.isBucketMissing()) {
+			// the bucket was created again by the agent, check it next time
+			BucketCache.invalidate(config.getServerURL(), bucketName);
+		}
+		if (summary.getFailedFiles() > 0) {
+			List<String> failures = summary.getFailures();
+			int unnamed = summary.getFailedFiles() - failures.size();
+			throw new AbortException("Failed to archive " + StringUtils.join(failures, ", ")
+					+ (unnamed > 0 ? " and " + unnamed + " more" : ""));
+		}
+	}
+
+	/**
+	 * Deletes the objects of the artifacts. A bucket which is gone has no
+	 * artifacts left to delete.
+	 *
+	 * @return Returns true if there was any artifact
+	 */
+	@Override
+	public boolean delete() throws IOException, InterruptedException {
+		MinioRestClient client = config().createClientFactory().createRestClient();
+		boolean deleted = false;
+		String token = null;
+		try {
+			do {
+				ObjectListing listing = client.listObjects(bucketName, key + "/", null, token);
+				for (ObjectListing.Item item : listing.getItems()) {
+					client.deleteObject(bucketName, item.getObjectName());
+					deleted = true;
+				}
+				token = listing.getNextToken();
+			} while (token != null);
+		} catch (MinioRestException e) {
+			if (e.getStatus() != HttpURLConnection.HTTP_NOT_FOUND) {
+				throw e;
+			}
+		}
+		return deleted;
+	}
+
+	@Override
+	public VirtualFile root() {
+		return new MinioVirtualFile(config().createClientFactory(), bucketName, key);
+	}
+}
@@ -0,0 +1,82 @@
+package org.jenkinsci.plugins.minio;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import hudson.Extension;
+import hudson.model.Run;
+import jenkins.model.ArtifactManager;
+import jenkins.model.ArtifactManagerFactory;
+import jenkins.model.ArtifactManagerFactoryDescriptor;
+
+/**
+ * Stores the artifacts archived by the builds in a bucket of the Minio server
+ * of the global configuration, instead of the build directories of the
+ * controller. Enabled in the artifact management section of the global
+ * configuration; builds archived before keep their artifacts where they are.
+ */
+public final class MinioArtifactManagerFactory extends ArtifactManagerFactory {
+
+	/**
+	 * Bucket name to store the artifacts.
+	 */
+	private final String bucketName;
+
+	/**
+	 * Prefix to be added to the object names of the artifacts.
+	 */
+	private String objectNamePrefix;
+
+	/**
+	 * Number of files and parts uploaded at the same time. Zero selects the
+	 * agent default.
+	 */
+	private int concurrency;
+
+	@DataBoundConstructor
+	public MinioArtifactManagerFactory(String bucketName) {
+		this.bucketName = bucketName;
+	}
+
+	public String getBucketName() {
+		return bucketName;
+	}
+
+	public String getObjectNamePrefix() {
+		return objectNamePrefix;
+	}
+
+	@DataBoundSetter
+	public void setObjectNamePrefix(String objectNamePrefix) {
+		this.objectNamePrefix = objectNamePrefix;
+	}
+
+	public int getConcurrency() {
+		return concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+	}
+
+	@DataBoundSetter
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Returns the manager of the build, whose artifacts are stored below
+	 * <tt>prefix/job/number/artifacts/</tt>.
+	 */
+	@Override
+	public ArtifactManager managerFor(Run<?, ?> build) {
+		String prefix = objectNamePrefix == null || objectNamePrefix.isEmpty() ? "" : objectNamePrefix + "/";
+		return new MinioArtifactManager(build, bucketName,
+				prefix + build.getParent().getFullName() + "/" + build.getNumber() + "/artifacts", getConcurrency());
+	}
+
+	@Extension
+	public static final class DescriptorImpl extends ArtifactManagerFactoryDescriptor {
+
+		@Override
+		public String getDisplayName() {
+			return "Minio artifact storage";
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package org.jenkinsci.plugins.minio;
+
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import com.google.inject.Inject;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+
+/**
+ * Pipeline step which waits for an upload started by {@link MinioUploadStep}
+ * and reports it like {@link MinioUploader} does: the build becomes unstable
+ * if files failed. The step holds no thread while it waits, and returns the
+ * summary of the upload.
+ */
+public final class MinioAwaitStep extends AbstractStepImpl {
+
+	private final String handle;
+
+	@DataBoundConstructor
+	public MinioAwaitStep(String handle) {
+		this.handle = handle;
+	}
+
+	public String getHandle() {
+		return handle;
+	}
+
+	public static class Execution extends AsyncStepExecution {
+		private static final long serialVersionUID = 1L;
+
+		@Inject
+		private transient MinioAwaitStep step;
+
+		@StepContextParameter
+		private transient Run<?, ?> run;
+
+		@StepContextParameter
+		private transient TaskListener listener;
+
+		private String handle;
+
+		@Override
+		public boolean start() throws Exception {
+			handle = step.getHandle();
+			final PendingUploads.PendingUpload upload = PendingUploads.get(handle);
+			if (upload == null) {
+				throw new AbortException("No Minio upload is pending with handle " + handle);
+			}
+			upload.getResult().whenComplete((summary, failure) -> {
+				PendingUploads.remove(handle);
+				if (!claim()) {
+					// stopped meanwhile
+					return;
+				}
+				if (failure != null) {
+					getContext().onFailure(failure);
+					return;
+				}
+				MinioUploader.report(run, listener.getLogger(), upload.getServerURL(), upload.getBucketName(),
+						summary);
+				getContext().onSuccess(summary.toString());
+			});
+			return false;
+		}
+
+		@Override
+		public void stop(Throwable cause) throws Exception {
+			// fail with the cause rather than with the cancellation of the upload
+			fail(cause);
+			PendingUploads.PendingUpload upload = PendingUploads.get(handle);
+			if (upload != null) {
+				upload.cancel();
+			}
+		}
+
+		@Override
+		public void onResume() {
+			// uploads are not tracked across restarts of the controller
+			fail(new AbortException("The Minio upload " + handle + " was lost when Jenkins restarted"));
+		}
+	}
+
+	@Extension
+	public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+		public DescriptorImpl() {
+			super(Execution.class);
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "minioAwait";
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Wait for an upload to Minio server";
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.FilePath.FileCallable;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Plans the upload on the agent with an {@link UploadPlanner} and uploads every
+ * matching file in a single remoting call, so the client and the listener are
+ * sent to the agent once per build instead of once per file. The files are
+ * uploaded concurrently by an {@link UploadScheduler} as soon as the walk of
+ * the workspace finds them, through a bounded queue.
+ */
+public class MinioBatchUploader implements FileCallable<UploadSummary> {
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * Number of files found but not started yet, above which the walk waits.
+	 */
+	private static final int QUEUE_CAPACITY = 1024;
+
+	private static final long POLL_MILLIS = 100;
+
+	private final MinioClientFactory minioClientFactory;
+
+	/**
+	 * Bucket name to store the build artifacts.
+	 */
+	private final String bucketName;
+
+	/**
+	 * Resolves the matching files to object names.
+	 */
+	private final UploadPlanner planner;
+
+	private final long partSize;
+	private final int concurrency;
+
+	/**
+	 * TaskListener listener needed for reading exceptions.
+	 */
+	private final TaskListener listener;
+
+	/**
+	 * Skip files whose content did not change since the previous upload.
+	 */
+	private boolean incremental;
+
+	/**
+	 * Compression applied to compressible files.
+	 */
+	private UploadCodec codec;
+
+	/**
+	 * Print a line for every uploaded file besides the periodic progress.
+	 */
+	private boolean verbose;
+
+	/**
+	 * Create the bucket from the agent before uploading, unless it is known
+	 * to exist.
+	 */
+	private boolean createBucket;
+
+	public MinioBatchUploader(MinioClientFactory minioClientFactory, String bucketName, UploadPlanner planner,
+			long partSize, int concurrency, TaskListener listener) {
+		this.minioClientFactory = minioClientFactory;
+		this.bucketName = bucketName;
+		this.planner = planner;
+		this.partSize = partSize;
+		this.concurrency = concurrency;
+		this.listener = listener;
+	}
+
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	public void setCodec(UploadCodec codec) {
+		this.codec = codec;
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	public void setCreateBucket(boolean createBucket) {
+		this.createBucket = createBucket;
+	}
+
+	@Override
+	public void checkRoles(RoleChecker checker) throws SecurityException {
+		// not implemented
+	}
+
+	/**
+	 * invoke finds the files matching the patterns in the workspace and
+	 * uploads them with one set of clients.
+	 */
+	@Override
+	public UploadSummary invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		final UploadSummary summary = new UploadSummary();
+		if (createBucket) {
+			BucketCache.ensureBucket(minioClientFactory.createRestClient(), bucketName);
+		}
+		final ObjectUploader uploader = new ObjectUploader(minioClientFactory, bucketName, partSize, concurrency);
+		final UploadManifest manifest = incremental ? UploadManifest.forWorkspace(ws) : null;
+		uploader.setManifest(manifest);
+		uploader.setCodec(codec);
+
+		// Count the outcome of each file as it finishes, and print it now and
+		// then, so that nothing is kept or written per file
+		final UploadProgress progress = new UploadProgress(listener.getLogger(), bucketName, summary);
+		progress.setVerbose(verbose);
+
+		// Find the files matching any of the patterns in a single walk, which
+		// feeds the uploads while it goes on
+		final BlockingQueue<UploadScheduler.Task> discovered = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		FutureTask<Void> discovery = new FutureTask<>(() -> {
+			planner.plan(ws, new UploadPlanner.Listener() {
+				@Override
+				public void planned(File file, UploadPlan.Entry entry) throws IOException {
+					progress.planned(entry);
+					try {
+						discovered.put(new UploadScheduler.Task(file, entry));
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException("Interrupted while queueing " + entry.getRelativePath());
+					}
+				}
+			});
+			progress.planComplete();
+			return null;
+		});
+		Thread discoveryThread = new Thread(discovery, "Minio discovery of " + ws);
+		discoveryThread.setDaemon(true);
+		discoveryThread.start();
+		progress.start();
+
+		try (UploadScheduler scheduler = new UploadScheduler(uploader, concurrency)) {
+			List<UploadScheduler.Task> batch = new ArrayList<>();
+			while (true) {
+				UploadScheduler.Task first = discovered.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					// the walk puts its last file before it is done
+					if (discovery.isDone() && discovered.isEmpty()) {
+						break;
+					}
+					continue;
+				}
+				// start what has been found so far, largest first
+				batch.add(first);
+				discovered.drainTo(batch);
+				scheduler.submitAll(batch, progress);
+				batch.clear();
+			}
+			scheduler.awaitAll();
+
+			// the files found before a failure of the walk are uploaded anyway
+			try {
+				discovery.get();
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+						: new IOException("Failed to find the files to upload", e.getCause());
+			}
+		} finally {
+			discoveryThread.interrupt();
+			progress.close();
+		}
+		if (manifest != null) {
+			manifest.save();
+		}
+		summary.setBucketMissing(uploader.isBucketMissing());
+		summary.setElapsedMillis(System.currentTimeMillis() - start);
+		return summary;
+	}
+}
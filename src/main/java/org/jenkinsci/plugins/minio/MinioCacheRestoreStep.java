@@ -0,0 +1,165 @@
+package org.jenkinsci.plugins.minio;
+
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.inject.Inject;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+
+/**
+ * Pipeline step which restores a directory of the workspace saved by
+ * {@link MinioCacheSaveStep}, falling back to the latest cache of a restore
+ * key when the lock files changed. It returns the key of the restored cache,
+ * or null on a miss:
+ *
+ * <pre>
+ * minioCacheRestore bucketName: 'cache', key: 'm2', lockFiles: '**&#47;pom.xml', restoreKeys: 'm2-', path: '.m2/repository'
+ * </pre>
+ */
+public final class MinioCacheRestoreStep extends AbstractStepImpl {
+
+	private final String bucketName;
+	private final String key;
+	private final String path;
+	private String lockFiles;
+	private String restoreKeys;
+	private int concurrency;
+	private boolean localCache;
+
+	@DataBoundConstructor
+	public MinioCacheRestoreStep(String bucketName, String key, String path) {
+		this.bucketName = bucketName;
+		this.key = key;
+		this.path = path;
+	}
+
+	public String getBucketName() {
+		return bucketName;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getLockFiles() {
+		return lockFiles;
+	}
+
+	@DataBoundSetter
+	public void setLockFiles(String lockFiles) {
+		this.lockFiles = lockFiles;
+	}
+
+	public String getRestoreKeys() {
+		return restoreKeys;
+	}
+
+	@DataBoundSetter
+	public void setRestoreKeys(String restoreKeys) {
+		this.restoreKeys = restoreKeys;
+	}
+
+	public int getConcurrency() {
+		return concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+	}
+
+	@DataBoundSetter
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public boolean isLocalCache() {
+		return localCache;
+	}
+
+	@DataBoundSetter
+	public void setLocalCache(boolean localCache) {
+		this.localCache = localCache;
+	}
+
+	public static class Execution extends AsyncStepExecution {
+		private static final long serialVersionUID = 1L;
+
+		@Inject
+		private transient MinioCacheRestoreStep step;
+
+		@StepContextParameter
+		private transient FilePath ws;
+
+		@StepContextParameter
+		private transient TaskListener listener;
+
+		private transient Future<String> remote;
+
+		@Override
+		public boolean start() throws Exception {
+			MinioUploader.DescriptorImpl config = Jenkins.getInstance()
+					.getDescriptorByType(MinioUploader.DescriptorImpl.class);
+			MinioCacheRestorer restorer = new MinioCacheRestorer(config.createClientFactory(), step.bucketName,
+					step.key, step.lockFiles, step.restoreKeys, step.path, step.getConcurrency(), listener);
+			if (step.localCache) {
+				restorer.setCacheDirectory(ObjectCache.locate(ws));
+			}
+			remote = ws.actAsync(restorer);
+			PendingUploads.watch(remote).whenComplete((restored, failure) -> {
+				if (!claim()) {
+					// stopped meanwhile
+					return;
+				}
+				if (failure != null) {
+					getContext().onFailure(failure);
+					return;
+				}
+				getContext().onSuccess(restored);
+			});
+			return false;
+		}
+
+		@Override
+		public void stop(Throwable cause) throws Exception {
+			// fail with the cause rather than with the cancellation of the call
+			fail(cause);
+			if (remote != null) {
+				remote.cancel(true);
+			}
+		}
+
+		@Override
+		public void onResume() {
+			// restores are not tracked across restarts of the controller
+			fail(new AbortException("The Minio cache restore was lost when Jenkins restarted"));
+		}
+	}
+
+	@Extension
+	public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+		public DescriptorImpl() {
+			super(Execution.class);
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "minioCacheRestore";
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Restore a directory from a Minio cache";
+		}
+	}
+}
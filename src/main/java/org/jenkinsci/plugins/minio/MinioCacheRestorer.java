@@ -0,0 +1,254 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Restores a cache saved by {@link MinioCacheSaver} into a directory of the
+ * workspace. The cache of the exact key is restored if it exists, otherwise
+ * the most recent cache whose key starts with one of the restore keys, tried
+ * in order. Its chunks are downloaded and extracted concurrently, each
+ * streamed from the server into the directory, or read through the
+ * {@link ObjectCache} of the agent if one is given.
+ */
+public class MinioCacheRestorer implements FileCallable<String> {
+	private static final long serialVersionUID = 1;
+
+	private final MinioClientFactory minioClientFactory;
+	private final String bucketName;
+	private final String key;
+	private final String lockFiles;
+
+	/**
+	 * Comma or newline separated prefixes of the keys to fall back to.
+	 */
+	private final String restoreKeys;
+
+	/**
+	 * Directory to restore, relative to the workspace.
+	 */
+	private final String path;
+
+	private final int concurrency;
+
+	/**
+	 * Directory of the {@link ObjectCache} of the agent, or null to download
+	 * every chunk.
+	 */
+	private String cacheDirectory;
+
+	/**
+	 * TaskListener listener needed for reading exceptions.
+	 */
+	private final TaskListener listener;
+
+	public MinioCacheRestorer(MinioClientFactory minioClientFactory, String bucketName, String key,
+			String lockFiles, String restoreKeys, String path, int concurrency, TaskListener listener) {
+		this.minioClientFactory = minioClientFactory;
+		this.bucketName = bucketName;
+		this.key = key;
+		this.lockFiles = lockFiles;
+		this.restoreKeys = restoreKeys != null ? restoreKeys : "";
+		this.path = path != null ? path : "";
+		this.concurrency = concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+		this.listener = listener;
+	}
+
+	public void setCacheDirectory(String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	@Override
+	public void checkRoles(RoleChecker checker) throws SecurityException {
+		// not implemented
+	}
+
+	/**
+	 * invoke returns the key of the restored cache, or null if no cache
+	 * matched. A failed restore fails the step; the directory is deleted if
+	 * the restore created it, and is otherwise left partially restored.
+	 */
+	@Override
+	public String invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		PrintStream console = listener.getLogger();
+		String resolved = CacheKey.resolve(ws, key, lockFiles, path);
+		MinioRestClient client = minioClientFactory.createRestClient();
+
+		String found = resolved;
+		Properties manifest = manifest(client, resolved);
+		for (String restoreKey : restoreKeys.split("[,\n]")) {
+			if (manifest != null) {
+				break;
+			}
+			restoreKey = restoreKey.trim();
+			if (!restoreKey.isEmpty()) {
+				found = latest(client, restoreKey);
+				manifest = found != null ? manifest(client, found) : null;
+			}
+		}
+		if (manifest == null) {
+			console.println("No cache found for key " + resolved);
+			return null;
+		}
+
+		Path root = ws.toPath().resolve(path).normalize();
+		boolean created = !Files.exists(root);
+		Files.createDirectories(root);
+		try {
+			long bytes = restore(client, found, manifest, root);
+			console.println(String.format("Restored cache %s%s: %d bytes in %d ms", found,
+					found.equals(resolved) ? "" : " for key " + resolved, bytes,
+					System.currentTimeMillis() - start));
+			return found;
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			if (created) {
+				Util.deleteRecursive(root.toFile());
+				listener.error("Failed to restore cache " + found + ", deleted " + root);
+			} else {
+				listener.error("Failed to restore cache " + found + ", " + root + " is left partially restored");
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the manifest of the cache, or null if there is none.
+	 */
+	private Properties manifest(MinioRestClient client, String cacheKey) throws IOException {
+		HttpURLConnection conn;
+		try {
+			conn = client.getObject(bucketName, CacheArchive.manifestName(cacheKey), 0, -1, null);
+		} catch (MinioRestException e) {
+			if (e.getStatus() == HttpURLConnection.HTTP_NOT_FOUND) {
+				return null;
+			}
+			throw e;
+		}
+		Properties manifest = new Properties();
+		try (InputStream in = conn.getInputStream()) {
+			manifest.load(in);
+		}
+		return manifest;
+	}
+
+	/**
+	 * Returns the key of the most recent cache whose key starts with the
+	 * prefix, or null if there is none.
+	 */
+	private String latest(MinioRestClient client, String prefix) throws IOException {
+		String suffix = "/" + CacheArchive.MANIFEST;
+		ObjectListing.Item latest = null;
+		String token = null;
+		do {
+			ObjectListing listing;
+			try {
+				listing = client.listObjects(bucketName, prefix, null, token);
+			} catch (MinioRestException e) {
+				if (e.getStatus() == HttpURLConnection.HTTP_NOT_FOUND) {
+					return null;
+				}
+				throw e;
+			}
+			for (ObjectListing.Item item : listing.getItems()) {
+				if (item.getObjectName().endsWith(suffix)
+						&& (latest == null || item.getLastModified() > latest.getLastModified())) {
+					latest = item;
+				}
+			}
+			token = listing.getNextToken();
+		} while (token != null);
+		if (latest == null) {
+			return null;
+		}
+		String name = latest.getObjectName();
+		return name.substring(0, name.length() - suffix.length());
+	}
+
+	/**
+	 * Downloads and extracts the chunks of the cache concurrently, and checks
+	 * that they held the entries and bytes of the manifest.
+	 *
+	 * @return Returns the number of bytes of the extracted files
+	 */
+	private long restore(final MinioRestClient client, final String cacheKey, Properties manifest, final Path root)
+			throws IOException, InterruptedException {
+		final ObjectCache cache = cacheDirectory != null ? ObjectCache.at(new File(cacheDirectory)) : null;
+		int chunks = Integer.parseInt(manifest.getProperty("chunks", "0"));
+		final AtomicInteger entries = new AtomicInteger();
+		final AtomicLong bytes = new AtomicLong();
+		final Exception[] failure = new Exception[1];
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Minio cache restore " + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			for (int i = 0; i < chunks; i++) {
+				final String objectName = CacheArchive.chunkName(cacheKey, i);
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try (InputStream in = cache != null ? cache.open(client, bucketName, objectName)
+								: client.getObject(bucketName, objectName, 0, -1, null).getInputStream()) {
+							CacheArchive.Totals totals = CacheArchive.extract(in, root);
+							entries.addAndGet(totals.getEntries());
+							bytes.addAndGet(totals.getBytes());
+						} catch (IOException | RuntimeException e) {
+							synchronized (failure) {
+								if (failure[0] == null) {
+									failure[0] = e;
+								}
+							}
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				// still restoring
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		if (failure[0] instanceof IOException) {
+			throw (IOException) failure[0];
+		}
+		if (failure[0] != null) {
+			throw new IOException("Failed to restore cache " + cacheKey, failure[0]);
+		}
+		// manifests of earlier versions may not tell them
+		String expectedEntries = manifest.getProperty("entries");
+		String expectedBytes = manifest.getProperty("bytes");
+		if (expectedEntries != null && Integer.parseInt(expectedEntries) != entries.get()
+				|| expectedBytes != null && Long.parseLong(expectedBytes) != bytes.get()) {
+			throw new IOException(String.format("Restored %d entries (%d bytes) of cache %s instead of %s (%s bytes)",
+					entries.get(), bytes.get(), cacheKey, expectedEntries, expectedBytes));
+		}
+		return bytes.get();
+	}
+}
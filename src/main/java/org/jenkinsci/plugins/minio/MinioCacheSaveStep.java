@@ -0,0 +1,154 @@
+package org.jenkinsci.plugins.minio;
+
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.inject.Inject;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+
+/**
+ * Pipeline step which saves a directory of the workspace to the bucket as a
+ * cache, under a key followed by the hash of the lock files, to be restored
+ * by {@link MinioCacheRestoreStep} in later builds:
+ *
+ * <pre>
+ * minioCacheSave bucketName: 'cache', key: 'm2', lockFiles: '**&#47;pom.xml', path: '.m2/repository'
+ * </pre>
+ */
+public final class MinioCacheSaveStep extends AbstractStepImpl {
+
+	private final String bucketName;
+	private final String key;
+	private final String path;
+	private String lockFiles;
+	private int partSize;
+	private int concurrency;
+
+	@DataBoundConstructor
+	public MinioCacheSaveStep(String bucketName, String key, String path) {
+		this.bucketName = bucketName;
+		this.key = key;
+		this.path = path;
+	}
+
+	public String getBucketName() {
+		return bucketName;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getLockFiles() {
+		return lockFiles;
+	}
+
+	@DataBoundSetter
+	public void setLockFiles(String lockFiles) {
+		this.lockFiles = lockFiles;
+	}
+
+	public int getPartSize() {
+		return partSize > 0 ? partSize : (int) (MultipartUploader.DEFAULT_PART_SIZE / (1024 * 1024));
+	}
+
+	@DataBoundSetter
+	public void setPartSize(int partSize) {
+		this.partSize = partSize;
+	}
+
+	public int getConcurrency() {
+		return concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+	}
+
+	@DataBoundSetter
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public static class Execution extends AsyncStepExecution {
+		private static final long serialVersionUID = 1L;
+
+		@Inject
+		private transient MinioCacheSaveStep step;
+
+		@StepContextParameter
+		private transient FilePath ws;
+
+		@StepContextParameter
+		private transient TaskListener listener;
+
+		private transient Future<String> remote;
+
+		@Override
+		public boolean start() throws Exception {
+			MinioUploader.DescriptorImpl config = Jenkins.getInstance()
+					.getDescriptorByType(MinioUploader.DescriptorImpl.class);
+			MinioClientFactory minioClientFactory = config.createClientFactory();
+
+			MinioCacheSaver saver = new MinioCacheSaver(minioClientFactory, step.bucketName, step.key,
+					step.lockFiles, step.path, step.getPartSize() * 1024L * 1024L, step.getConcurrency());
+			remote = ws.actAsync(saver);
+			PendingUploads.watch(remote).whenComplete((line, failure) -> {
+				if (!claim()) {
+					// stopped meanwhile
+					return;
+				}
+				if (failure != null) {
+					getContext().onFailure(failure);
+					return;
+				}
+				listener.getLogger().println(line);
+				getContext().onSuccess(line);
+			});
+			return false;
+		}
+
+		@Override
+		public void stop(Throwable cause) throws Exception {
+			// fail with the cause rather than with the cancellation of the call
+			fail(cause);
+			if (remote != null) {
+				remote.cancel(true);
+			}
+		}
+
+		@Override
+		public void onResume() {
+			// saves are not tracked across restarts of the controller
+			fail(new AbortException("The Minio cache save was lost when Jenkins restarted"));
+		}
+	}
+
+	@Extension
+	public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+		public DescriptorImpl() {
+			super(Execution.class);
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "minioCacheSave";
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Save a directory to a Minio cache";
+		}
+	}
+}
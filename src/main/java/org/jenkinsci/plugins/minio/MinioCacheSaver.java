@@ -0,0 +1,164 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.AbortException;
+import hudson.FilePath.FileCallable;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Saves a directory of the workspace as a cache, under a key made of a name
+ * and of the hash of the lock files. The chunks of the {@link CacheArchive}
+ * are compressed and uploaded concurrently, and the manifest is uploaded once
+ * they all are, so that a partial cache is never restored. A cache is never
+ * replaced: nothing is uploaded if its key already exists.
+ */
+public class MinioCacheSaver implements FileCallable<String> {
+	private static final long serialVersionUID = 1;
+
+	private final MinioClientFactory minioClientFactory;
+	private final String bucketName;
+	private final String key;
+	private final String lockFiles;
+
+	/**
+	 * Directory to cache, relative to the workspace.
+	 */
+	private final String path;
+
+	private final long partSize;
+	private final int concurrency;
+
+	public MinioCacheSaver(MinioClientFactory minioClientFactory, String bucketName, String key, String lockFiles,
+			String path, long partSize, int concurrency) {
+		this.minioClientFactory = minioClientFactory;
+		this.bucketName = bucketName;
+		this.key = key;
+		this.lockFiles = lockFiles;
+		this.path = path != null ? path : "";
+		this.partSize = partSize > 0 ? partSize : MultipartUploader.DEFAULT_PART_SIZE;
+		this.concurrency = concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+	}
+
+	@Override
+	public void checkRoles(RoleChecker checker) throws SecurityException {
+		// not implemented
+	}
+
+	/**
+	 * invoke returns a line describing what was saved.
+	 */
+	@Override
+	public String invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		final String resolved = CacheKey.resolve(ws, key, lockFiles, path);
+		final MinioRestClient client = minioClientFactory.createRestClient();
+		// the step leaves the bucket to the agent, so that it does not wait
+		BucketCache.ensureBucket(client, bucketName);
+		if (client.headObject(bucketName, CacheArchive.manifestName(resolved), "Content-Length") != null) {
+			return "Cache " + resolved + " already exists, not saved again";
+		}
+		Path root = ws.toPath().resolve(path).normalize();
+		if (!Files.isDirectory(root)) {
+			throw new AbortException("No directory to cache at " + root);
+		}
+
+		final List<List<CacheArchive.Entry>> chunks = CacheArchive.chunks(root);
+		final MultipartUploader multipart = new MultipartUploader(client, partSize, concurrency);
+		final AtomicLong compressed = new AtomicLong();
+		final Exception[] failure = new Exception[1];
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Minio cache save " + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			for (int i = 0; i < chunks.size(); i++) {
+				final int chunk = i;
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							compressed.addAndGet(save(client, multipart, CacheArchive.chunkName(resolved, chunk),
+									chunks.get(chunk)));
+						} catch (IOException | InterruptedException | RuntimeException e) {
+							synchronized (failure) {
+								if (failure[0] == null) {
+									failure[0] = e;
+								}
+							}
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				// still saving
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		if (failure[0] != null) {
+			throw new IOException("Failed to save cache " + resolved, failure[0]);
+		}
+
+		int entries = 0;
+		long bytes = 0;
+		for (List<CacheArchive.Entry> chunk : chunks) {
+			for (CacheArchive.Entry entry : chunk) {
+				entries++;
+				bytes += entry.getSize();
+			}
+		}
+		String manifest = "chunks=" + chunks.size() + "\nentries=" + entries + "\nbytes=" + bytes + "\n";
+		client.putObject(bucketName, CacheArchive.manifestName(resolved),
+				ByteBuffer.wrap(manifest.getBytes(StandardCharsets.UTF_8)), Collections.<String, String>emptyMap());
+		return String.format("Saved cache %s: %d entries (%d bytes, %d compressed) in %d chunks in %d ms", resolved,
+				entries, bytes, compressed.get(), chunks.size(), System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Compresses a chunk into a temporary file and uploads it.
+	 *
+	 * @return Returns the size of the compressed chunk
+	 */
+	private long save(MinioRestClient client, MultipartUploader multipart, String objectName,
+			List<CacheArchive.Entry> chunk) throws IOException, InterruptedException {
+		Path tmp = Files.createTempFile("minio-cache", ".tgz");
+		try {
+			try (OutputStream out = Files.newOutputStream(tmp)) {
+				CacheArchive.write(chunk, out);
+			}
+			long size = Files.size(tmp);
+			if (multipart.accepts(size)) {
+				multipart.upload(tmp.toFile(), bucketName, objectName, Collections.<String, String>emptyMap());
+			} else {
+				client.putObject(bucketName, objectName, tmp.toFile(), Collections.<String, String>emptyMap());
+			}
+			return size;
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package org.jenkinsci.plugins.minio;
 
 import java.io.Serializable;
+import java.net.MalformedURLException;
 
 import io.minio.MinioClient;
 import io.minio.errors.InvalidEndpointException;
@@ -13,22 +14,33 @@ public final class MinioClientFactory implements Serializable {
 	private String serverURL;
 	private String accessKey;
 	private String secretKey;
+	private String region;
 
 	private transient MinioClient minioClient;
 
-	public MinioClientFactory(String serverURL, String accessKey, String secretKey) {
+	public MinioClientFactory(String serverURL, String accessKey, String secretKey, String region) {
 		this.serverURL = serverURL;
 		this.accessKey = accessKey;
 		this.secretKey = secretKey;
+		this.region = region;
 	}
 
 	/**
-	 * This method creates and returns a MinioClient if not already created.
+	 * @return Returns the URL of the server, which names the credentials
+	 *         without holding them
+	 */
+	String getServerURL() {
+		return serverURL;
+	}
+
+	/**
+	 * This method returns the MinioClient shared by every factory of the same
+	 * server in this JVM, creating it if not already created.
 	 */
 	public MinioClient createClient() {
 		if (minioClient == null) {
 			try {
-				minioClient = new MinioClient(serverURL, accessKey, secretKey);
+				minioClient = MinioClientRegistry.getClient(serverURL, accessKey, secretKey, region);
 			} catch (InvalidEndpointException e) {
 				// Print the stack if invalid endpoint found
 				e.printStackTrace();
@@ -39,4 +51,12 @@ public final class MinioClientFactory implements Serializable {
 		}
 		return minioClient;
 	}
+
+	/**
+	 * This method creates a client for the REST requests not covered by the
+	 * Minio SDK, such as the steps of a multipart upload.
+	 */
+	public MinioRestClient createRestClient() throws MalformedURLException {
+		return MinioClientRegistry.getRestClient(serverURL, accessKey, secretKey, region);
+	}
 }
@@ -0,0 +1,118 @@
+package org.jenkinsci.plugins.minio;
+
+import io.minio.MinioClient;
+import io.minio.errors.InvalidEndpointException;
+import io.minio.errors.InvalidPortException;
+
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide registry of Minio clients, on the controller and on each
+ * agent. Clients are keyed by endpoint and a fingerprint of the credentials,
+ * so every build using the same server shares one client and its connection
+ * pool instead of opening new connections and TLS sessions. Clients which
+ * have not been used for a while are evicted.
+ */
+public final class MinioClientRegistry {
+
+	/**
+	 * Time after which an unused client is evicted.
+	 */
+	static final long IDLE_TIMEOUT = Long.getLong(MinioClientRegistry.class.getName() + ".idleTimeoutMillis",
+			TimeUnit.MINUTES.toMillis(10));
+
+	private static final ConcurrentMap<String, Entry> CLIENTS = new ConcurrentHashMap<>();
+
+	private MinioClientRegistry() {
+	}
+
+	/**
+	 * Returns the shared client of the server, creating it if needed.
+	 */
+	public static MinioClient getClient(String serverURL, String accessKey, String secretKey, String region)
+			throws InvalidEndpointException, InvalidPortException {
+		Entry entry = entry(serverURL, accessKey, secretKey, region);
+		synchronized (entry) {
+			if (entry.client == null) {
+				entry.client = region != null && !region.trim().isEmpty()
+						? new MinioClient(serverURL, accessKey, secretKey, region.trim())
+						: new MinioClient(serverURL, accessKey, secretKey);
+			}
+			return entry.client;
+		}
+	}
+
+	/**
+	 * Returns the shared REST client of the server, creating it if needed.
+	 */
+	public static MinioRestClient getRestClient(String serverURL, String accessKey, String secretKey,
+			String region) throws MalformedURLException {
+		Entry entry = entry(serverURL, accessKey, secretKey, region);
+		synchronized (entry) {
+			if (entry.restClient == null) {
+				entry.restClient = new MinioRestClient(serverURL, accessKey, secretKey, region);
+			}
+			return entry.restClient;
+		}
+	}
+
+	/**
+	 * Drops every client, called when the global configuration changes.
+	 */
+	public static void invalidate() {
+		CLIENTS.clear();
+	}
+
+	private static Entry entry(String serverURL, String accessKey, String secretKey, String region) {
+		final long now = System.currentTimeMillis();
+		evictIdle(now);
+		final String key = key(serverURL, accessKey, secretKey) + '@' + region;
+		Entry entry = CLIENTS.get(key);
+		if (entry == null) {
+			Entry created = new Entry();
+			entry = CLIENTS.putIfAbsent(key, created);
+			if (entry == null) {
+				entry = created;
+			}
+		}
+		entry.lastUsed = now;
+		return entry;
+	}
+
+	private static void evictIdle(long now) {
+		for (Iterator<Entry> it = CLIENTS.values().iterator(); it.hasNext();) {
+			if (now - it.next().lastUsed > IDLE_TIMEOUT) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the registry key of a server, which contains a fingerprint of
+	 * the credentials rather than the credentials themselves.
+	 */
+	static String key(String serverURL, String accessKey, String secretKey) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(String.valueOf(accessKey).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(String.valueOf(secretKey).getBytes(StandardCharsets.UTF_8));
+			return serverURL + '#' + MinioRestClient.hex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class Entry {
+		private MinioClient client;
+		private MinioRestClient restClient;
+		private volatile long lastUsed = System.currentTimeMillis();
+	}
+}
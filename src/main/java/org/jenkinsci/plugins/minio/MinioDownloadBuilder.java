@@ -0,0 +1,170 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.BuildStepMonitor;
+import hudson.tasks.Builder;
+import jenkins.model.Jenkins;
+import jenkins.tasks.SimpleBuildStep;
+
+/**
+ * Build step which downloads the objects of a bucket below a prefix into the
+ * workspace, from the Minio server of the global configuration of
+ * {@link MinioUploader}.
+ */
+public final class MinioDownloadBuilder extends Builder implements SimpleBuildStep {
+
+	static final String DISPLAY_NAME = "Download build artifacts from Minio server";
+
+	/**
+	 * Bucket name to download the objects from.
+	 */
+	public String bucketName;
+
+	/**
+	 * Prefix of the objects to download. Can contain macros.
+	 */
+	public String objectNamePrefix;
+
+	/**
+	 * Directory relative to the workspace root receiving the objects. Can
+	 * contain macros.
+	 */
+	public String targetDirectory;
+
+	/**
+	 * Size in MiB of the ranges of a large object fetched in parallel. Zero
+	 * selects the default.
+	 */
+	private int partSize;
+
+	/**
+	 * Number of ranges fetched at the same time. Zero selects the agent
+	 * default.
+	 */
+	private int concurrency;
+
+	/**
+	 * Take the objects from the cache of the agent when it holds them.
+	 */
+	private boolean localCache;
+
+	@DataBoundConstructor
+	public MinioDownloadBuilder(String bucketName, String objectNamePrefix, String targetDirectory) {
+		this.bucketName = bucketName;
+		this.objectNamePrefix = objectNamePrefix;
+		this.targetDirectory = targetDirectory;
+	}
+
+	public int getPartSize() {
+		return partSize > 0 ? partSize : (int) (MultipartUploader.DEFAULT_PART_SIZE / (1024 * 1024));
+	}
+
+	@DataBoundSetter
+	public void setPartSize(int partSize) {
+		this.partSize = partSize;
+	}
+
+	public int getConcurrency() {
+		return concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+	}
+
+	@DataBoundSetter
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public boolean isLocalCache() {
+		return localCache;
+	}
+
+	@DataBoundSetter
+	public void setLocalCache(boolean localCache) {
+		this.localCache = localCache;
+	}
+
+	private static void log(final PrintStream logger, final String message) {
+		logger.println(DISPLAY_NAME + ' ' + message);
+	}
+
+	/**
+	 * Logs the summary of a download, and marks the build unstable if
+	 * objects failed.
+	 */
+	static void report(Run<?, ?> run, PrintStream console, DownloadSummary summary) {
+		log(console, summary.toString());
+		if (summary.getFailedFiles() > 0) {
+			List<String> failures = summary.getFailures();
+			int unnamed = summary.getFailedFiles() - failures.size();
+			log(console, "Failed to download " + StringUtils.join(failures, ", ")
+					+ (unnamed > 0 ? " and " + unnamed + " more" : ""));
+			run.setResult(Result.UNSTABLE);
+		}
+	}
+
+	/**
+	 * Creates the downloader of the objects with the server of the global
+	 * configuration.
+	 */
+	static MinioDownloader createDownloader(String bucketName, String prefix, String targetDirectory,
+			long partSize, int concurrency, TaskListener listener) {
+		MinioUploader.DescriptorImpl config = Jenkins.getInstance()
+				.getDescriptorByType(MinioUploader.DescriptorImpl.class);
+		return new MinioDownloader(config.createClientFactory(), bucketName, prefix, targetDirectory, partSize,
+				concurrency, listener);
+	}
+
+	@Override
+	public void perform(@Nonnull Run<?, ?> run, @Nonnull FilePath ws, @Nonnull Launcher launcher,
+			@Nonnull TaskListener listener) throws InterruptedException {
+		final PrintStream console = listener.getLogger();
+		try {
+			final Map<String, String> envVars = run.getEnvironment(listener);
+			MinioDownloader downloader = createDownloader(bucketName, Util.replaceMacro(objectNamePrefix, envVars),
+					Util.replaceMacro(targetDirectory, envVars), getPartSize() * 1024L * 1024L, getConcurrency(),
+					listener);
+			if (localCache) {
+				downloader.setCacheDirectory(ObjectCache.locate(ws));
+			}
+			report(run, console, ws.act(downloader));
+		} catch (IOException e) {
+			e.printStackTrace(listener.error("Communication error, failed to download files"));
+			run.setResult(Result.FAILURE);
+		}
+	}
+
+	@Override
+	public BuildStepMonitor getRequiredMonitorService() {
+		return BuildStepMonitor.NONE;
+	}
+
+	@Extension
+	public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+
+		public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+			return true;
+		}
+
+		public String getDisplayName() {
+			return DISPLAY_NAME;
+		}
+	}
+}
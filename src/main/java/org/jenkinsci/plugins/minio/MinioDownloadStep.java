@@ -0,0 +1,165 @@
+package org.jenkinsci.plugins.minio;
+
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.inject.Inject;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+
+/**
+ * Pipeline step which downloads the objects of a bucket below a prefix into
+ * the workspace, like {@link MinioDownloadBuilder}, without holding a thread
+ * of the controller while the agent downloads:
+ *
+ * <pre>
+ * minioDownload bucketName: 'builds', objectNamePrefix: "bundle/${version}/", targetDirectory: 'bundle'
+ * </pre>
+ */
+public final class MinioDownloadStep extends AbstractStepImpl {
+
+	private final String bucketName;
+	private String objectNamePrefix;
+	private String targetDirectory;
+	private int partSize;
+	private int concurrency;
+	private boolean localCache;
+
+	@DataBoundConstructor
+	public MinioDownloadStep(String bucketName) {
+		this.bucketName = bucketName;
+	}
+
+	public String getBucketName() {
+		return bucketName;
+	}
+
+	public String getObjectNamePrefix() {
+		return objectNamePrefix;
+	}
+
+	@DataBoundSetter
+	public void setObjectNamePrefix(String objectNamePrefix) {
+		this.objectNamePrefix = objectNamePrefix;
+	}
+
+	public String getTargetDirectory() {
+		return targetDirectory;
+	}
+
+	@DataBoundSetter
+	public void setTargetDirectory(String targetDirectory) {
+		this.targetDirectory = targetDirectory;
+	}
+
+	public int getPartSize() {
+		return partSize > 0 ? partSize : (int) (MultipartUploader.DEFAULT_PART_SIZE / (1024 * 1024));
+	}
+
+	@DataBoundSetter
+	public void setPartSize(int partSize) {
+		this.partSize = partSize;
+	}
+
+	public int getConcurrency() {
+		return concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+	}
+
+	@DataBoundSetter
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public boolean isLocalCache() {
+		return localCache;
+	}
+
+	@DataBoundSetter
+	public void setLocalCache(boolean localCache) {
+		this.localCache = localCache;
+	}
+
+	public static class Execution extends AsyncStepExecution {
+		private static final long serialVersionUID = 1L;
+
+		@Inject
+		private transient MinioDownloadStep step;
+
+		@StepContextParameter
+		private transient Run<?, ?> run;
+
+		@StepContextParameter
+		private transient FilePath ws;
+
+		@StepContextParameter
+		private transient TaskListener listener;
+
+		private transient Future<DownloadSummary> remote;
+
+		@Override
+		public boolean start() throws Exception {
+			MinioDownloader downloader = MinioDownloadBuilder.createDownloader(step.bucketName,
+					step.objectNamePrefix, step.targetDirectory, step.getPartSize() * 1024L * 1024L,
+					step.getConcurrency(), listener);
+			if (step.localCache) {
+				downloader.setCacheDirectory(ObjectCache.locate(ws));
+			}
+			remote = ws.actAsync(downloader);
+			PendingUploads.watch(remote).whenComplete((summary, failure) -> {
+				if (!claim()) {
+					// stopped meanwhile
+					return;
+				}
+				if (failure != null) {
+					getContext().onFailure(failure);
+					return;
+				}
+				MinioDownloadBuilder.report(run, listener.getLogger(), summary);
+				getContext().onSuccess(summary.toString());
+			});
+			return false;
+		}
+
+		@Override
+		public void stop(Throwable cause) throws Exception {
+			// fail with the cause rather than with the cancellation of the call
+			fail(cause);
+			if (remote != null) {
+				remote.cancel(true);
+			}
+		}
+
+		@Override
+		public void onResume() {
+			// downloads are not tracked across restarts of the controller
+			fail(new AbortException("The Minio download was lost when Jenkins restarted"));
+		}
+	}
+
+	@Extension
+	public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+		public DescriptorImpl() {
+			super(Execution.class);
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "minioDownload";
+		}
+
+		@Override
+		public String getDisplayName() {
+			return MinioDownloadBuilder.DISPLAY_NAME;
+		}
+	}
+}
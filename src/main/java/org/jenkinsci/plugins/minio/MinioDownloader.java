@@ -0,0 +1,407 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.FilePath.FileCallable;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Downloads the objects of a bucket below a prefix into a directory of the
+ * workspace, keeping their names below the prefix as relative paths. Objects
+ * are fetched concurrently; an object larger than the part size is split
+ * into ranges fetched in parallel, each written at its position into a file
+ * of the final size, which is moved in place once every range is written.
+ * With a cache directory, objects whose ETag in the listing matches their copy
+ * in the {@link ObjectCache} of the agent are taken from it instead, and
+ * downloaded objects are added to it. Objects uploaded with a
+ * {@link UploadCodec} carry a Content-Encoding; they are fetched whole and
+ * decompressed, since ranges of the compressed content cannot be decompressed
+ * on their own. Files stored as chunks by
+ * {@link DedupUploader} are assembled from the chunks listed in their recipe,
+ * fetched in parallel and checked against their hash.
+ */
+public class MinioDownloader implements FileCallable<DownloadSummary> {
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * Suffix of the files being downloaded.
+	 */
+	static final String TMP_SUFFIX = ".minio-download";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final MinioClientFactory minioClientFactory;
+	private final String bucketName;
+
+	/**
+	 * Prefix of the objects to download, with its trailing separator, or the
+	 * empty string for the whole bucket.
+	 */
+	private final String prefix;
+
+	/**
+	 * Directory of the workspace receiving the objects.
+	 */
+	private final String targetDirectory;
+
+	private final long partSize;
+	private final int concurrency;
+
+	/**
+	 * TaskListener listener needed for reading exceptions.
+	 */
+	private final TaskListener listener;
+
+	/**
+	 * Directory of the {@link ObjectCache} of the agent, or null to download
+	 * every object.
+	 */
+	private String cacheDirectory;
+
+	/**
+	 * @param prefix
+	 *            Prefix of the objects to download, as given to the upload,
+	 *            which implies the separator following it; may be null
+	 */
+	public MinioDownloader(MinioClientFactory minioClientFactory, String bucketName, String prefix,
+			String targetDirectory, long partSize, int concurrency, TaskListener listener) {
+		this.minioClientFactory = minioClientFactory;
+		this.bucketName = bucketName;
+		if (prefix == null || prefix.isEmpty()) {
+			this.prefix = "";
+		} else {
+			this.prefix = prefix.endsWith("/") ? prefix : prefix + "/";
+		}
+		this.targetDirectory = targetDirectory != null ? targetDirectory : "";
+		this.partSize = partSize > 0 ? partSize : MultipartUploader.DEFAULT_PART_SIZE;
+		this.concurrency = concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+		this.listener = listener;
+	}
+
+	public void setCacheDirectory(String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	@Override
+	public void checkRoles(RoleChecker checker) throws SecurityException {
+		// not implemented
+	}
+
+	/**
+	 * invoke lists the objects page by page and downloads them while the
+	 * listing goes on.
+	 */
+	@Override
+	public DownloadSummary invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		final DownloadSummary summary = new DownloadSummary();
+		final MinioRestClient client = minioClientFactory.createRestClient();
+		final Path target = ws.toPath().resolve(targetDirectory).normalize();
+		final ObjectCache cache = cacheDirectory != null ? ObjectCache.at(new File(cacheDirectory)) : null;
+
+		// bounds the objects listed but not downloaded yet
+		final Semaphore window = new Semaphore(2 * concurrency);
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Minio download " + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			String token = null;
+			do {
+				ObjectListing listing = client.listObjects(bucketName, prefix, null, token);
+				for (ObjectListing.Item item : listing.getItems()) {
+					String name = item.getObjectName();
+					if (name.endsWith("/") || name.startsWith(ChunkStore.PREFIX)) {
+						// folder marker, or chunk of the files of their recipes
+						continue;
+					}
+					if (ChunkStore.isRecipe(name)
+							&& name.length() - ChunkStore.RECIPE_SUFFIX.length() > prefix.length()) {
+						name = name.substring(0, name.length() - ChunkStore.RECIPE_SUFFIX.length());
+					}
+					Path file = target.resolve(name.substring(prefix.length())).normalize();
+					if (!file.startsWith(target) || file.equals(target)) {
+						listener.error("Skipping " + item.getObjectName() + ", whose name leads out of " + target);
+						summary.failed(item.getObjectName());
+						continue;
+					}
+					window.acquire();
+					if (cache != null && item.getEtag() != null) {
+						lookup(client, cache, item, file, executor, summary, window);
+					} else {
+						start(client, null, item, file, executor, summary, window);
+					}
+				}
+				token = listing.getNextToken();
+			} while (token != null);
+			// every object releases its permit once done, from the cache or not
+			window.acquire(2 * concurrency);
+		} finally {
+			executor.shutdownNow();
+		}
+		summary.setElapsedMillis(System.currentTimeMillis() - start);
+		return summary;
+	}
+
+	/**
+	 * Takes the object from the cache if it holds the listed ETag, or starts
+	 * downloading it otherwise, from a thread of the executor.
+	 */
+	private void lookup(final MinioRestClient client, final ObjectCache cache, final ObjectListing.Item item,
+			final Path file, final ExecutorService executor, final DownloadSummary summary, final Semaphore window) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				Path tmp = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+				try {
+					Files.createDirectories(file.getParent());
+					String key = ObjectCache.key(client.getEndpoint(), bucketName, item.getObjectName());
+					if (cache.copyTo(key, item.getEtag(), tmp)) {
+						finish(client, item, tmp, file, null, null, summary, null);
+						window.release();
+						return;
+					}
+				} catch (IOException e) {
+					e.printStackTrace(listener.error("Failed to take " + item.getObjectName() + " from the cache"));
+				}
+				start(client, cache, item, file, executor, summary, window);
+			}
+		});
+	}
+
+	/**
+	 * Starts downloading the object, counting it as failed if it cannot be
+	 * started.
+	 */
+	private void start(MinioRestClient client, ObjectCache cache, ObjectListing.Item item, Path file,
+			ExecutorService executor, DownloadSummary summary, Semaphore window) {
+		try {
+			allocate(client, cache, item, file, executor, summary, window);
+		} catch (IOException | RuntimeException e) {
+			window.release();
+			e.printStackTrace(listener.error("Failed to download " + item.getObjectName()));
+			summary.failed(item.getObjectName());
+		}
+	}
+
+	/**
+	 * Creates the temporary file of the object at its final size and
+	 * submits the fetch of each of its ranges, or of each chunk of its
+	 * recipe.
+	 */
+	private void allocate(final MinioRestClient client, final ObjectCache cache, final ObjectListing.Item item,
+			final Path file, ExecutorService executor, final DownloadSummary summary, final Semaphore window)
+			throws IOException {
+		Files.createDirectories(file.getParent());
+		final Path tmp = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+		final ChunkStore.Recipe recipe;
+		if (ChunkStore.isRecipe(item.getObjectName())) {
+			recipe = ChunkStore.readRecipe(client, bucketName, item.getObjectName(), item.getEtag());
+			if (recipe == null) {
+				throw new IOException(item.getObjectName() + " was deleted");
+			}
+		} else {
+			recipe = null;
+		}
+		final long size = recipe != null ? recipe.getSize() : item.getSize();
+		final int ranges;
+		if (recipe != null) {
+			ranges = Math.max(1, recipe.getChunks());
+		} else if (size > partSize && !isEncoded(client, item)) {
+			ranges = (int) ((size + partSize - 1) / partSize);
+		} else {
+			ranges = 1;
+		}
+		final FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		final AtomicInteger remaining = new AtomicInteger(ranges);
+		final IOException[] failure = new IOException[1];
+		try {
+			if (size > 0) {
+				// allocate the file once instead of growing it range by range
+				out.write(ByteBuffer.allocate(1), size - 1);
+			}
+		} catch (IOException e) {
+			out.close();
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+		for (int i = 0; i < ranges; i++) {
+			final int range = i;
+			final long first = i * partSize;
+			final long last = Math.min(first + partSize, size) - 1;
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					IOException error = null;
+					try {
+						if (recipe == null) {
+							fetch(client, item, first, ranges > 1 ? last : -1, out);
+						} else if (recipe.getChunks() > 0) {
+							fetchChunk(client, recipe, range, out);
+						}
+					} catch (IOException e) {
+						error = e;
+					}
+					synchronized (failure) {
+						if (error != null && failure[0] == null) {
+							failure[0] = error;
+						}
+					}
+					if (remaining.decrementAndGet() == 0) {
+						finish(client, item, tmp, file, out, failure[0], summary, cache);
+						window.release();
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns true if the object was compressed with a codec, which the
+	 * listing does not tell.
+	 */
+	private boolean isEncoded(MinioRestClient client, ObjectListing.Item item) throws IOException {
+		return client.headObject(bucketName, item.getObjectName(), "Content-Encoding") != null;
+	}
+
+	/**
+	 * Writes a range of the object at its position in the file. A whole
+	 * object compressed with gzip is decompressed, and the file truncated to
+	 * the decompressed size.
+	 */
+	private void fetch(MinioRestClient client, ObjectListing.Item item, long first, long last, FileChannel out)
+			throws IOException {
+		HttpURLConnection conn = client.getObject(bucketName, item.getObjectName(), first, last,
+				last >= 0 ? item.getEtag() : null);
+		if (last >= 0 && conn.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+			conn.disconnect();
+			throw new IOException("Minio ignored the range request for " + item.getObjectName());
+		}
+		String encoding = last < 0 ? conn.getContentEncoding() : null;
+		if (encoding != null && !encoding.equalsIgnoreCase(UploadCodec.GZIP.getEncoding())) {
+			conn.disconnect();
+			throw new IOException("Unsupported Content-Encoding " + encoding + " of " + item.getObjectName());
+		}
+		long expected = last >= 0 ? last - first + 1 : item.getSize();
+		long position = first;
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		try (InputStream in = encoding != null ? new GzipMembersInputStream(conn.getInputStream(), BUFFER_SIZE)
+				: conn.getInputStream(); ReadableByteChannel source = Channels.newChannel(in)) {
+			while (source.read(buffer) != -1) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					position += out.write(buffer, position);
+				}
+				buffer.clear();
+			}
+		}
+		if (encoding != null) {
+			// every member was decoded up to the end of the body, and its
+			// trailer checked the length and CRC of its part of the content
+			out.truncate(position);
+			return;
+		}
+		if (position - first != expected) {
+			throw new IOException(String.format("Received %d bytes of %s instead of %d", position - first,
+					item.getObjectName(), expected));
+		}
+	}
+
+	/**
+	 * Writes a chunk of a recipe at its position in the file, checking that
+	 * its content matches its hash.
+	 */
+	private void fetchChunk(MinioRestClient client, ChunkStore.Recipe recipe, int chunk, FileChannel out)
+			throws IOException {
+		String hash = recipe.getHash(chunk);
+		HttpURLConnection conn = client.getObject(bucketName, ChunkStore.chunkName(hash), 0, -1, null);
+		MessageDigest digest = ChunkStore.digest();
+		long first = recipe.getOffset(chunk);
+		long position = first;
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream in = conn.getInputStream()) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				if (position - first + read > recipe.getLength(chunk)) {
+					// would overwrite the next chunk of the file
+					throw new IOException("Chunk " + hash + " is longer than the " + recipe.getLength(chunk)
+							+ " bytes of the recipe");
+				}
+				digest.update(buffer, 0, read);
+				ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+				while (bytes.hasRemaining()) {
+					position += out.write(bytes, position);
+				}
+			}
+		}
+		if (position - first != recipe.getLength(chunk) || !hash.equals(MinioRestClient.hex(digest.digest()))) {
+			throw new IOException("Chunk " + hash + " is missing or corrupt");
+		}
+	}
+
+	/**
+	 * Moves the downloaded file in place and adds it to the cache if any, or
+	 * deletes it if a range failed. A file taken from the cache has no
+	 * channel.
+	 */
+	private void finish(MinioRestClient client, ObjectListing.Item item, Path tmp, Path file, FileChannel out,
+			IOException failure, DownloadSummary summary, ObjectCache cache) {
+		try {
+			if (out != null) {
+				out.close();
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			if (item.getLastModified() > 0) {
+				file.toFile().setLastModified(item.getLastModified());
+			}
+			long size = Files.size(file);
+			if (out == null) {
+				summary.cached(size);
+				return;
+			}
+			summary.downloaded(size);
+			if (cache != null) {
+				cache.put(ObjectCache.key(client.getEndpoint(), bucketName, item.getObjectName()), item.getEtag(),
+						file);
+			}
+		} catch (IOException e) {
+			e.printStackTrace(listener.error("Failed to download " + item.getObjectName()));
+			summary.failed(item.getObjectName());
+			try {
+				Files.deleteIfExists(tmp);
+			} catch (IOException ignored) {
+				// left behind, replaced by the next download
+			}
+		}
+	}
+}
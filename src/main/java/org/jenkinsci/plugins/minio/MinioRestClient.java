@@ -0,0 +1,739 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Minimal S3 REST client for the Minio requests that the Minio Java SDK does
+ * not expose publicly, such as the individual steps of a multipart upload, or
+ * whose error codes the upload path needs to act on.
+ * Requests are signed with AWS Signature Version 4 using an unsigned payload,
+ * so part bodies can be streamed without hashing them first.
+ */
+public class MinioRestClient {
+
+	/**
+	 * Region of the servers whose configuration names none, which is also
+	 * the default region of Minio.
+	 */
+	static final String DEFAULT_REGION = "us-east-1";
+
+	/**
+	 * Time allowed to open a connection to the server.
+	 */
+	static final int CONNECT_TIMEOUT = 30 * 1000;
+
+	/**
+	 * Time allowed between two reads of a response, so that a stalled server
+	 * fails the request instead of hanging the build.
+	 */
+	static final int READ_TIMEOUT = 5 * 60 * 1000;
+
+	private static final String SERVICE = "s3";
+	private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+	private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final URL endpoint;
+	private final String accessKey;
+	private final String secretKey;
+	private final String region;
+
+	/**
+	 * @param region
+	 *            Region the requests are signed for, or null or empty for
+	 *            {@value #DEFAULT_REGION}
+	 */
+	public MinioRestClient(String serverURL, String accessKey, String secretKey, String region)
+			throws MalformedURLException {
+		String url = serverURL.trim();
+		if (!url.contains("://")) {
+			url = "https://" + url;
+		}
+		if (url.endsWith("/")) {
+			url = url.substring(0, url.length() - 1);
+		}
+		this.endpoint = new URL(url);
+		this.accessKey = accessKey;
+		this.secretKey = secretKey;
+		this.region = region != null && !region.trim().isEmpty() ? region.trim() : DEFAULT_REGION;
+	}
+
+	/**
+	 * Uploads a file as a single object.
+	 */
+	public void putObject(String bucketName, String objectName, File file, Map<String, String> headers)
+			throws IOException {
+		HttpURLConnection conn = open("PUT", bucketName, objectName, Collections.<String, String>emptyMap(),
+				headers);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			FileRegion body = new FileRegion(channel, 0, channel.size());
+			conn.setFixedLengthStreamingMode(body.getLength());
+			conn.setDoOutput(true);
+			try (OutputStream out = conn.getOutputStream()) {
+				body.transferTo(Channels.newChannel(out));
+			}
+		}
+		readBody(conn);
+	}
+
+	/**
+	 * Uploads the remaining bytes of the buffer as a single object.
+	 */
+	public void putObject(String bucketName, String objectName, ByteBuffer body, Map<String, String> headers)
+			throws IOException {
+		HttpURLConnection conn = open("PUT", bucketName, objectName, Collections.<String, String>emptyMap(),
+				headers);
+		conn.setFixedLengthStreamingMode(body.remaining());
+		conn.setDoOutput(true);
+		try (OutputStream out = conn.getOutputStream()) {
+			write(body, out);
+		}
+		readBody(conn);
+	}
+
+	/**
+	 * Returns the value of a header of an object, or null if the object or
+	 * the header does not exist.
+	 */
+	public String headObject(String bucketName, String objectName, String header) throws IOException {
+		HttpURLConnection conn = open("HEAD", bucketName, objectName, Collections.<String, String>emptyMap(),
+				Collections.<String, String>emptyMap());
+		try {
+			readBody(conn);
+		} catch (MinioRestException e) {
+			if (e.getStatus() == HttpURLConnection.HTTP_NOT_FOUND) {
+				return null;
+			}
+			throw e;
+		}
+		return conn.getHeaderField(header);
+	}
+
+	/**
+	 * Lists one page of the objects whose name starts with the prefix, in
+	 * name order.
+	 *
+	 * @param delimiter
+	 *            Delimiter grouping the names below the prefix into common
+	 *            prefixes, or null to list every object
+	 * @param token
+	 *            Token returned by the previous page, or null for the first
+	 *            page
+	 */
+	public ObjectListing listObjects(String bucketName, String prefix, String delimiter, String token)
+			throws IOException {
+		Map<String, String> query = new TreeMap<>();
+		query.put("list-type", "2");
+		query.put("prefix", prefix != null ? prefix : "");
+		if (delimiter != null) {
+			query.put("delimiter", delimiter);
+		}
+		if (token != null) {
+			query.put("continuation-token", token);
+		}
+		HttpURLConnection conn = open("GET", bucketName, null, query, Collections.<String, String>emptyMap());
+		String body = readBody(conn);
+
+		ObjectListing listing = new ObjectListing();
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		for (String contents : xmlElements(body, "Contents")) {
+			long lastModified = 0;
+			String modified = xmlValue(contents, "LastModified");
+			if (modified != null) {
+				try {
+					lastModified = format.parse(modified).getTime();
+				} catch (ParseException e) {
+					// unknown, left to the epoch
+				}
+			}
+			String etag = xmlValue(contents, "ETag");
+			listing.add(new ObjectListing.Item(xmlUnescape(xmlValue(contents, "Key")),
+					Long.parseLong(xmlValue(contents, "Size")), etag != null ? xmlUnescape(etag) : null,
+					lastModified));
+		}
+		for (String common : xmlElements(body, "CommonPrefixes")) {
+			listing.addCommonPrefix(xmlUnescape(xmlValue(common, "Prefix")));
+		}
+		if ("true".equals(xmlValue(body, "IsTruncated"))) {
+			listing.setNextToken(xmlUnescape(xmlValue(body, "NextContinuationToken")));
+		}
+		return listing;
+	}
+
+	/**
+	 * Opens a range of an object, from the first byte to the last one
+	 * included, or the whole object when the last byte is negative.
+	 *
+	 * @param etag
+	 *            ETag the object must still have, or null
+	 * @return Returns the connection, whose response is the content of the
+	 *         range
+	 */
+	public HttpURLConnection getObject(String bucketName, String objectName, long first, long last, String etag)
+			throws IOException {
+		Map<String, String> headers = new TreeMap<>();
+		if (first > 0 || last >= 0) {
+			headers.put("Range", "bytes=" + first + "-" + (last >= 0 ? Long.toString(last) : ""));
+		}
+		if (etag != null) {
+			headers.put("If-Match", etag);
+		}
+		HttpURLConnection conn = open("GET", bucketName, objectName, Collections.<String, String>emptyMap(),
+				headers);
+		if (conn.getResponseCode() >= 300) {
+			readBody(conn);
+		}
+		return conn;
+	}
+
+	/**
+	 * Opens the whole object unless its ETag still is the given one, in
+	 * which case the response is 304 Not Modified, without content.
+	 */
+	public HttpURLConnection getObjectIfNoneMatch(String bucketName, String objectName, String etag)
+			throws IOException {
+		Map<String, String> headers = new TreeMap<>();
+		if (etag != null) {
+			headers.put("If-None-Match", etag);
+		}
+		HttpURLConnection conn = open("GET", bucketName, objectName, Collections.<String, String>emptyMap(),
+				headers);
+		int status = conn.getResponseCode();
+		if (status >= 300 && status != HttpURLConnection.HTTP_NOT_MODIFIED) {
+			readBody(conn);
+		}
+		return conn;
+	}
+
+	/**
+	 * Deletes an object. Deleting an object which does not exist is not an
+	 * error.
+	 */
+	public void deleteObject(String bucketName, String objectName) throws IOException {
+		HttpURLConnection conn = open("DELETE", bucketName, objectName, Collections.<String, String>emptyMap(),
+				Collections.<String, String>emptyMap());
+		readBody(conn);
+	}
+
+	/**
+	 * Creates a bucket. A bucket which already exists and is owned by the
+	 * caller is not an error.
+	 */
+	public void makeBucket(String bucketName) throws IOException {
+		HttpURLConnection conn = open("PUT", bucketName, null, Collections.<String, String>emptyMap(),
+				Collections.<String, String>emptyMap());
+		conn.setFixedLengthStreamingMode(0);
+		conn.setDoOutput(true);
+		conn.getOutputStream().close();
+		try {
+			readBody(conn);
+		} catch (MinioRestException e) {
+			if (!"BucketAlreadyOwnedByYou".equals(e.getCode())) {
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Starts a multipart upload.
+	 *
+	 * @return Returns the upload id to be used for the parts
+	 */
+	public String initiateMultipartUpload(String bucketName, String objectName, Map<String, String> headers)
+			throws IOException {
+		Map<String, String> query = Collections.singletonMap("uploads", "");
+		HttpURLConnection conn = open("POST", bucketName, objectName, query, headers);
+		conn.setFixedLengthStreamingMode(0);
+		conn.setDoOutput(true);
+		conn.getOutputStream().close();
+		String body = readBody(conn);
+		String uploadId = xmlValue(body, "UploadId");
+		if (uploadId == null) {
+			throw new IOException("Minio returned no upload id for " + objectName);
+		}
+		return uploadId;
+	}
+
+	/**
+	 * Uploads the remaining bytes of the buffer as one part of a multipart
+	 * upload.
+	 *
+	 * @return Returns the ETag of the uploaded part
+	 */
+	public String uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+			ByteBuffer body) throws IOException {
+		HttpURLConnection conn = open("PUT", bucketName, objectName, partQuery(uploadId, partNumber),
+				Collections.<String, String>emptyMap());
+		conn.setFixedLengthStreamingMode(body.remaining());
+		conn.setDoOutput(true);
+		try (OutputStream out = conn.getOutputStream()) {
+			write(body, out);
+		}
+		readBody(conn);
+		return conn.getHeaderField("ETag");
+	}
+
+	/**
+	 * Uploads a region of a file as one part of a multipart upload. The
+	 * connection streams the region through a small heap buffer rather than
+	 * holding the whole part.
+	 *
+	 * @return Returns the ETag of the uploaded part
+	 */
+	public String uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+			FileRegion body) throws IOException {
+		HttpURLConnection conn = open("PUT", bucketName, objectName, partQuery(uploadId, partNumber),
+				Collections.<String, String>emptyMap());
+		conn.setFixedLengthStreamingMode(body.getLength());
+		conn.setDoOutput(true);
+		try (OutputStream out = conn.getOutputStream()) {
+			body.transferTo(Channels.newChannel(out));
+		}
+		readBody(conn);
+		return conn.getHeaderField("ETag");
+	}
+
+	/**
+	 * Completes a multipart upload from the ETags of its parts, in part
+	 * number order.
+	 */
+	public void completeMultipartUpload(String bucketName, String objectName, String uploadId, List<String> etags)
+			throws IOException {
+		StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+		for (int i = 0; i < etags.size(); i++) {
+			xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+					.append(etags.get(i)).append("</ETag></Part>");
+		}
+		xml.append("</CompleteMultipartUpload>");
+		byte[] bytes = xml.toString().getBytes(StandardCharsets.UTF_8);
+
+		Map<String, String> query = Collections.singletonMap("uploadId", uploadId);
+		HttpURLConnection conn = open("POST", bucketName, objectName, query,
+				Collections.singletonMap("Content-Type", "application/xml"));
+		conn.setFixedLengthStreamingMode(bytes.length);
+		conn.setDoOutput(true);
+		try (OutputStream out = conn.getOutputStream()) {
+			out.write(bytes);
+		}
+		// Minio may report a failed completion with a 200 status and an error body
+		String body = readBody(conn);
+		if (body.contains("<Error>")) {
+			throw new MinioRestException(conn.getResponseCode(), xmlValue(body, "Code"), xmlValue(body, "Message"));
+		}
+	}
+
+	/**
+	 * Aborts a multipart upload and discards the parts uploaded so far.
+	 */
+	public void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws IOException {
+		Map<String, String> query = Collections.singletonMap("uploadId", uploadId);
+		HttpURLConnection conn = open("DELETE", bucketName, objectName, query,
+				Collections.<String, String>emptyMap());
+		readBody(conn);
+	}
+
+	/**
+	 * Opens a signed connection to an object, or to the bucket itself when
+	 * the object name is null. The caller is responsible for sending the
+	 * body, if any, and reading the response.
+	 */
+	HttpURLConnection open(String method, String bucketName, String objectName, Map<String, String> query,
+			Map<String, String> headers) throws IOException {
+		String path = path(bucketName, objectName);
+		String canonicalQuery = canonicalQuery(query);
+
+		URL url = new URL(endpoint, canonicalQuery.isEmpty() ? path : path + "?" + canonicalQuery);
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		conn.setRequestMethod(method);
+		conn.setConnectTimeout(CONNECT_TIMEOUT);
+		conn.setReadTimeout(READ_TIMEOUT);
+
+		String amzDate = amzDate();
+		String date = amzDate.substring(0, 8);
+
+		TreeMap<String, String> signed = new TreeMap<>();
+		for (Map.Entry<String, String> e : headers.entrySet()) {
+			signed.put(e.getKey().toLowerCase(Locale.ENGLISH), e.getValue().trim());
+		}
+		signed.put("host", hostHeader());
+		signed.put("x-amz-content-sha256", UNSIGNED_PAYLOAD);
+		signed.put("x-amz-date", amzDate);
+
+		for (Map.Entry<String, String> e : signed.entrySet()) {
+			if (!"host".equals(e.getKey())) {
+				conn.setRequestProperty(e.getKey(), e.getValue());
+			}
+		}
+
+		String canonicalRequest = canonicalRequest(method, path, canonicalQuery, signed, UNSIGNED_PAYLOAD);
+		String scope = scope(date, region, SERVICE);
+		String signature = signature(signingKey(secretKey, date, region, SERVICE), amzDate, scope, canonicalRequest);
+
+		conn.setRequestProperty("Authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope
+				+ ", SignedHeaders=" + signedHeaders(signed) + ", Signature=" + signature);
+		return conn;
+	}
+
+	/**
+	 * @return Returns the URL of the server
+	 */
+	public String getEndpoint() {
+		return endpoint.toString();
+	}
+
+	/**
+	 * Returns a presigner whose URLs are valid for the given number of
+	 * seconds from now. The signing key is derived once for all the URLs.
+	 */
+	public Presigner presigner(int expirySeconds) throws IOException {
+		return new Presigner(amzDate(), expirySeconds);
+	}
+
+	/**
+	 * Signs requests into URLs with query parameters, which can be sent
+	 * without the credentials. Only the host header is signed, and the
+	 * payload is unsigned, so any body can be sent with the URL.
+	 */
+	public final class Presigner {
+		private final String amzDate;
+		private final byte[] key;
+		private final String scope;
+		private final int expirySeconds;
+
+		Presigner(String amzDate, int expirySeconds) throws IOException {
+			this.amzDate = amzDate;
+			String date = amzDate.substring(0, 8);
+			this.key = signingKey(secretKey, date, region, SERVICE);
+			this.scope = scope(date, region, SERVICE);
+			this.expirySeconds = expirySeconds;
+		}
+
+		/**
+		 * @return Returns the URL of the server, which the paths of the
+		 *         presigned requests are relative to
+		 */
+		public String getEndpoint() {
+			return endpoint.toString();
+		}
+
+		/**
+		 * @return Returns the authentication query parameters shared by
+		 *         every URL of the presigner, without the signature
+		 */
+		public String getAuthQuery() {
+			return "X-Amz-Algorithm=" + ALGORITHM + "&X-Amz-Credential=" + encode(accessKey + "/" + scope, false)
+					+ "&X-Amz-Date=" + amzDate + "&X-Amz-Expires=" + expirySeconds + "&X-Amz-SignedHeaders=host";
+		}
+
+		/**
+		 * Returns the signature of a request on an object, sent with the
+		 * authentication query as <tt>X-Amz-Signature</tt>.
+		 */
+		public String sign(String method, String bucketName, String objectName, Map<String, String> query)
+				throws IOException {
+			return signPath(method, path(bucketName, objectName), query);
+		}
+
+		/**
+		 * Returns the signature of a request on an encoded path.
+		 */
+		String signPath(String method, String path, Map<String, String> query) throws IOException {
+			TreeMap<String, String> params = new TreeMap<>();
+			for (Map.Entry<String, String> e : query.entrySet()) {
+				params.put(encode(e.getKey(), false), encode(e.getValue(), false));
+			}
+			for (String param : getAuthQuery().split("&")) {
+				int eq = param.indexOf('=');
+				params.put(param.substring(0, eq), param.substring(eq + 1));
+			}
+			StringBuilder canonicalQuery = new StringBuilder();
+			for (Map.Entry<String, String> e : params.entrySet()) {
+				if (canonicalQuery.length() > 0) {
+					canonicalQuery.append('&');
+				}
+				canonicalQuery.append(e.getKey()).append('=').append(e.getValue());
+			}
+			String canonicalRequest = canonicalRequest(method, path, canonicalQuery.toString(),
+					Collections.singletonMap("host", hostHeader()), UNSIGNED_PAYLOAD);
+			return signature(key, amzDate, scope, canonicalRequest);
+		}
+	}
+
+	/**
+	 * Returns the encoded path of an object, or of the bucket itself when the
+	 * object name is null.
+	 */
+	static String path(String bucketName, String objectName) {
+		String path = "/" + encode(bucketName, false);
+		if (objectName != null) {
+			path += "/" + encode(objectName, true);
+		}
+		return path;
+	}
+
+	private static String amzDate() {
+		SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format.format(new Date());
+	}
+
+	/**
+	 * Returns the query string of a request in canonical form: encoded, and
+	 * sorted by parameter name.
+	 */
+	static String canonicalQuery(Map<String, String> query) {
+		StringBuilder canonicalQuery = new StringBuilder();
+		for (Map.Entry<String, String> e : new TreeMap<>(query).entrySet()) {
+			if (canonicalQuery.length() > 0) {
+				canonicalQuery.append('&');
+			}
+			canonicalQuery.append(encode(e.getKey(), false)).append('=').append(encode(e.getValue(), false));
+		}
+		return canonicalQuery.toString();
+	}
+
+	/**
+	 * Returns the canonical request of Signature Version 4.
+	 *
+	 * @param headers
+	 *            Signed headers, with lower case names in sorted order
+	 */
+	static String canonicalRequest(String method, String path, String canonicalQuery, Map<String, String> headers,
+			String payloadHash) {
+		StringBuilder canonicalHeaders = new StringBuilder();
+		for (Map.Entry<String, String> e : headers.entrySet()) {
+			canonicalHeaders.append(e.getKey()).append(':').append(e.getValue()).append('\n');
+		}
+		return method + '\n' + path + '\n' + canonicalQuery + '\n' + canonicalHeaders + '\n' + signedHeaders(headers)
+				+ '\n' + payloadHash;
+	}
+
+	static String signedHeaders(Map<String, String> headers) {
+		StringBuilder signedHeaders = new StringBuilder();
+		for (String name : headers.keySet()) {
+			if (signedHeaders.length() > 0) {
+				signedHeaders.append(';');
+			}
+			signedHeaders.append(name);
+		}
+		return signedHeaders.toString();
+	}
+
+	static String scope(String date, String region, String service) {
+		return date + "/" + region + "/" + service + "/aws4_request";
+	}
+
+	/**
+	 * Derives the key signing the requests of a day.
+	 */
+	static byte[] signingKey(String secretKey, String date, String region, String service) throws IOException {
+		byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+		key = hmac(key, region);
+		key = hmac(key, service);
+		return hmac(key, "aws4_request");
+	}
+
+	/**
+	 * Returns the hexadecimal signature of a canonical request.
+	 */
+	static String signature(byte[] signingKey, String amzDate, String scope, String canonicalRequest)
+			throws IOException {
+		String stringToSign = ALGORITHM + '\n' + amzDate + '\n' + scope + '\n' + hex(sha256(canonicalRequest));
+		return hex(hmac(signingKey, stringToSign));
+	}
+
+	static Map<String, String> partQuery(String uploadId, int partNumber) {
+		Map<String, String> query = new TreeMap<>();
+		query.put("partNumber", Integer.toString(partNumber));
+		query.put("uploadId", uploadId);
+		return query;
+	}
+
+	private static void write(ByteBuffer body, OutputStream out) throws IOException {
+		WritableByteChannel channel = Channels.newChannel(out);
+		while (body.hasRemaining()) {
+			channel.write(body);
+		}
+	}
+
+	/**
+	 * Reads the response body, throwing a {@link MinioRestException} for
+	 * error responses.
+	 */
+	static String readBody(HttpURLConnection conn) throws IOException {
+		int status = conn.getResponseCode();
+		InputStream in = status >= 300 ? conn.getErrorStream() : conn.getInputStream();
+		String body = "";
+		if (in != null) {
+			try {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buf = new byte[8192];
+				int n;
+				while ((n = in.read(buf)) != -1) {
+					out.write(buf, 0, n);
+				}
+				body = new String(out.toByteArray(), StandardCharsets.UTF_8);
+			} finally {
+				in.close();
+			}
+		}
+		if (status >= 300) {
+			throw new MinioRestException(status, xmlValue(body, "Code"), xmlValue(body, "Message"));
+		}
+		return body;
+	}
+
+	/**
+	 * Returns the text of the first element with the given name, or null.
+	 */
+	static String xmlValue(String xml, String element) {
+		int start = xml.indexOf("<" + element + ">");
+		if (start < 0) {
+			return null;
+		}
+		start += element.length() + 2;
+		int end = xml.indexOf("</" + element + ">", start);
+		return end < 0 ? null : xml.substring(start, end);
+	}
+
+	/**
+	 * Returns the content of every element with the given name.
+	 */
+	static List<String> xmlElements(String xml, String element) {
+		List<String> values = new ArrayList<>();
+		String open = "<" + element + ">";
+		String close = "</" + element + ">";
+		for (int start = xml.indexOf(open); start >= 0; start = xml.indexOf(open, start)) {
+			start += open.length();
+			int end = xml.indexOf(close, start);
+			if (end < 0) {
+				break;
+			}
+			values.add(xml.substring(start, end));
+			start = end + close.length();
+		}
+		return values;
+	}
+
+	/**
+	 * Replaces the entities of XML text by their characters.
+	 */
+	static String xmlUnescape(String text) {
+		if (text == null || text.indexOf('&') < 0) {
+			return text;
+		}
+		StringBuilder sb = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			int semicolon = c == '&' ? text.indexOf(';', i) : -1;
+			if (semicolon < 0) {
+				sb.append(c);
+				continue;
+			}
+			String entity = text.substring(i + 1, semicolon);
+			if ("amp".equals(entity)) {
+				sb.append('&');
+			} else if ("lt".equals(entity)) {
+				sb.append('<');
+			} else if ("gt".equals(entity)) {
+				sb.append('>');
+			} else if ("quot".equals(entity)) {
+				sb.append('"');
+			} else if ("apos".equals(entity)) {
+				sb.append('\'');
+			} else if (entity.startsWith("#x")) {
+				sb.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+			} else if (entity.startsWith("#")) {
+				sb.appendCodePoint(Integer.parseInt(entity.substring(1)));
+			} else {
+				sb.append(c);
+				continue;
+			}
+			i = semicolon;
+		}
+		return sb.toString();
+	}
+
+	private String hostHeader() {
+		int port = endpoint.getPort();
+		if (port == -1 || port == endpoint.getDefaultPort()) {
+			return endpoint.getHost();
+		}
+		return endpoint.getHost() + ":" + port;
+	}
+
+	/**
+	 * URI-encodes a string as required by Signature Version 4.
+	 */
+	static String encode(String value, boolean keepSlash) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			char c = (char) (b & 0xff);
+			if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_'
+					|| c == '.' || c == '~' || (keepSlash && c == '/')) {
+				sb.append(c);
+			} else {
+				sb.append('%').append(Character.toUpperCase(HEX[(b >> 4) & 0xf]))
+						.append(Character.toUpperCase(HEX[b & 0xf]));
+			}
+		}
+		return sb.toString();
+	}
+
+	static String hex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+
+	static byte[] sha256(String value) throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static byte[] hmac(byte[] key, String value) throws IOException {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(key, "HmacSHA256"));
+			return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException | InvalidKeyException e) {
+			throw new IOException(e);
+		}
+	}
+}
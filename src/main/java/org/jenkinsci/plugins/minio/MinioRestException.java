@@ -0,0 +1,35 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.IOException;
+
+/**
+ * Error returned by the Minio server for a request sent through
+ * {@link MinioRestClient}.
+ */
+public class MinioRestException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int status;
+	private final String code;
+
+	public MinioRestException(int status, String code, String message) {
+		super(String.format("HTTP %d %s: %s", status, code, message));
+		this.status = status;
+		this.code = code;
+	}
+
+	/**
+	 * @return Returns the HTTP status of the failed request
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return Returns the S3 error code, such as NoSuchBucket
+	 */
+	public String getCode() {
+		return code;
+	}
+}
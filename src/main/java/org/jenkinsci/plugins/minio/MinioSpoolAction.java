@@ -0,0 +1,140 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * Records on the build an upload left to the spool of an agent, and its
+ * summary once {@link SpoolMonitor} collected it.
+ */
+public class MinioSpoolAction implements RunAction2 {
+
+	private static final Logger LOGGER = Logger.getLogger(MinioSpoolAction.class.getName());
+
+	private final String nodeName;
+	private final String spoolRoot;
+	private final String spoolId;
+
+	/**
+	 * Server and bucket of the upload, so that the bucket is checked again
+	 * if the drainer had to create it.
+	 */
+	private final String serverURL;
+	private final String bucketName;
+
+	/**
+	 * Summary of the upload, null while it is waiting.
+	 */
+	private String summary;
+	private int failedFiles;
+
+	private transient Run<?, ?> run;
+
+	public MinioSpoolAction(String nodeName, String spoolRoot, String spoolId, String serverURL,
+			String bucketName) {
+		this.nodeName = nodeName;
+		this.spoolRoot = spoolRoot;
+		this.spoolId = spoolId;
+		this.serverURL = serverURL;
+		this.bucketName = bucketName;
+	}
+
+	public String getNodeName() {
+		return nodeName;
+	}
+
+	public String getSpoolRoot() {
+		return spoolRoot;
+	}
+
+	public String getSpoolId() {
+		return spoolId;
+	}
+
+	/**
+	 * @return Returns the summary of the upload, or null while it is waiting
+	 */
+	public String getSummary() {
+		return summary;
+	}
+
+	public int getFailedFiles() {
+		return failedFiles;
+	}
+
+	public boolean isPending() {
+		return summary == null;
+	}
+
+	/**
+	 * @return Returns the externalizable id of the build, or null before the
+	 *         action is attached
+	 */
+	String getRunId() {
+		return run != null ? run.getExternalizableId() : null;
+	}
+
+	/**
+	 * Stores the result of the drained job into the build.
+	 */
+	void complete(UploadSummary result) {
+		if (result.isBucketMissing() && serverURL != null) {
+			// the bucket was created again by the drainer, check it next time
+			BucketCache.invalidate(serverURL, bucketName);
+		}
+		summary = result.toString();
+		failedFiles = result.getFailedFiles();
+		save();
+	}
+
+	/**
+	 * Records that the job vanished from the agent before it was collected.
+	 */
+	void lost() {
+		summary = "The spooled upload was lost by agent " + nodeName;
+		save();
+	}
+
+	private void save() {
+		if (run == null) {
+			return;
+		}
+		try {
+			run.save();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to save " + run, e);
+		}
+	}
+
+	@Override
+	public void onAttached(Run<?, ?> r) {
+		run = r;
+	}
+
+	@Override
+	public void onLoad(Run<?, ?> r) {
+		run = r;
+		if (isPending()) {
+			SpoolMonitor.track(this);
+		}
+	}
+
+	@Override
+	public String getIconFileName() {
+		return null;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return "Minio spooled upload";
+	}
+
+	@Override
+	public String getUrlName() {
+		return null;
+	}
+}
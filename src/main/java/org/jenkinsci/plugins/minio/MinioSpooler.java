@@ -0,0 +1,117 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.UUID;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Copies the matching files of the workspace into the spool of the agent and
+ * leaves them to the {@link SpoolDrainer} of the agent. The build goes on as
+ * soon as the files are spooled. The files are copied rather than linked, so
+ * that later build steps rewriting a workspace file in place do not change
+ * what is uploaded. Returns the identifier of the spool job.
+ */
+public class MinioSpooler implements FileCallable<String> {
+	private static final long serialVersionUID = 1;
+
+	private final MinioClientFactory minioClientFactory;
+	private final String bucketName;
+	private final UploadPlanner planner;
+	private final long partSize;
+	private final int concurrency;
+	private final UploadCodec codec;
+
+	/**
+	 * Remote path of the spool directory of the agent.
+	 */
+	private final String spoolRoot;
+
+	/**
+	 * TaskListener listener needed for reading exceptions.
+	 */
+	private final TaskListener listener;
+
+	public MinioSpooler(MinioClientFactory minioClientFactory, String bucketName, UploadPlanner planner,
+			long partSize, int concurrency, UploadCodec codec, String spoolRoot, TaskListener listener) {
+		this.minioClientFactory = minioClientFactory;
+		this.bucketName = bucketName;
+		this.planner = planner;
+		this.partSize = partSize;
+		this.concurrency = concurrency;
+		this.codec = codec;
+		this.spoolRoot = spoolRoot;
+		this.listener = listener;
+	}
+
+	@Override
+	public void checkRoles(RoleChecker checker) throws SecurityException {
+		// not implemented
+	}
+
+	/**
+	 * invoke copies the matching files into a new spool job and wakes the
+	 * drainer up.
+	 */
+	@Override
+	public String invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+		File root = new File(spoolRoot);
+		createPrivateDirectory(root.toPath());
+		String id = System.currentTimeMillis() + "-" + UUID.randomUUID();
+		File tmp = new File(root, id + SpoolDrainer.TMP_SUFFIX);
+		final Path files = new File(tmp, SpoolJob.FILES_DIRECTORY).toPath();
+		final UploadPlan plan = new UploadPlan(Integer.MAX_VALUE);
+		Files.createDirectories(files);
+		try {
+			planner.plan(ws, new UploadPlanner.Listener() {
+				@Override
+				public void planned(File file, UploadPlan.Entry entry) throws IOException {
+					Path target = files.resolve(entry.getRelativePath());
+					Files.createDirectories(target.getParent());
+					Files.copy(file.toPath(), target, StandardCopyOption.COPY_ATTRIBUTES);
+					synchronized (plan) {
+						plan.add(entry);
+					}
+				}
+			});
+			new SpoolJob(minioClientFactory.getServerURL(), bucketName, partSize, concurrency, codec, plan)
+					.write(tmp);
+			Files.move(tmp.toPath(), new File(root, id).toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			Util.deleteRecursive(tmp);
+			throw e;
+		}
+		SpoolDrainer.provide(minioClientFactory);
+		SpoolDrainer.start(root);
+		listener.getLogger().println(String.format("Spooled %d files (%d bytes) for upload in the background",
+				plan.size(), plan.getTotalBytes()));
+		return id;
+	}
+
+	/**
+	 * Creates a directory readable by the agent user only where the file
+	 * system supports it, such as the spool directory, whose jobs hold copies
+	 * of the workspace files.
+	 */
+	static void createPrivateDirectory(Path root) throws IOException {
+		if (Files.isDirectory(root)) {
+			return;
+		}
+		try {
+			Files.createDirectories(root,
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		} catch (UnsupportedOperationException e) {
+			Files.createDirectories(root);
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package org.jenkinsci.plugins.minio;
+
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractSynchronousStepExecution;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.inject.Inject;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+
+/**
+ * Pipeline step which starts uploading the matching files of the workspace
+ * and returns at once with a handle, so that the following stages run while
+ * the files are sent. The handle is passed to {@link MinioAwaitStep} to wait
+ * for the upload and report its result:
+ *
+ * <pre>
+ * def upload = minioUpload bucketName: 'builds', sourceFile: 'target/*.jar'
+ * // tests, deployment preparation...
+ * minioAwait upload
+ * </pre>
+ */
+public final class MinioUploadStep extends AbstractStepImpl {
+
+	private final String bucketName;
+	private final String sourceFile;
+	private String excludedFile;
+	private String objectNamePrefix;
+	private int partSize;
+	private int concurrency;
+	private boolean incremental;
+	private UploadCodec codec;
+	private boolean uploadDirectories;
+	private boolean verbose;
+	private boolean dedup;
+
+	@DataBoundConstructor
+	public MinioUploadStep(String bucketName, String sourceFile) {
+		this.bucketName = bucketName;
+		this.sourceFile = sourceFile;
+	}
+
+	public String getBucketName() {
+		return bucketName;
+	}
+
+	public String getSourceFile() {
+		return sourceFile;
+	}
+
+	public String getExcludedFile() {
+		return excludedFile;
+	}
+
+	@DataBoundSetter
+	public void setExcludedFile(String excludedFile) {
+		this.excludedFile = excludedFile;
+	}
+
+	public String getObjectNamePrefix() {
+		return objectNamePrefix;
+	}
+
+	@DataBoundSetter
+	public void setObjectNamePrefix(String objectNamePrefix) {
+		this.objectNamePrefix = objectNamePrefix;
+	}
+
+	public int getPartSize() {
+		return partSize > 0 ? partSize : (int) (MultipartUploader.DEFAULT_PART_SIZE / (1024 * 1024));
+	}
+
+	@DataBoundSetter
+	public void setPartSize(int partSize) {
+		this.partSize = partSize;
+	}
+
+	public int getConcurrency() {
+		return concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+	}
+
+	@DataBoundSetter
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	@DataBoundSetter
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	public UploadCodec getCodec() {
+		return codec != null ? codec : UploadCodec.NONE;
+	}
+
+	@DataBoundSetter
+	public void setCodec(UploadCodec codec) {
+		this.codec = codec;
+	}
+
+	public boolean isUploadDirectories() {
+		return uploadDirectories;
+	}
+
+	@DataBoundSetter
+	public void setUploadDirectories(boolean uploadDirectories) {
+		this.uploadDirectories = uploadDirectories;
+	}
+
+	public boolean isVerbose() {
+		return verbose;
+	}
+
+	@DataBoundSetter
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	public boolean isDedup() {
+		return dedup;
+	}
+
+	@DataBoundSetter
+	public void setDedup(boolean dedup) {
+		this.dedup = dedup;
+	}
+
+	/**
+	 * Starts the upload on the agent of the workspace and returns the handle
+	 * of the upload.
+	 */
+	public static class Execution extends AbstractSynchronousStepExecution<String> {
+		private static final long serialVersionUID = 1L;
+
+		@Inject
+		private transient MinioUploadStep step;
+
+		@StepContextParameter
+		private transient FilePath ws;
+
+		@StepContextParameter
+		private transient TaskListener listener;
+
+		@Override
+		protected String run() throws Exception {
+			MinioUploader.DescriptorImpl config = Jenkins.getInstance()
+					.getDescriptorByType(MinioUploader.DescriptorImpl.class);
+			String serverURL = config.getServerURL();
+			MinioClientFactory minioClientFactory = config.createClientFactory();
+
+			UploadPlanner planner = new UploadPlanner(step.sourceFile, step.excludedFile, step.objectNamePrefix,
+					step.uploadDirectories);
+			if (step.dedup) {
+				DedupUploader uploader = new DedupUploader(minioClientFactory, step.bucketName, planner,
+						step.getConcurrency(), listener);
+				uploader.setVerbose(step.verbose);
+				uploader.setCreateBucket(true);
+				return PendingUploads.register(serverURL, step.bucketName, ws.actAsync(uploader));
+			}
+			MinioBatchUploader uploader = new MinioBatchUploader(minioClientFactory, step.bucketName, planner,
+					step.getPartSize() * 1024L * 1024L, step.getConcurrency(), listener);
+			uploader.setIncremental(step.incremental);
+			uploader.setCodec(step.getCodec());
+			uploader.setVerbose(step.verbose);
+			// Created by the remote call, so that this thread does not wait
+			uploader.setCreateBucket(true);
+			return PendingUploads.register(serverURL, step.bucketName, ws.actAsync(uploader));
+		}
+	}
+
+	@Extension
+	public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+		public DescriptorImpl() {
+			super(Execution.class);
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "minioUpload";
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Start uploading build artifacts to Minio server";
+		}
+	}
+}
@@ -5,6 +5,8 @@ import hudson.Util;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.model.AbstractProject;
+import hudson.model.Computer;
+import hudson.model.Node;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
@@ -18,6 +20,7 @@ import net.sf.json.JSONObject;
 
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.xmlpull.v1.XmlPullParserException;
 
@@ -29,6 +32,8 @@ import java.io.InputStream;
 import java.io.PrintStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import io.minio.*;
@@ -42,6 +47,8 @@ import io.minio.errors.RegionConflictException;
 
 public final class MinioUploader extends Recorder implements SimpleBuildStep {
 
+	static final String DISPLAY_NAME = "Upload build artifacts to Minio server";
+
 	/**
 	 * File name relative to the workspace root to upload. Can contain macros
 	 * and wildcards.
@@ -69,6 +76,63 @@ public final class MinioUploader extends Recorder implements SimpleBuildStep {
 	 */
 	private MinioClient minioClient;
 
+	/**
+	 * Size in MiB of the parts of a multipart upload. Zero selects the
+	 * default.
+	 */
+	private int partSize;
+
+	/**
+	 * Number of files and parts uploaded at the same time. Zero selects the
+	 * agent default.
+	 */
+	private int concurrency;
+
+	/**
+	 * Skip files whose content did not change since the previous upload.
+	 */
+	private boolean incremental;
+
+	/**
+	 * Compression applied to compressible files before upload.
+	 */
+	private UploadCodec codec;
+
+	/**
+	 * Only list the files which would be uploaded, with an estimate of the
+	 * upload duration.
+	 */
+	private boolean dryRun;
+
+	/**
+	 * Upload the content of matching directories, keeping the paths of the
+	 * files below the search root.
+	 */
+	private boolean uploadDirectories;
+
+	/**
+	 * Leave the files to the spool of the agent, which uploads them while the
+	 * build goes on.
+	 */
+	private boolean spool;
+
+	/**
+	 * Print a line for every uploaded file besides the periodic progress.
+	 */
+	private boolean verbose;
+
+	/**
+	 * Send the files with URLs presigned on the controller, so that the
+	 * credentials stay on the controller.
+	 */
+	private boolean presigned;
+
+	/**
+	 * Store the files as content-defined chunks shared between uploads, and
+	 * send only the chunks missing from the bucket.
+	 */
+	private boolean dedup;
+
 	// Fields in config.jelly must match the parameter names in the "DataBoundConstructor"
 	@DataBoundConstructor
 	public MinioUploader(String sourceFile, String excludedFile, String bucketName, String objectNamePrefix) {
@@ -78,8 +142,143 @@ public final class MinioUploader extends Recorder implements SimpleBuildStep {
 		this.objectNamePrefix = objectNamePrefix;
 	}
 
-	private void log(final PrintStream logger, final String message) {
-		logger.println(StringUtils.defaultString(getDescriptor().getDisplayName()) + ' ' + message);
+	public int getPartSize() {
+		return partSize > 0 ? partSize : (int) (MultipartUploader.DEFAULT_PART_SIZE / (1024 * 1024));
+	}
+
+	@DataBoundSetter
+	public void setPartSize(int partSize) {
+		this.partSize = partSize;
+	}
+
+	public int getConcurrency() {
+		return concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+	}
+
+	@DataBoundSetter
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	@DataBoundSetter
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	public UploadCodec getCodec() {
+		return codec != null ? codec : UploadCodec.NONE;
+	}
+
+	@DataBoundSetter
+	public void setCodec(UploadCodec codec) {
+		this.codec = codec;
+	}
+
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	@DataBoundSetter
+	public void setDryRun(boolean dryRun) {
+		this.dryRun = dryRun;
+	}
+
+	public boolean isUploadDirectories() {
+		return uploadDirectories;
+	}
+
+	@DataBoundSetter
+	public void setUploadDirectories(boolean uploadDirectories) {
+		this.uploadDirectories = uploadDirectories;
+	}
+
+	public boolean isSpool() {
+		return spool;
+	}
+
+	@DataBoundSetter
+	public void setSpool(boolean spool) {
+		this.spool = spool;
+	}
+
+	public boolean isVerbose() {
+		return verbose;
+	}
+
+	@DataBoundSetter
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	public boolean isPresigned() {
+		return presigned;
+	}
+
+	@DataBoundSetter
+	public void setPresigned(boolean presigned) {
+		this.presigned = presigned;
+	}
+
+	public boolean isDedup() {
+		return dedup;
+	}
+
+	@DataBoundSetter
+	public void setDedup(boolean dedup) {
+		this.dedup = dedup;
+	}
+
+	private static void log(final PrintStream logger, final String message) {
+		logger.println(DISPLAY_NAME + ' ' + message);
+	}
+
+	/**
+	 * Logs the options of the job which the mode of the upload does not
+	 * support, rather than ignoring them silently.
+	 */
+	private void logIgnored(PrintStream console, String mode) {
+		List<String> ignored = new ArrayList<>();
+		if (incremental) {
+			ignored.add("incremental");
+		}
+		if (getCodec() != UploadCodec.NONE) {
+			ignored.add("compression");
+		}
+		if (spool) {
+			ignored.add("background upload");
+		}
+		if (presigned && dedup) {
+			ignored.add("presigned upload");
+		}
+		if (!ignored.isEmpty()) {
+			log(console, "Ignoring " + StringUtils.join(ignored, ", ") + ", not supported by the " + mode + " upload");
+		}
+	}
+
+	/**
+	 * Logs the summary of an upload, forgets the bucket if it had to be
+	 * created again, and marks the build unstable if files failed.
+	 */
+	static void report(Run<?, ?> run, PrintStream console, String serverURL, String bucketName,
+			UploadSummary summary) {
+		log(console, summary.toString());
+
+		if (summary.isBucketMissing()) {
+			// the bucket was created again by the agent, check it next time
+			BucketCache.invalidate(serverURL, bucketName);
+		}
+
+		if (summary.getFailedFiles() > 0) {
+			List<String> failures = summary.getFailures();
+			int unnamed = summary.getFailedFiles() - failures.size();
+			log(console, "Failed to upload " + StringUtils.join(failures, ", ")
+					+ (unnamed > 0 ? " and " + unnamed + " more" : ""));
+			run.setResult(Result.UNSTABLE);
+		}
 	}
 
 	@Override
@@ -105,9 +304,7 @@ public final class MinioUploader extends Recorder implements SimpleBuildStep {
 			final Map<String, String> envVars = run.getEnvironment(listener);
 
 			String serverURL = getDescriptor().getServerURL();
-			String accessKey = getDescriptor().getAccessKey();
-			String secretKey = getDescriptor().getSecretKey();
-			MinioClientFactory minioClientFactory = new MinioClientFactory(serverURL, accessKey, secretKey);
+			MinioClientFactory minioClientFactory = getDescriptor().createClientFactory();
 			MinioClient minioClient = minioClientFactory.createClient();
 
 			final String expanded = Util.replaceMacro(sourceFile, envVars);
@@ -118,48 +315,74 @@ public final class MinioUploader extends Recorder implements SimpleBuildStep {
 				throw new IOException();
 			}
 
-			// Check if bucket already exists
-			boolean bucketFound = minioClient.bucketExists(bucketName);
+			// Resolve every matching file to its object name on the agent
+			UploadPlanner planner = new UploadPlanner(expanded, exclude, objectNamePrefix, uploadDirectories);
+
+			if (dryRun) {
+				UploadPlan plan = ws.act(planner);
+				for (UploadPlan.Entry entry : plan.getEntries()) {
+					console.println(String.format("File %s, would be uploaded to bucket %s as %s (%d bytes)",
+							entry.getRelativePath(), bucketName, entry.getObjectName(), entry.getSize()));
+				}
+				if (plan.size() > plan.getEntries().size()) {
+					console.println(String.format("... and %d more files", plan.size() - plan.getEntries().size()));
+				}
+				log(console, String.format("Dry run: %d files (%d bytes) would be uploaded in about %s", plan.size(),
+						plan.getTotalBytes(), Util.getTimeSpanString(plan.estimateMillis(getConcurrency()))));
+				return;
+			}
 
-			// If bucket not present, create bucket
-			if (!bucketFound) {
-				minioClient.makeBucket(bucketName);
+			// Create the bucket if not present, unless it is known to exist
+			BucketCache.ensureBucket(minioClient, serverURL, bucketName);
+
+			if (dedup) {
+				// Send only the chunks of the files missing from the bucket
+				logIgnored(console, "deduplicated");
+				DedupUploader uploader = new DedupUploader(minioClientFactory, bucketName, planner,
+						getConcurrency(), listener);
+				uploader.setVerbose(verbose);
+				UploadSummary summary = ws.act(uploader);
+				report(run, console, serverURL, bucketName, summary);
+				return;
 			}
 
-			// For each of the file paths provided by the user
-			for (String startPath : expanded.split(",")) {
-				// Find the files matching the path
-				for (FilePath path : ws.list(startPath, exclude)) {
-
-					// Throw IOException if the path is a directory
-					if (path.isDirectory()) {
-						throw new IOException(path + " is a directory");
-					}
-
-					// Get the search path length
-					final int searchPathLength = FileHelper.getSearchPathLength(ws.getRemote(), startPath.trim());
-
-					// Get the exact filename to be uploaded
-					String fileName = path.getName();
-					String objectName;
-
-					// Check if a prefix is setup, prepend to the filename
-					if ((objectNamePrefix != null) && !(objectNamePrefix.isEmpty())) {
-						String[] pathItems = fileName.split("/");
-						String name = pathItems[pathItems.length - 1];
-						objectName = String.format("%s/%s", objectNamePrefix, name);
-					} else {
-						objectName = fileName;
-					}
-
-					// upload the file from slave/master.
-					path.act(new MinioAllPathUploader(minioClientFactory, bucketName, path, objectName, listener));
-
-					String msg = String.format("\nFile %s, is uploaded to bucket %s as %s", fileName, bucketName,
-							objectName);
-					log(console, msg);
-				}
+			if (presigned) {
+				// Send the files from the agent without the credentials
+				logIgnored(console, "presigned");
+				UploadSummary summary = PresignedUploader.upload(ws, minioClientFactory.createRestClient(),
+						bucketName, planner, getPartSize() * 1024L * 1024L, getConcurrency(), verbose, listener);
+				report(run, console, serverURL, bucketName, summary);
+				return;
 			}
+
+			Computer computer = ws.toComputer();
+			Node node = computer != null ? computer.getNode() : null;
+			FilePath spoolRoot = node != null ? node.getRootPath() : null;
+			if (spool && spoolRoot != null) {
+				// Hand the files over to the agent, which uploads them later
+				String remote = spoolRoot.child(SpoolDrainer.DIRECTORY).getRemote();
+				String id = ws.act(new MinioSpooler(minioClientFactory, bucketName, planner,
+						getPartSize() * 1024L * 1024L, getConcurrency(), getCodec(), remote, listener));
+				MinioSpoolAction action = new MinioSpoolAction(computer.getName(), remote, id, serverURL,
+						bucketName);
+				run.addAction(action);
+				SpoolMonitor.track(action);
+				log(console, "The files are uploaded in the background by " + computer.getDisplayName());
+				return;
+			}
+			if (spool) {
+				log(console, "Uploading in the background is not available without the root directory of the agent,"
+						+ " the files are uploaded now");
+			}
+
+			// Upload every matching file on the agent in one call
+			MinioBatchUploader uploader = new MinioBatchUploader(minioClientFactory, bucketName, planner,
+					getPartSize() * 1024L * 1024L, getConcurrency(), listener);
+			uploader.setIncremental(incremental);
+			uploader.setCodec(getCodec());
+			uploader.setVerbose(verbose);
+			UploadSummary summary = ws.act(uploader);
+			report(run, console, serverURL, bucketName, summary);
 		} catch (InvalidKeyException | InvalidBucketNameException | NoSuchAlgorithmException | InsufficientDataException
 				| NoResponseException | ErrorResponseException | InternalException | XmlPullParserException e) {
 			e.printStackTrace(listener.error("Minio error, failed to upload files"));
@@ -206,6 +429,7 @@ public final class MinioUploader extends Recorder implements SimpleBuildStep {
 		private String serverURL;
 		private String accessKey;
 		private String secretKey;
+		private String region;
 
 		/**
 		 * load the persisted global configuration.
@@ -224,7 +448,7 @@ public final class MinioUploader extends Recorder implements SimpleBuildStep {
 		 * This human readable name is used in the configuration screen.
 		 */
 		public String getDisplayName() {
-			return "Upload build artifacts to Minio server";
+			return DISPLAY_NAME;
 		}
 
 		@Override
@@ -234,11 +458,23 @@ public final class MinioUploader extends Recorder implements SimpleBuildStep {
 			serverURL = formData.getString("serverURL");
 			accessKey = formData.getString("accessKey");
 			secretKey = formData.getString("secretKey");
+			region = formData.optString("region");
 
+			// clients of the previous settings must not be reused
+			MinioClientRegistry.invalidate();
+			BucketCache.invalidateAll();
 			save();
 			return super.configure(req, formData);
 		}
 
+		/**
+		 * Returns a client factory for the server of the global
+		 * configuration.
+		 */
+		MinioClientFactory createClientFactory() {
+			return new MinioClientFactory(serverURL, accessKey, secretKey, region);
+		}
+
 		/**
 		 * This method returns server URL from global configuration.
 		 *
@@ -265,6 +501,16 @@ public final class MinioUploader extends Recorder implements SimpleBuildStep {
 		public String getSecretKey() {
 			return secretKey;
 		}
+
+		/**
+		 * This method returns the region from global configuration.
+		 *
+		 * @return Returns the region the requests are signed for, empty for
+		 *         the default region
+		 */
+		public String getRegion() {
+			return region;
+		}
 	}
 
 	@Override
@@ -0,0 +1,273 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jenkins.util.VirtualFile;
+
+/**
+ * File or directory of the artifacts stored by a
+ * {@link MinioArtifactManager}. Directories are the common prefixes of the
+ * object names, listed one page of up to a thousand entries at a time with
+ * a delimiter, so that browsing a directory costs one request per page
+ * whatever the number of files below it. The children returned by a listing
+ * carry the size and modification time of their object, and answer without
+ * asking the server again.
+ */
+public final class MinioVirtualFile extends VirtualFile {
+	private static final long serialVersionUID = 1L;
+
+	private static final String DELIMITER = "/";
+
+	private final MinioClientFactory minioClientFactory;
+	private final String bucketName;
+
+	/**
+	 * Object name of the file, or common prefix of the directory without its
+	 * trailing delimiter.
+	 */
+	private final String key;
+
+	/**
+	 * Key of the root directory of the artifacts, which is its own parent.
+	 */
+	private final String root;
+
+	/**
+	 * Object of the file, as listed by its parent or found by
+	 * {@link #stat()}, or null if not looked up yet.
+	 */
+	private ObjectListing.Item item;
+
+	/**
+	 * Whether the file is known to be a directory, as listed by its parent.
+	 */
+	private boolean directory;
+
+	/**
+	 * Whether {@link #stat()} already looked for the object.
+	 */
+	private transient boolean looked;
+
+	private transient MinioRestClient client;
+
+	/**
+	 * Creates the root directory of the artifacts stored below the key.
+	 */
+	public MinioVirtualFile(MinioClientFactory minioClientFactory, String bucketName, String key) {
+		this(minioClientFactory, bucketName, key, key);
+	}
+
+	private MinioVirtualFile(MinioClientFactory minioClientFactory, String bucketName, String key, String root) {
+		this.minioClientFactory = minioClientFactory;
+		this.bucketName = bucketName;
+		this.key = key;
+		this.root = root;
+	}
+
+	private MinioVirtualFile(MinioVirtualFile parent, String key, ObjectListing.Item item, boolean directory) {
+		this(parent.minioClientFactory, parent.bucketName, key, parent.root);
+		this.item = item;
+		this.directory = directory;
+		this.client = parent.client;
+	}
+
+	private synchronized MinioRestClient client() throws IOException {
+		if (client == null) {
+			client = minioClientFactory.createRestClient();
+		}
+		return client;
+	}
+
+	@Override
+	public String getName() {
+		return key.substring(key.lastIndexOf('/') + 1);
+	}
+
+	@Override
+	public URI toURI() {
+		try {
+			URI endpoint = URI.create(client().getEndpoint());
+			String path = endpoint.getPath() != null ? endpoint.getPath().replaceAll("/+$", "") : "";
+			return new URI(endpoint.getScheme(), endpoint.getAuthority(), path + "/" + bucketName + "/" + key,
+					null, null);
+		} catch (IOException | URISyntaxException e) {
+			throw new IllegalStateException("Invalid Minio server URL", e);
+		}
+	}
+
+	/**
+	 * Returns the parent directory, or this directory at the root of the
+	 * artifacts, so that the objects of other builds are out of reach.
+	 */
+	@Override
+	public VirtualFile getParent() {
+		int slash = key.lastIndexOf('/');
+		if (slash < 0 || key.equals(root)) {
+			return this;
+		}
+		return new MinioVirtualFile(minioClientFactory, bucketName, key.substring(0, slash), root);
+	}
+
+	@Override
+	public boolean isDirectory() throws IOException {
+		if (directory) {
+			return true;
+		}
+		if (item != null) {
+			return false;
+		}
+		ObjectListing listing = list(key + DELIMITER, DELIMITER, null);
+		return !listing.getItems().isEmpty() || !listing.getCommonPrefixes().isEmpty();
+	}
+
+	@Override
+	public boolean isFile() throws IOException {
+		return !directory && stat() != null;
+	}
+
+	@Override
+	public boolean exists() throws IOException {
+		return isFile() || isDirectory();
+	}
+
+	/**
+	 * Lists the files and directories of this directory, with their sizes
+	 * and modification times, one page after the other.
+	 */
+	@Override
+	public VirtualFile[] list() throws IOException {
+		List<VirtualFile> children = new ArrayList<>();
+		String prefix = key + DELIMITER;
+		String token = null;
+		do {
+			ObjectListing listing = list(prefix, DELIMITER, token);
+			for (String common : listing.getCommonPrefixes()) {
+				children.add(new MinioVirtualFile(this, common.substring(0, common.length() - 1), null, true));
+			}
+			for (ObjectListing.Item child : listing.getItems()) {
+				if (!child.getObjectName().endsWith(DELIMITER)) {
+					children.add(new MinioVirtualFile(this, child.getObjectName(), child, false));
+				}
+			}
+			token = listing.getNextToken();
+		} while (token != null);
+		return children.toArray(new VirtualFile[children.size()]);
+	}
+
+	/**
+	 * Returns the relative paths of the files below this directory which
+	 * match the Ant patterns, listing the whole subtree page by page.
+	 */
+	@Override
+	public String[] list(String glob) throws IOException {
+		GlobMatcher matcher = new GlobMatcher(glob, null);
+		List<String> paths = new ArrayList<>();
+		String prefix = key + DELIMITER;
+		String token = null;
+		do {
+			ObjectListing listing = list(prefix, null, token);
+			for (ObjectListing.Item child : listing.getItems()) {
+				String path = child.getObjectName().substring(prefix.length());
+				if (!path.isEmpty() && !path.endsWith(DELIMITER) && matcher.matches(path.split(DELIMITER))) {
+					paths.add(path);
+				}
+			}
+			token = listing.getNextToken();
+		} while (token != null);
+		return paths.toArray(new String[paths.size()]);
+	}
+
+	/**
+	 * Returns the file at the relative path below this directory. Empty and
+	 * <tt>.</tt> segments are ignored, and <tt>..</tt> segments refused, so
+	 * that a child never leads out of the artifacts.
+	 */
+	@Override
+	public VirtualFile child(String name) {
+		StringBuilder path = new StringBuilder(key);
+		for (String segment : name.split(DELIMITER)) {
+			if (segment.equals("..")) {
+				throw new IllegalArgumentException("Refusing the artifact path " + name);
+			}
+			if (!segment.isEmpty() && !segment.equals(".")) {
+				path.append(DELIMITER).append(segment);
+			}
+		}
+		return new MinioVirtualFile(minioClientFactory, bucketName, path.toString(), root);
+	}
+
+	@Override
+	public long length() throws IOException {
+		ObjectListing.Item stat = directory ? null : stat();
+		return stat != null ? stat.getSize() : 0;
+	}
+
+	@Override
+	public long lastModified() throws IOException {
+		ObjectListing.Item stat = directory ? null : stat();
+		return stat != null ? stat.getLastModified() : 0;
+	}
+
+	@Override
+	public boolean canRead() throws IOException {
+		return exists();
+	}
+
+	@Override
+	public InputStream open() throws IOException {
+		try {
+			return client().getObject(bucketName, key, 0, -1, null).getInputStream();
+		} catch (MinioRestException e) {
+			if (e.getStatus() == HttpURLConnection.HTTP_NOT_FOUND) {
+				throw new FileNotFoundException(key);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the object of the file, or null if there is none. The object
+	 * sorts first in the listing of the names starting with its own, which
+	 * carries its size and modification time in one request.
+	 */
+	private synchronized ObjectListing.Item stat() throws IOException {
+		if (item == null && !looked) {
+			ObjectListing listing = list(key, null, null);
+			if (!listing.getItems().isEmpty() && listing.getItems().get(0).getObjectName().equals(key)) {
+				item = listing.getItems().get(0);
+			}
+			looked = true;
+		}
+		return item;
+	}
+
+	private ObjectListing list(String prefix, String delimiter, String token) throws IOException {
+		try {
+			return client().listObjects(bucketName, prefix, delimiter, token);
+		} catch (MinioRestException e) {
+			if (e.getStatus() == HttpURLConnection.HTTP_NOT_FOUND) {
+				// no bucket, no artifacts
+				return new ObjectListing();
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof MinioVirtualFile && bucketName.equals(((MinioVirtualFile) other).bucketName)
+				&& key.equals(((MinioVirtualFile) other).key);
+	}
+
+	@Override
+	public int hashCode() {
+		return bucketName.hashCode() * 31 + key.hashCode();
+	}
+}
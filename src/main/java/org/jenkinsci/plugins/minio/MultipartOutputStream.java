@@ -0,0 +1,132 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uploads a stream of unknown length as one object. Data is buffered up to
+ * the part size, in a buffer of the shared {@link BufferPool}, and sent as the
+ * parts of a multipart upload; a stream which fits in a single part is sent
+ * as a plain object instead. Closing the stream completes the upload,
+ * {@link #abort()} discards it.
+ */
+public class MultipartOutputStream extends OutputStream {
+
+	private final MinioRestClient client;
+	private final String bucketName;
+	private final String objectName;
+	private final Map<String, String> headers;
+	private final int partSize;
+	private ByteBuffer buffer;
+	private final List<String> etags = new ArrayList<>();
+	private String uploadId;
+	private boolean closed;
+	private boolean finished;
+
+	public MultipartOutputStream(MinioRestClient client, String bucketName, String objectName,
+			Map<String, String> headers, long partSize) {
+		this.client = client;
+		this.bucketName = bucketName;
+		this.objectName = objectName;
+		this.headers = headers;
+		this.partSize = (int) Math.min(partSize, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the part buffer, taken from the shared {@link BufferPool} on
+	 * first use.
+	 */
+	private ByteBuffer buffer() throws IOException {
+		if (buffer == null) {
+			try {
+				buffer = BufferPool.SHARED.acquire(partSize);
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("Interrupted while waiting for an upload buffer");
+			}
+		}
+		return buffer;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (!buffer().hasRemaining()) {
+			flushPart();
+		}
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (!buffer().hasRemaining()) {
+				flushPart();
+			}
+			int n = Math.min(len, buffer.remaining());
+			buffer.put(b, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	private void flushPart() throws IOException {
+		if (uploadId == null) {
+			uploadId = client.initiateMultipartUpload(bucketName, objectName, headers);
+		}
+		buffer.flip();
+		etags.add(client.uploadPart(bucketName, objectName, uploadId, etags.size() + 1, buffer));
+		buffer.clear().limit(partSize);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (uploadId == null) {
+				buffer().flip();
+				client.putObject(bucketName, objectName, buffer, headers);
+			} else {
+				if (buffer.position() > 0) {
+					flushPart();
+				}
+				client.completeMultipartUpload(bucketName, objectName, uploadId, etags);
+			}
+			finished = true;
+		} finally {
+			releaseBuffer();
+		}
+	}
+
+	/**
+	 * Discards the upload, called instead of {@link #close()} on failure.
+	 */
+	public void abort() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		closed = true;
+		releaseBuffer();
+		if (uploadId != null) {
+			try {
+				client.abortMultipartUpload(bucketName, objectName, uploadId);
+			} catch (IOException e) {
+				// the original failure is more interesting than the abort failure
+			}
+		}
+	}
+
+	private void releaseBuffer() {
+		if (buffer != null) {
+			BufferPool.SHARED.release(buffer);
+			buffer = null;
+		}
+	}
+}
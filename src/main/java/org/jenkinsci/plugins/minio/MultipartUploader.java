@@ -0,0 +1,199 @@
+package org.jenkinsci.plugins.minio;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Uploads a single large file as a multipart upload. The file is split into
+ * parts, regions of one {@link FileChannel} streamed without holding a whole
+ * part in memory, which are uploaded concurrently, either over a bounded pool of its own or as
+ * tasks of a shared {@link UploadScheduler}.
+ */
+public class MultipartUploader {
+
+	/**
+	 * Smallest part size accepted by the server, except for the last part.
+	 */
+	public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+	/**
+	 * Default part size, can be overridden per job.
+	 */
+	public static final long DEFAULT_PART_SIZE = Long.getLong(MultipartUploader.class.getName() + ".partSize",
+			16L * 1024 * 1024);
+
+	/**
+	 * Default number of parts uploaded at the same time, can be overridden per
+	 * job.
+	 */
+	public static final int DEFAULT_CONCURRENCY = Integer.getInteger(MultipartUploader.class.getName()
+			+ ".concurrency", 4);
+
+	private static final int MAX_PARTS = 10000;
+
+	private final MinioRestClient client;
+	private final long partSize;
+	private final int concurrency;
+
+	public MultipartUploader(MinioRestClient client, long partSize, int concurrency) {
+		this.client = client;
+		this.partSize = partSize > 0 ? Math.max(partSize, MIN_PART_SIZE) : DEFAULT_PART_SIZE;
+		this.concurrency = concurrency > 0 ? concurrency : DEFAULT_CONCURRENCY;
+	}
+
+	/**
+	 * @return Returns the configured part size
+	 */
+	public long getPartSize() {
+		return partSize;
+	}
+
+	/**
+	 * @return Returns true if the file is large enough to be uploaded in parts
+	 */
+	public boolean accepts(long length) {
+		return length > partSize;
+	}
+
+	/**
+	 * Returns the part size to use for a file, growing the configured size
+	 * when the file would otherwise need more parts than the server allows.
+	 */
+	public long partSizeFor(long length) {
+		long size = partSize;
+		while ((length + size - 1) / size > MAX_PARTS) {
+			size *= 2;
+		}
+		return size;
+	}
+
+	/**
+	 * Uploads the file and completes the multipart upload. The upload is
+	 * aborted if any part fails.
+	 */
+	public void upload(File file, String bucketName, String objectName, Map<String, String> headers)
+			throws IOException, InterruptedException {
+		final ExecutorService executor = Executors.newFixedThreadPool(concurrency,
+				new NamingThreadFactory(new DaemonThreadFactory(), "Minio multipart upload " + objectName));
+		try {
+			get(uploadAsync(file, bucketName, objectName, headers, executor));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Starts the multipart upload of the file on the given executor. The part
+	 * uploads are submitted to the executor once the upload is initiated, and
+	 * the upload is completed, or aborted, by whichever task finishes last.
+	 */
+	public CompletableFuture<Void> uploadAsync(final File file, final String bucketName, final String objectName,
+			final Map<String, String> headers, final Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return client.initiateMultipartUpload(bucketName, objectName, headers);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}, executor).thenCompose(uploadId -> uploadParts(file, bucketName, objectName, uploadId, executor));
+	}
+
+	private CompletableFuture<Void> uploadParts(File file, final String bucketName, final String objectName,
+			final String uploadId, Executor executor) {
+		final long length = file.length();
+		final long size = partSizeFor(length);
+		final int parts = (int) ((length + size - 1) / size);
+
+		final FileChannel channel;
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		} catch (IOException e) {
+			abortQuietly(bucketName, objectName, uploadId);
+			throw new CompletionException(e);
+		}
+
+		final List<CompletableFuture<String>> futures = new ArrayList<>(parts);
+		for (int i = 0; i < parts; i++) {
+			final int partNumber = i + 1;
+			final long position = i * size;
+			final long partLength = Math.min(size, length - position);
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return client.uploadPart(bucketName, objectName, uploadId, partNumber,
+							new FileRegion(channel, position, partLength));
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}, executor));
+		}
+
+		CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[parts]));
+		return all.handle((ignored, failure) -> {
+			closeQuietly(channel);
+			if (failure == null) {
+				try {
+					List<String> etags = new ArrayList<>(parts);
+					for (CompletableFuture<String> future : futures) {
+						etags.add(future.join());
+					}
+					client.completeMultipartUpload(bucketName, objectName, uploadId, etags);
+					return null;
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			abortQuietly(bucketName, objectName, uploadId);
+			throw failure instanceof CompletionException ? (CompletionException) failure
+					: new CompletionException(failure);
+		});
+	}
+
+	private void abortQuietly(String bucketName, String objectName, String uploadId) {
+		try {
+			client.abortMultipartUpload(bucketName, objectName, uploadId);
+		} catch (IOException e) {
+			// the original failure is more interesting than the abort failure
+		}
+	}
+
+	private static void closeQuietly(FileChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// nothing was written, there is nothing to lose
+		}
+	}
+
+	/**
+	 * Waits for a future, unwrapping the failure of the task.
+	 */
+	static <T> T get(Future<T> future) throws IOException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Sends PUT requests with presigned URLs over one kept-alive connection,
+ * writing the bodies from the file to the socket with
+ * {@link FileChannel#transferTo}. Only the status and the headers needed by
+ * uploads are read from the responses. An instance is used by one thread at a
+ * time.
+ * <p>
+ * Plain sockets cannot carry TLS, so for <tt>https</tt> servers the requests
+ * go through {@link HttpURLConnection}, whose connections are kept alive by
+ * the JDK. Its output stream is not a socket channel, so those bodies are
+ * copied through a heap buffer and encrypted in user space.
+ */
+public final class NioHttpSender implements Closeable {
+
+	private final URL endpoint;
+	private final boolean secure;
+	private final String host;
+
+	private SocketChannel channel;
+	private InputStream in;
+
+	public NioHttpSender(String endpoint) throws IOException {
+		this.endpoint = new URL(endpoint);
+		this.secure = "https".equals(this.endpoint.getProtocol());
+		int port = this.endpoint.getPort();
+		this.host = port == -1 || port == this.endpoint.getDefaultPort() ? this.endpoint.getHost()
+				: this.endpoint.getHost() + ":" + port;
+	}
+
+	/**
+	 * Sends a region of a file to the path and query of a presigned URL.
+	 *
+	 * @return Returns the ETag of the object or part
+	 */
+	public String put(String target, FileRegion body) throws IOException {
+		if (secure) {
+			return putWithConnection(target, body);
+		}
+		boolean reused = channel != null;
+		try {
+			return send(target, body);
+		} catch (MinioRestException e) {
+			throw e;
+		} catch (IOException e) {
+			close();
+			if (!reused) {
+				throw e;
+			}
+			// the server closed the idle connection, try once more on a new one
+			return send(target, body);
+		}
+	}
+
+	private String send(String target, FileRegion body) throws IOException {
+		if (channel == null) {
+			connect();
+		}
+		String head = "PUT " + target + " HTTP/1.1\r\nHost: " + host + "\r\nContent-Type: "
+				+ ObjectUploader.CONTENT_TYPE + "\r\nContent-Length: " + body.getLength() + "\r\n\r\n";
+		ByteBuffer buffer = ByteBuffer.wrap(head.getBytes(StandardCharsets.US_ASCII));
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		body.transferTo(channel);
+
+		int code = status(readLine());
+		while (code == 100) {
+			readLine();
+			code = status(readLine());
+		}
+		long length = -1;
+		boolean chunked = false;
+		boolean keepAlive = true;
+		String etag = null;
+		for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+			int colon = line.indexOf(':');
+			if (colon < 0) {
+				continue;
+			}
+			String name = line.substring(0, colon).trim().toLowerCase(Locale.ENGLISH);
+			String value = line.substring(colon + 1).trim();
+			if ("content-length".equals(name)) {
+				length = Long.parseLong(value);
+			} else if ("transfer-encoding".equals(name)) {
+				chunked = value.toLowerCase(Locale.ENGLISH).contains("chunked");
+			} else if ("connection".equals(name)) {
+				keepAlive = !"close".equalsIgnoreCase(value);
+			} else if ("etag".equals(name)) {
+				etag = value;
+			}
+		}
+		if (code == 204 || code == 304) {
+			// no body, whatever the headers say
+			length = 0;
+			chunked = false;
+		}
+		String text = readBody(length, chunked);
+		if (!keepAlive || (length < 0 && !chunked)) {
+			close();
+		}
+		if (code >= 300) {
+			throw new MinioRestException(code, MinioRestClient.xmlValue(text, "Code"),
+					MinioRestClient.xmlValue(text, "Message"));
+		}
+		return etag;
+	}
+
+	private void connect() throws IOException {
+		channel = SocketChannel.open();
+		try {
+			channel.socket().setTcpNoDelay(true);
+			channel.socket().setSoTimeout(MinioRestClient.READ_TIMEOUT);
+			int port = endpoint.getPort() != -1 ? endpoint.getPort() : endpoint.getDefaultPort();
+			channel.socket().connect(new InetSocketAddress(endpoint.getHost(), port),
+					MinioRestClient.CONNECT_TIMEOUT);
+			// read through the socket stream, which honours the read timeout
+			in = new BufferedInputStream(channel.socket().getInputStream());
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private String readLine() throws IOException {
+		StringBuilder line = new StringBuilder();
+		while (true) {
+			int c = in.read();
+			if (c == -1) {
+				throw new EOFException("Connection closed by " + host);
+			}
+			if (c == '\n') {
+				int end = line.length();
+				return end > 0 && line.charAt(end - 1) == '\r' ? line.substring(0, end - 1) : line.toString();
+			}
+			line.append((char) c);
+		}
+	}
+
+	/**
+	 * Reads the response body, which is short for uploads: empty, or an
+	 * error document.
+	 */
+	private String readBody(long length, boolean chunked) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		if (chunked) {
+			for (long size = chunkSize(readLine()); size > 0; size = chunkSize(readLine())) {
+				copy(size, out);
+				readLine();
+			}
+			// skip the trailers
+			String trailer;
+			do {
+				trailer = readLine();
+			} while (!trailer.isEmpty());
+		} else if (length >= 0) {
+			copy(length, out);
+		} else {
+			for (int c = in.read(); c != -1; c = in.read()) {
+				out.write(c);
+			}
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private int status(String line) throws IOException {
+		String[] fields = line.split(" ");
+		try {
+			return Integer.parseInt(fields[1]);
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			throw new IOException("Unexpected response from " + host + ": " + line);
+		}
+	}
+
+	private static long chunkSize(String line) {
+		int semicolon = line.indexOf(';');
+		return Long.parseLong((semicolon < 0 ? line : line.substring(0, semicolon)).trim(), 16);
+	}
+
+	private void copy(long length, OutputStream out) throws IOException {
+		byte[] buf = new byte[8192];
+		while (length > 0) {
+			int n = in.read(buf, 0, (int) Math.min(buf.length, length));
+			if (n == -1) {
+				throw new EOFException("Connection closed by " + host);
+			}
+			out.write(buf, 0, n);
+			length -= n;
+		}
+	}
+
+	private String putWithConnection(String target, FileRegion body) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) new URL(endpoint, target).openConnection();
+		conn.setRequestMethod("PUT");
+		conn.setRequestProperty("Content-Type", ObjectUploader.CONTENT_TYPE);
+		conn.setConnectTimeout(MinioRestClient.CONNECT_TIMEOUT);
+		conn.setReadTimeout(MinioRestClient.READ_TIMEOUT);
+		conn.setFixedLengthStreamingMode(body.getLength());
+		conn.setDoOutput(true);
+		try (OutputStream out = conn.getOutputStream()) {
+			body.transferTo(Channels.newChannel(out));
+		}
+		MinioRestClient.readBody(conn);
+		return conn.getHeaderField("ETag");
+	}
+
+	@Override
+	public void close() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// nothing left to send
+			}
+			channel = null;
+			in = null;
+		}
+	}
+}
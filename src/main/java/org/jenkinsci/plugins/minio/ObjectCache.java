@@ -0,0 +1,456 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Node;
+
+/**
+ * Disk cache of objects on an agent, shared by the executors of the agent.
+ * Each object is stored under the hash of its server, bucket and name, next
+ * to a file holding its ETag. Cached objects are read-only, as they are
+ * hard-linked into the workspaces where the file system allows it; a cached
+ * object whose size or modification time changed, because it was modified
+ * through a workspace anyway, is evicted and downloaded again. Files of the
+ * workspace are copied into the cache, never linked, so that caching them
+ * does not make them read-only. The cache
+ * is bounded in size and evicts the least recently used objects first, except
+ * those being copied out; the order of use survives restarts of the agent as
+ * the modification time of the ETag files.
+ */
+public final class ObjectCache {
+
+	private static final Logger LOGGER = Logger.getLogger(ObjectCache.class.getName());
+
+	/**
+	 * Directory of the cache below the root directory of the agent.
+	 */
+	static final String DIRECTORY = "minio-cache";
+
+	/**
+	 * Size of the cached objects above which the least recently used ones are
+	 * evicted, in bytes.
+	 */
+	static final long MAX_BYTES = Long.getLong(ObjectCache.class.getName() + ".maxBytes",
+			10L * 1024 * 1024 * 1024);
+
+	/**
+	 * Whether cached objects are copied into the workspaces instead of
+	 * hard-linked, so that the builds may modify them.
+	 */
+	static final boolean COPY = Boolean.getBoolean(ObjectCache.class.getName() + ".copy");
+
+	private static final String ETAG_SUFFIX = ".etag";
+	private static final String TMP_SUFFIX = ".tmp";
+
+	private static final ConcurrentMap<Path, ObjectCache> CACHES = new ConcurrentHashMap<>();
+
+	/**
+	 * Cached object, pinned while it is copied out.
+	 */
+	private static final class Entry {
+		private final String etag;
+		private final long size;
+
+		/**
+		 * Modification time of the cached file, which changes if it is
+		 * modified through a workspace it is linked into.
+		 */
+		private final long modified;
+		private int pins;
+
+		Entry(String etag, BasicFileAttributes attrs) {
+			this.etag = etag;
+			this.size = attrs.size();
+			this.modified = attrs.lastModifiedTime().toMillis();
+		}
+	}
+
+	private final Path dir;
+	private final long maxBytes;
+
+	/**
+	 * Cached objects from the least recently used, guarded by the cache.
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long size;
+
+	private ObjectCache(Path dir, long maxBytes) {
+		this.dir = dir;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the cache of the directory, loading it on first use.
+	 */
+	static ObjectCache at(File directory) throws IOException {
+		Path dir = directory.toPath().toAbsolutePath().normalize();
+		ObjectCache cache = CACHES.get(dir);
+		if (cache == null) {
+			synchronized (CACHES) {
+				cache = CACHES.get(dir);
+				if (cache == null) {
+					cache = new ObjectCache(dir, MAX_BYTES);
+					cache.load();
+					CACHES.put(dir, cache);
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Returns the path of the cache of the agent of the workspace, or null if
+	 * the agent is gone. Called on the controller.
+	 */
+	static String locate(FilePath ws) {
+		Computer computer = ws.toComputer();
+		Node node = computer != null ? computer.getNode() : null;
+		FilePath root = node != null ? node.getRootPath() : null;
+		return root != null ? root.child(DIRECTORY).getRemote() : null;
+	}
+
+	/**
+	 * Returns the name of the cached copy of an object.
+	 */
+	static String key(String endpoint, String bucketName, String objectName) throws IOException {
+		return MinioRestClient.hex(MinioRestClient.sha256(endpoint + '\n' + bucketName + '\n' + objectName));
+	}
+
+	/**
+	 * Indexes the objects left by the previous runs of the agent and deletes
+	 * the incomplete ones.
+	 */
+	private synchronized void load() throws IOException {
+		MinioSpooler.createPrivateDirectory(dir);
+		List<Path> etagFiles = new ArrayList<>();
+		final Map<Path, Long> used = new HashMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				if (name.endsWith(TMP_SUFFIX)) {
+					// left by an interrupted download
+					delete(file);
+				} else if (name.endsWith(ETAG_SUFFIX)) {
+					etagFiles.add(file);
+					used.put(file, Files.getLastModifiedTime(file).toMillis());
+				}
+			}
+		}
+		Collections.sort(etagFiles, new Comparator<Path>() {
+			@Override
+			public int compare(Path a, Path b) {
+				return Long.compare(used.get(a), used.get(b));
+			}
+		});
+		for (Path etagFile : etagFiles) {
+			String name = etagFile.getFileName().toString();
+			String key = name.substring(0, name.length() - ETAG_SUFFIX.length());
+			Path data = dir.resolve(key);
+			if (!Files.isRegularFile(data)) {
+				delete(etagFile);
+				continue;
+			}
+			Entry entry = new Entry(new String(Files.readAllBytes(etagFile), StandardCharsets.UTF_8),
+					Files.readAttributes(data, BasicFileAttributes.class));
+			entries.put(key, entry);
+			size += entry.size;
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				if (!name.endsWith(ETAG_SUFFIX) && !entries.containsKey(name)) {
+					// its ETag file was never written
+					delete(file);
+				}
+			}
+		}
+		evict();
+	}
+
+	/**
+	 * Copies the cached object into the target file, replacing it, if the
+	 * cache holds the object with the given ETag.
+	 *
+	 * @return Returns false if the object is not cached, or is cached with
+	 *         another ETag
+	 */
+	boolean copyTo(String key, String etag, Path target) throws IOException {
+		Entry entry = pin(key);
+		if (entry == null) {
+			return false;
+		}
+		try {
+			return entry.etag.equals(etag) && copy(key, entry, target);
+		} finally {
+			unpin(entry);
+		}
+	}
+
+	/**
+	 * Opens the object through the cache. The cached copy is revalidated
+	 * with a conditional request and read from the disk if still current;
+	 * otherwise the object is downloaded into the cache first.
+	 */
+	InputStream open(MinioRestClient client, String bucketName, String objectName) throws IOException {
+		String key = key(client.getEndpoint(), bucketName, objectName);
+		Entry entry = pin(key);
+		HttpURLConnection conn;
+		try {
+			if (entry != null && !intact(key, entry)) {
+				remove(key, entry);
+				unpin(entry);
+				entry = null;
+			}
+			conn = client.getObjectIfNoneMatch(bucketName, objectName, entry != null ? entry.etag : null);
+			if (conn.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				// opened before the entry is unpinned, so that it cannot be evicted first
+				InputStream in = Files.newInputStream(dir.resolve(key));
+				touch(key);
+				return in;
+			}
+		} finally {
+			if (entry != null) {
+				unpin(entry);
+			}
+		}
+		String etag = conn.getHeaderField("ETag");
+		long length = conn.getContentLengthLong();
+		if (etag == null || length > maxBytes) {
+			return conn.getInputStream();
+		}
+		Path tmp = dir.resolve(key + "." + UUID.randomUUID() + TMP_SUFFIX);
+		try {
+			try (InputStream in = conn.getInputStream()) {
+				Files.copy(in, tmp);
+			}
+			if (length >= 0 && Files.size(tmp) != length) {
+				throw new IOException(
+						String.format("Received %d bytes of %s instead of %d", Files.size(tmp), objectName, length));
+			}
+			// opened before it is moved, so that an eviction cannot remove it
+			InputStream in = Files.newInputStream(tmp);
+			adopt(key, etag, tmp);
+			return in;
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Adds a copy of a downloaded file to the cache as the object with the
+	 * ETag, and evicts the least recently used objects beyond the size of the
+	 * cache. The file is copied rather than linked, as the cached object is
+	 * made read-only and the file belongs to the workspace. The cache is only
+	 * an optimization, so failures are logged but not thrown.
+	 */
+	void put(String key, String etag, Path file) {
+		Path tmp = dir.resolve(key + "." + UUID.randomUUID() + TMP_SUFFIX);
+		try {
+			if (etag == null || Files.size(file) > maxBytes) {
+				return;
+			}
+			Files.copy(file, tmp);
+			adopt(key, etag, tmp);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to cache " + file, e);
+		} finally {
+			try {
+				Files.deleteIfExists(tmp);
+			} catch (IOException e) {
+				// deleted when the agent restarts
+			}
+		}
+	}
+
+	/**
+	 * Moves a complete temporary file in place as the cached object. An
+	 * object being copied out is not replaced.
+	 */
+	private void adopt(String key, String etag, Path tmp) throws IOException {
+		tmp.toFile().setWritable(false, false);
+		BasicFileAttributes attrs = Files.readAttributes(tmp, BasicFileAttributes.class);
+		Path etagTmp = dir.resolve(key + "." + UUID.randomUUID() + ETAG_SUFFIX + TMP_SUFFIX);
+		Files.write(etagTmp, etag.getBytes(StandardCharsets.UTF_8));
+		try {
+			synchronized (this) {
+				Entry old = entries.get(key);
+				if (old != null && old.pins > 0) {
+					return;
+				}
+				Path etagFile = dir.resolve(key + ETAG_SUFFIX);
+				// a crash between the moves leaves an object without ETag,
+				// deleted when the agent restarts
+				Files.deleteIfExists(etagFile);
+				if (old != null) {
+					entries.remove(key);
+					size -= old.size;
+				}
+				Files.move(tmp, dir.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+				Files.move(etagTmp, etagFile, StandardCopyOption.ATOMIC_MOVE);
+				Entry entry = new Entry(etag, attrs);
+				entries.put(key, entry);
+				size += entry.size;
+				evict();
+			}
+		} finally {
+			Files.deleteIfExists(etagTmp);
+		}
+	}
+
+	/**
+	 * Copies a pinned object into the target. Returns false if the object was
+	 * deleted or modified through a workspace it was linked into, in which
+	 * case it is evicted.
+	 */
+	private boolean copy(String key, Entry entry, Path target) throws IOException {
+		Path data = dir.resolve(key);
+		try {
+			if (!intact(key, entry)) {
+				remove(key, entry);
+				return false;
+			}
+			Files.deleteIfExists(target);
+			if (COPY || !link(data, target)) {
+				if (COPY) {
+					Files.copy(data, target);
+				}
+				// a copy belongs to the workspace
+				target.toFile().setWritable(true);
+			}
+		} catch (NoSuchFileException e) {
+			remove(key, entry);
+			return false;
+		}
+		touch(key);
+		return true;
+	}
+
+	/**
+	 * Tells whether the cached file is still there with the size and
+	 * modification time it was cached with.
+	 */
+	private boolean intact(String key, Entry entry) throws IOException {
+		BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(dir.resolve(key), BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+		return attrs.size() == entry.size && attrs.lastModifiedTime().toMillis() == entry.modified;
+	}
+
+	/**
+	 * Hard-links the file to the target, or copies it where the file system
+	 * does not allow it.
+	 *
+	 * @return Returns false if the file was copied
+	 */
+	private static boolean link(Path file, Path target) throws IOException {
+		try {
+			Files.createLink(target, file);
+			return true;
+		} catch (NoSuchFileException e) {
+			throw e;
+		} catch (IOException | UnsupportedOperationException e) {
+			// another file system, or no hard links on this one
+			Files.copy(file, target);
+			return false;
+		}
+	}
+
+	/**
+	 * Records the use of the object for the next runs of the agent.
+	 */
+	private void touch(String key) {
+		try {
+			Files.setLastModifiedTime(dir.resolve(key + ETAG_SUFFIX), FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// the order of use is only approximate
+		}
+	}
+
+	private synchronized Entry pin(String key) {
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			entry.pins++;
+		}
+		return entry;
+	}
+
+	private synchronized void unpin(Entry entry) {
+		entry.pins--;
+	}
+
+	private synchronized void remove(String key, Entry entry) {
+		if (entries.get(key) == entry) {
+			entries.remove(key);
+			size -= entry.size;
+			deleteObject(key);
+		}
+	}
+
+	/**
+	 * Evicts the least recently used objects which are not pinned until the
+	 * cache fits in its size.
+	 */
+	private synchronized void evict() {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (size > maxBytes && iterator.hasNext()) {
+			Map.Entry<String, Entry> eldest = iterator.next();
+			if (eldest.getValue().pins > 0) {
+				continue;
+			}
+			iterator.remove();
+			size -= eldest.getValue().size;
+			deleteObject(eldest.getKey());
+		}
+	}
+
+	private void deleteObject(String key) {
+		try {
+			delete(dir.resolve(key + ETAG_SUFFIX));
+			delete(dir.resolve(key));
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to evict " + key + " from " + dir, e);
+		}
+	}
+
+	/**
+	 * Deletes a file, even a read-only one where the file system forbids it.
+	 */
+	private static void delete(Path file) throws IOException {
+		try {
+			Files.deleteIfExists(file);
+		} catch (AccessDeniedException e) {
+			file.toFile().setWritable(true);
+			Files.deleteIfExists(file);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of the objects of a bucket below a prefix, as listed by
+ * {@link MinioRestClient#listObjects}.
+ */
+public final class ObjectListing {
+
+	/**
+	 * Object of the listing.
+	 */
+	public static final class Item implements Serializable {
+		private static final long serialVersionUID = 1;
+
+		private final String objectName;
+		private final long size;
+		private final String etag;
+		private final long lastModified;
+
+		public Item(String objectName, long size, String etag, long lastModified) {
+			this.objectName = objectName;
+			this.size = size;
+			this.etag = etag;
+			this.lastModified = lastModified;
+		}
+
+		public String getObjectName() {
+			return objectName;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+	}
+
+	private final List<Item> items = new ArrayList<>();
+	private final List<String> commonPrefixes = new ArrayList<>();
+	private String nextToken;
+
+	void add(Item item) {
+		items.add(item);
+	}
+
+	void addCommonPrefix(String prefix) {
+		commonPrefixes.add(prefix);
+	}
+
+	void setNextToken(String nextToken) {
+		this.nextToken = nextToken;
+	}
+
+	public List<Item> getItems() {
+		return Collections.unmodifiableList(items);
+	}
+
+	/**
+	 * @return Returns the prefixes ending with the delimiter, when the
+	 *         listing was delimited
+	 */
+	public List<String> getCommonPrefixes() {
+		return Collections.unmodifiableList(commonPrefixes);
+	}
+
+	/**
+	 * @return Returns the token of the next page, or null if this page is
+	 *         the last one
+	 */
+	public String getNextToken() {
+		return nextToken;
+	}
+}
@@ -0,0 +1,216 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Uploads files from the agent to one bucket, reusing the same clients for
+ * every file. Large files are sent as multipart uploads, and compressible
+ * files can be compressed on the way. If the bucket has disappeared, it is
+ * created again and the upload retried once.
+ */
+public class ObjectUploader {
+
+	static final String CONTENT_TYPE = "application/octet-stream";
+
+	/**
+	 * Object metadata holding the MD5 digest of the uploaded file, in
+	 * hexadecimal.
+	 */
+	static final String HASH_HEADER = "X-Amz-Meta-Jenkins-Md5";
+
+	private static final Map<String, String> HEADERS = Collections.singletonMap("Content-Type", CONTENT_TYPE);
+
+	private final MinioRestClient client;
+	private final MultipartUploader multipartUploader;
+	private final String bucketName;
+	private final AtomicBoolean bucketMissing = new AtomicBoolean();
+	private UploadManifest manifest;
+	private UploadCodec codec = UploadCodec.NONE;
+
+	public ObjectUploader(MinioClientFactory minioClientFactory, String bucketName, long partSize,
+			int concurrency) throws IOException {
+		this.client = minioClientFactory.createRestClient();
+		this.multipartUploader = new MultipartUploader(client, partSize, concurrency);
+		this.bucketName = bucketName;
+	}
+
+	/**
+	 * Uploads the file as the given object.
+	 */
+	public void upload(File file, String objectName) throws IOException, InterruptedException {
+		try {
+			attempt(file, objectName);
+		} catch (MinioRestException e) {
+			if (!isNoSuchBucket(e)) {
+				throw e;
+			}
+			recreateBucket();
+			attempt(file, objectName);
+		}
+	}
+
+	/**
+	 * Starts the upload of the file on the given executor. Large files are
+	 * split into part tasks on the same executor. With a manifest set, files
+	 * whose content hash matches the one recorded on the object are skipped.
+	 *
+	 * @return Returns a future which is true if the file was uploaded, false
+	 *         if it was skipped
+	 */
+	public CompletableFuture<Boolean> uploadAsync(final File file, final String relativePath,
+			final String objectName, final Executor executor) {
+		if (manifest == null) {
+			return uploadAsync(file, objectName, HEADERS, executor).thenApply(ignored -> true);
+		}
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				String hash = manifest.hash(file, relativePath);
+				String remote = client.headObject(bucketName, objectName, HASH_HEADER);
+				return hash.equals(remote) ? null : hash;
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}, executor).thenCompose(hash -> {
+			if (hash == null) {
+				return CompletableFuture.completedFuture(false);
+			}
+			Map<String, String> headers = new HashMap<>(HEADERS);
+			headers.put(HASH_HEADER, hash);
+			return uploadAsync(file, objectName, headers, executor).thenApply(ignored -> true);
+		});
+	}
+
+	private CompletableFuture<Void> uploadAsync(final File file, final String objectName,
+			final Map<String, String> headers, final Executor executor) {
+		return attemptAsync(file, objectName, headers, executor).handle((ignored, failure) -> failure)
+				.thenCompose(failure -> {
+					if (failure == null) {
+						return CompletableFuture.completedFuture(null);
+					}
+					if (!isNoSuchBucket(failure)) {
+						throw failure instanceof CompletionException ? (CompletionException) failure
+								: new CompletionException(failure);
+					}
+					try {
+						recreateBucket();
+					} catch (IOException e) {
+						throw new CompletionException(e);
+					}
+					return attemptAsync(file, objectName, headers, executor);
+				});
+	}
+
+	/**
+	 * Enables skipping unchanged files, using the manifest to avoid hashing
+	 * files which have not been modified.
+	 */
+	public void setManifest(UploadManifest manifest) {
+		this.manifest = manifest;
+	}
+
+	/**
+	 * Sets the codec applied to compressible files.
+	 */
+	public void setCodec(UploadCodec codec) {
+		this.codec = codec != null ? codec : UploadCodec.NONE;
+	}
+
+	/**
+	 * @return Returns true if an upload found the bucket missing
+	 */
+	public boolean isBucketMissing() {
+		return bucketMissing.get();
+	}
+
+	private void attempt(File file, String objectName) throws IOException, InterruptedException {
+		if (multipartUploader.accepts(file.length())) {
+			// large files are split into parts which are uploaded concurrently
+			multipartUploader.upload(file, bucketName, objectName, HEADERS);
+		} else {
+			client.putObject(bucketName, objectName, file, HEADERS);
+		}
+	}
+
+	private CompletableFuture<Void> attemptAsync(final File file, final String objectName,
+			final Map<String, String> headers, final Executor executor) {
+		if (codec == UploadCodec.NONE) {
+			return attemptRawAsync(file, objectName, headers, executor);
+		}
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return UploadCodec.isCompressible(file);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}, executor).thenCompose(compressible -> {
+			if (!compressible) {
+				return attemptRawAsync(file, objectName, headers, executor);
+			}
+			return CompletableFuture.runAsync(() -> {
+				try {
+					putCompressed(file, objectName, headers);
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}, executor);
+		});
+	}
+
+	private CompletableFuture<Void> attemptRawAsync(final File file, final String objectName,
+			final Map<String, String> headers, Executor executor) {
+		if (multipartUploader.accepts(file.length())) {
+			return multipartUploader.uploadAsync(file, bucketName, objectName, headers, executor);
+		}
+		return CompletableFuture.runAsync(() -> {
+			try {
+				client.putObject(bucketName, objectName, file, headers);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Streams the file through the codec into the object, in parts if the
+	 * compressed content does not fit in one.
+	 */
+	private void putCompressed(File file, String objectName, Map<String, String> headers) throws IOException {
+		Map<String, String> compressedHeaders = new HashMap<>(headers);
+		compressedHeaders.put("Content-Encoding", codec.getEncoding());
+		compressedHeaders.put(UploadCodec.CODEC_HEADER, codec.getEncoding());
+		MultipartOutputStream target = new MultipartOutputStream(client, bucketName, objectName,
+				compressedHeaders, multipartUploader.getPartSize());
+		try {
+			OutputStream out = codec.compress(target);
+			Files.copy(file.toPath(), out);
+			out.close();
+		} catch (IOException | RuntimeException e) {
+			target.abort();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates the bucket once, however many uploads found it missing.
+	 */
+	private synchronized void recreateBucket() throws IOException {
+		if (bucketMissing.compareAndSet(false, true)) {
+			client.makeBucket(bucketName);
+		}
+	}
+
+	static boolean isNoSuchBucket(Throwable failure) {
+		Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+		return cause instanceof MinioRestException && "NoSuchBucket".equals(((MinioRestException) cause).getCode());
+	}
+}
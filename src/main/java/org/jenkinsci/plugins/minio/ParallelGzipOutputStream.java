@@ -0,0 +1,110 @@
+package org.jenkinsci.plugins.minio;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip output stream which compresses fixed-size blocks in parallel. Each
+ * block becomes a complete gzip member and the members are written in order,
+ * which is a valid gzip stream as defined by RFC 1952. At most a window of
+ * blocks is in flight, so memory use does not depend on the input size.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+	static final int BLOCK_SIZE = 1024 * 1024;
+
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Compression is CPU bound, so all uploads of the JVM share one pool
+	 * sized to the processors.
+	 */
+	private static final ExecutorService COMPRESSORS = Executors.newFixedThreadPool(THREADS,
+			new NamingThreadFactory(new DaemonThreadFactory(), "Minio compression"));
+
+	private final OutputStream out;
+	private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+	private byte[] block = new byte[BLOCK_SIZE];
+	private int count;
+	private boolean written;
+
+	public ParallelGzipOutputStream(OutputStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (count == block.length) {
+			submit();
+		}
+		block[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (count == block.length) {
+				submit();
+			}
+			int n = Math.min(len, block.length - count);
+			System.arraycopy(b, off, block, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	private void submit() throws IOException {
+		final byte[] data = block;
+		final int length = count;
+		pending.add(COMPRESSORS.submit(() -> gzip(data, length)));
+		block = new byte[BLOCK_SIZE];
+		count = 0;
+		written = true;
+		while (pending.size() > 2 * THREADS) {
+			out.write(take());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		// an empty input still needs one member to be a valid gzip stream
+		if (count > 0 || !written) {
+			submit();
+		}
+		while (!pending.isEmpty()) {
+			out.write(take());
+		}
+		out.close();
+	}
+
+	private byte[] take() throws IOException {
+		try {
+			return pending.poll().get();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Compression interrupted");
+		} catch (ExecutionException e) {
+			throw new IOException("Compression failed", e.getCause());
+		}
+	}
+
+	private static byte[] gzip(byte[] data, int length) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 2 + 64);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes, 64 * 1024)) {
+			gzip.write(data, 0, length);
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,94 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Spool jobs whose result is not collected yet, kept in a file of the
+ * controller. Builds are loaded lazily after a restart, so their
+ * {@link MinioSpoolAction} would not be tracked again until someone opens
+ * them; the file names the build of each job, which {@link SpoolMonitor}
+ * loads to go on collecting. Each line holds the id of a job and the
+ * externalizable id of its build, separated by a tab.
+ */
+final class PendingSpoolJobs {
+
+	private final File file;
+
+	/**
+	 * Build of each job, by job id.
+	 */
+	private final Map<String, String> jobs = new LinkedHashMap<>();
+
+	/**
+	 * Reads the jobs of the file, starting empty if it does not exist.
+	 */
+	PendingSpoolJobs(File file) throws IOException {
+		this.file = file;
+		if (!file.isFile()) {
+			return;
+		}
+		try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				int tab = line.indexOf('\t');
+				if (tab > 0) {
+					jobs.put(line.substring(0, tab), line.substring(tab + 1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records a job and its build, writing the file if it is new.
+	 */
+	synchronized void add(String spoolId, String runId) throws IOException {
+		if (!runId.equals(jobs.put(spoolId, runId))) {
+			save();
+		}
+	}
+
+	/**
+	 * Forgets a job once its result is collected or it is lost.
+	 */
+	synchronized void remove(String spoolId) throws IOException {
+		if (jobs.remove(spoolId) != null) {
+			save();
+		}
+	}
+
+	/**
+	 * @return Returns a copy of the build of each job, by job id
+	 */
+	synchronized Map<String, String> getJobs() {
+		return new LinkedHashMap<>(jobs);
+	}
+
+	/**
+	 * Writes the file again, atomically.
+	 */
+	private void save() throws IOException {
+		File dir = file.getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Could not create " + dir);
+		}
+		Path tmp = new File(file.getPath() + ".tmp").toPath();
+		try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, String> job : jobs.entrySet()) {
+				out.write(job.getKey());
+				out.write('\t');
+				out.write(job.getValue());
+				out.newLine();
+			}
+		}
+		Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
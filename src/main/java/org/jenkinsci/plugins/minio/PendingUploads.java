@@ -0,0 +1,176 @@
+package org.jenkinsci.plugins.minio;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Uploads started by the <tt>minioUpload</tt> step, by handle, until a
+ * <tt>minioAwait</tt> step collects them. One watcher thread polls the remote
+ * futures of the uploads, and of the other asynchronous steps, and turns each
+ * into a {@link CompletableFuture}, so that neither awaiting steps nor
+ * outstanding calls hold a thread. Uploads which are never awaited are
+ * forgotten an hour after they finished.
+ */
+final class PendingUploads {
+
+	private static final Logger LOGGER = Logger.getLogger(PendingUploads.class.getName());
+
+	private static final long RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	/**
+	 * Interval at which the remote futures are polled.
+	 */
+	private static final long POLL_MILLIS = 100;
+
+	private static final Queue<Watch<?>> WATCHED = new ConcurrentLinkedQueue<>();
+
+	private static final ScheduledExecutorService WATCHER = Executors.newSingleThreadScheduledExecutor(
+			new NamingThreadFactory(new DaemonThreadFactory(), "Minio remote call watcher"));
+
+	static {
+		WATCHER.scheduleWithFixedDelay(PendingUploads::poll, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private static final Map<String, PendingUpload> UPLOADS = new ConcurrentHashMap<>();
+
+	private PendingUploads() {
+	}
+
+	/**
+	 * Upload running on an agent.
+	 */
+	static final class PendingUpload {
+		private final String serverURL;
+		private final String bucketName;
+		private final Future<UploadSummary> remote;
+		private final CompletableFuture<UploadSummary> result;
+		private volatile long finishedAt;
+
+		PendingUpload(String serverURL, String bucketName, Future<UploadSummary> remote) {
+			this.serverURL = serverURL;
+			this.bucketName = bucketName;
+			this.remote = remote;
+			this.result = watch(remote);
+		}
+
+		String getServerURL() {
+			return serverURL;
+		}
+
+		String getBucketName() {
+			return bucketName;
+		}
+
+		CompletableFuture<UploadSummary> getResult() {
+			return result;
+		}
+
+		/**
+		 * Interrupts the upload on the agent.
+		 */
+		void cancel() {
+			remote.cancel(true);
+		}
+	}
+
+	/**
+	 * Registers an upload started on an agent and returns its handle.
+	 */
+	static String register(String serverURL, String bucketName, Future<UploadSummary> remote) {
+		purge();
+		final PendingUpload upload = new PendingUpload(serverURL, bucketName, remote);
+		String handle = UUID.randomUUID().toString();
+		UPLOADS.put(handle, upload);
+		upload.result.whenComplete((summary, failure) -> upload.finishedAt = System.currentTimeMillis());
+		return handle;
+	}
+
+	/**
+	 * Returns a future completed by the watcher thread with the outcome of a
+	 * remote call, so that callers do not hold a thread while it runs. The
+	 * dependent actions of the future run on the watcher thread.
+	 */
+	static <T> CompletableFuture<T> watch(final Future<T> remote) {
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		WATCHED.add(new Watch<>(remote, result));
+		return result;
+	}
+
+	/**
+	 * Completes the futures of the remote calls which are done.
+	 */
+	private static void poll() {
+		for (Iterator<Watch<?>> it = WATCHED.iterator(); it.hasNext();) {
+			Watch<?> watch = it.next();
+			if (watch.remote.isDone()) {
+				it.remove();
+				try {
+					watch.complete();
+				} catch (RuntimeException e) {
+					// keep polling the other calls
+					LOGGER.log(Level.WARNING, "Failed to complete a Minio remote call", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remote call and the future completed with its outcome.
+	 */
+	private static final class Watch<T> {
+		private final Future<T> remote;
+		private final CompletableFuture<T> result;
+
+		Watch(Future<T> remote, CompletableFuture<T> result) {
+			this.remote = remote;
+			this.result = result;
+		}
+
+		void complete() {
+			try {
+				result.complete(remote.get());
+			} catch (ExecutionException e) {
+				result.completeExceptionally(e.getCause());
+			} catch (InterruptedException | CancellationException e) {
+				result.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * @return Returns the upload of the handle, or null if it is unknown
+	 */
+	static PendingUpload get(String handle) {
+		return UPLOADS.get(handle);
+	}
+
+	static void remove(String handle) {
+		UPLOADS.remove(handle);
+	}
+
+	private static void purge() {
+		long oldest = System.currentTimeMillis() - RETENTION_MILLIS;
+		for (Iterator<PendingUpload> it = UPLOADS.values().iterator(); it.hasNext();) {
+			long finishedAt = it.next().finishedAt;
+			if (finishedAt != 0 && finishedAt < oldest) {
+				it.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,244 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Plan of an upload whose requests are presigned on the controller, so that
+ * the agent sends the files without the credentials of the server nor the
+ * Minio SDK. Files larger than the part size are started as multipart uploads
+ * by the controller, which presigns each of their parts and completes them
+ * when the agent is done. Only the signatures are sent per request, the rest
+ * of the URLs is shared.
+ */
+public class PresignedPlan implements Externalizable {
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * Time during which the URLs are valid, in seconds. The server accepts
+	 * at most seven days.
+	 */
+	static final int EXPIRY_SECONDS = Integer.getInteger(PresignedPlan.class.getName() + ".expirySeconds",
+			24 * 60 * 60);
+
+	/**
+	 * File of the plan, with the signature of its request or of each of its
+	 * parts.
+	 */
+	public static final class Entry {
+		private final String relativePath;
+		private final String objectName;
+		private final long size;
+
+		/**
+		 * Multipart upload of the file, or null if it is sent at once.
+		 */
+		private final String uploadId;
+		private final long partSize;
+		private final String[] signatures;
+
+		Entry(String relativePath, String objectName, long size, String uploadId, long partSize,
+				String[] signatures) {
+			this.relativePath = relativePath;
+			this.objectName = objectName;
+			this.size = size;
+			this.uploadId = uploadId;
+			this.partSize = partSize;
+			this.signatures = signatures;
+		}
+
+		public String getRelativePath() {
+			return relativePath;
+		}
+
+		public String getObjectName() {
+			return objectName;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public String getUploadId() {
+			return uploadId;
+		}
+
+		/**
+		 * @return Returns the number of requests sending the file
+		 */
+		public int getParts() {
+			return signatures.length;
+		}
+
+		public long getPartSize() {
+			return partSize;
+		}
+	}
+
+	private String endpoint;
+	private String bucketName;
+	private String authQuery;
+	private final List<Entry> entries = new ArrayList<>();
+
+	/**
+	 * Used by deserialization.
+	 */
+	public PresignedPlan() {
+	}
+
+	/**
+	 * Presigns the requests of every file of the plan, starting the multipart
+	 * uploads of the large files.
+	 */
+	static PresignedPlan create(MinioRestClient client, String bucketName, List<UploadPlan.Entry> entries,
+			long partSize) throws IOException {
+		MinioRestClient.Presigner presigner = client.presigner(EXPIRY_SECONDS);
+		MultipartUploader multipart = new MultipartUploader(client, partSize, 0);
+		PresignedPlan presigned = new PresignedPlan();
+		presigned.endpoint = presigner.getEndpoint();
+		presigned.bucketName = bucketName;
+		presigned.authQuery = presigner.getAuthQuery();
+		try {
+			for (UploadPlan.Entry entry : entries) {
+				String objectName = entry.getObjectName();
+				if (!multipart.accepts(entry.getSize())) {
+					String signature = presigner.sign("PUT", bucketName, objectName,
+							Collections.<String, String>emptyMap());
+					presigned.entries.add(new Entry(entry.getRelativePath(), objectName, entry.getSize(), null, 0,
+							new String[] { signature }));
+					continue;
+				}
+				long size = multipart.partSizeFor(entry.getSize());
+				String uploadId = client.initiateMultipartUpload(bucketName, objectName,
+						Collections.singletonMap("Content-Type", ObjectUploader.CONTENT_TYPE));
+				String[] signatures = new String[(int) ((entry.getSize() + size - 1) / size)];
+				presigned.entries.add(new Entry(entry.getRelativePath(), objectName, entry.getSize(), uploadId, size,
+						signatures));
+				for (int i = 0; i < signatures.length; i++) {
+					signatures[i] = presigner.sign("PUT", bucketName, objectName,
+							MinioRestClient.partQuery(uploadId, i + 1));
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			presigned.abort(client, bucketName);
+			throw e;
+		}
+		return presigned;
+	}
+
+	/**
+	 * Aborts the multipart uploads of the plan, ignoring failures.
+	 */
+	void abort(MinioRestClient client, String bucketName) {
+		for (Entry entry : entries) {
+			if (entry.uploadId != null) {
+				try {
+					client.abortMultipartUpload(bucketName, entry.objectName, entry.uploadId);
+				} catch (IOException e) {
+					// the server discards it eventually
+				}
+			}
+		}
+	}
+
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * @return Returns the URL of the server, such as
+	 *         <tt>http://minio:9000</tt>
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public String getBucketName() {
+		return bucketName;
+	}
+
+	/**
+	 * Returns the path and query of the request sending a part of a file,
+	 * numbered from 1, or the whole file.
+	 */
+	public String target(Entry entry, int part) {
+		StringBuilder target = new StringBuilder(MinioRestClient.path(bucketName, entry.objectName))
+				.append('?');
+		if (entry.uploadId != null) {
+			target.append("partNumber=").append(part).append("&uploadId=")
+					.append(MinioRestClient.encode(entry.uploadId, false)).append('&');
+		}
+		return target.append(authQuery).append("&X-Amz-Signature=").append(entry.signatures[part - 1])
+				.toString();
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		CompactOutput compact = new CompactOutput(out);
+		compact.writeString(endpoint);
+		compact.writeString(bucketName);
+		compact.writeString(authQuery);
+		List<Entry> sorted = new ArrayList<>(entries);
+		Collections.sort(sorted, BY_PATH);
+		compact.writeVarLong(sorted.size());
+		for (Entry entry : sorted) {
+			compact.writePath(entry.relativePath);
+			int slash = entry.objectName.lastIndexOf('/') + 1;
+			compact.writeShared(entry.objectName.substring(0, slash));
+			compact.writeString(entry.objectName.substring(slash));
+			compact.writeVarLong(entry.size);
+			compact.writeString(entry.uploadId != null ? entry.uploadId : "");
+			compact.writeVarLong(entry.partSize);
+			compact.writeVarLong(entry.signatures.length);
+			for (String signature : entry.signatures) {
+				out.write(unhex(signature));
+			}
+		}
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		CompactInput compact = new CompactInput(in);
+		endpoint = compact.readString();
+		bucketName = compact.readString();
+		authQuery = compact.readString();
+		int count = compact.readVarInt();
+		entries.clear();
+		byte[] signature = new byte[32];
+		for (int i = 0; i < count; i++) {
+			String relativePath = compact.readPath();
+			String objectName = compact.readShared() + compact.readString();
+			long size = compact.readVarLong();
+			String uploadId = compact.readString();
+			long partSize = compact.readVarLong();
+			String[] signatures = new String[compact.readVarInt()];
+			for (int j = 0; j < signatures.length; j++) {
+				in.readFully(signature);
+				signatures[j] = MinioRestClient.hex(signature);
+			}
+			entries.add(new Entry(relativePath, objectName, size, uploadId.isEmpty() ? null : uploadId, partSize,
+					signatures));
+		}
+	}
+
+	private static byte[] unhex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		}
+		return bytes;
+	}
+
+	private static final Comparator<Entry> BY_PATH = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry a, Entry b) {
+			return a.relativePath.compareTo(b.relativePath);
+		}
+	};
+}
@@ -0,0 +1,338 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Sends the files of a {@link PresignedPlan} from the agent with
+ * {@link NioHttpSender}s, one kept-alive connection per worker thread. Neither
+ * the credentials nor the Minio SDK are needed on the agent; the multipart
+ * uploads of the large files are completed by the controller from the ETags
+ * of their parts, returned with the summary.
+ * <p>
+ * The controller takes the files of one walk of the workspace, presigns and
+ * sends them in batches of {@link UploadPlan#MAX_ENTRIES} files, so that
+ * neither the plan nor the presigned requests crossing the channel grow with
+ * the workspace.
+ */
+public class PresignedUploader implements FileCallable<PresignedUploader.Result> {
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * Summary of the upload, the ETags of the parts of each multipart upload
+	 * whose parts were all sent, and the files which failed because the
+	 * bucket was missing, left out of the summary for the controller to
+	 * create the bucket and send them again.
+	 */
+	public static final class Result implements Serializable {
+		private static final long serialVersionUID = 1;
+
+		private final UploadSummary summary;
+		private final Map<String, List<String>> etags = new ConcurrentHashMap<>();
+		private final Set<String> missingBucket = Collections.synchronizedSet(new HashSet<String>());
+
+		Result(UploadSummary summary) {
+			this.summary = summary;
+		}
+
+		public UploadSummary getSummary() {
+			return summary;
+		}
+
+		/**
+		 * @return Returns the ETags of the parts of the upload in part number
+		 *         order, or null if a part failed
+		 */
+		public List<String> getEtags(String uploadId) {
+			return etags.get(uploadId);
+		}
+
+		/**
+		 * @return Returns the relative paths of the files which failed because
+		 *         the bucket was missing
+		 */
+		public Set<String> getMissingBucket() {
+			return missingBucket;
+		}
+	}
+
+	private final PresignedPlan plan;
+	private final int concurrency;
+
+	/**
+	 * TaskListener listener needed for reading exceptions.
+	 */
+	private final TaskListener listener;
+
+	/**
+	 * Print a line for every uploaded file besides the periodic progress.
+	 */
+	private boolean verbose;
+
+	public PresignedUploader(PresignedPlan plan, int concurrency, TaskListener listener) {
+		this.plan = plan;
+		this.concurrency = concurrency > 0 ? concurrency : UploadScheduler.DEFAULT_CONCURRENCY;
+		this.listener = listener;
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	 * Walks the workspace once on the agent and takes its files batch after
+	 * batch; for each batch, presigns it on the controller, sends the files
+	 * from the agent and completes the multipart uploads.
+	 */
+	static UploadSummary upload(FilePath ws, MinioRestClient client, String bucketName, UploadPlanner planner,
+			long partSize, int concurrency, boolean verbose, TaskListener listener)
+			throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		UploadSummary summary = new UploadSummary();
+		String walk = ws.act(new UploadBatches.Start(planner, UploadPlan.MAX_ENTRIES));
+		try {
+			while (true) {
+				List<UploadPlan.Entry> entries = ws.act(new UploadBatches.Next(walk)).getEntries();
+				if (entries.isEmpty()) {
+					break;
+				}
+				send(ws, client, bucketName, entries, partSize, concurrency, verbose, listener, summary);
+			}
+		} finally {
+			ws.act(new UploadBatches.End(walk));
+		}
+		summary.setElapsedMillis(System.currentTimeMillis() - start);
+		return summary;
+	}
+
+	/**
+	 * Presigns and sends one batch, creating the bucket again and sending
+	 * the files which found it missing once more if it was deleted.
+	 */
+	private static void send(FilePath ws, MinioRestClient client, String bucketName, List<UploadPlan.Entry> entries,
+			long partSize, int concurrency, boolean verbose, TaskListener listener, UploadSummary summary)
+			throws IOException, InterruptedException {
+		PresignedPlan plan;
+		try {
+			plan = PresignedPlan.create(client, bucketName, entries, partSize);
+		} catch (MinioRestException e) {
+			if (!ObjectUploader.isNoSuchBucket(e) || summary.isBucketMissing()) {
+				throw e;
+			}
+			recreateBucket(client, bucketName, summary);
+			plan = PresignedPlan.create(client, bucketName, entries, partSize);
+		}
+		PresignedUploader uploader = new PresignedUploader(plan, concurrency, listener);
+		uploader.setVerbose(verbose);
+		Result result;
+		try {
+			result = ws.act(uploader);
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			plan.abort(client, bucketName);
+			throw e;
+		}
+		summary.add(result.getSummary());
+		for (PresignedPlan.Entry entry : plan.getEntries()) {
+			if (entry.getUploadId() == null) {
+				continue;
+			}
+			List<String> etags = result.getEtags(entry.getUploadId());
+			try {
+				if (etags != null) {
+					client.completeMultipartUpload(bucketName, entry.getObjectName(), entry.getUploadId(), etags);
+				} else {
+					client.abortMultipartUpload(bucketName, entry.getObjectName(), entry.getUploadId());
+				}
+			} catch (IOException e) {
+				e.printStackTrace(listener.error("Minio error, failed to complete " + entry.getObjectName()));
+				if (etags != null) {
+					summary.incomplete(entry.getObjectName(), entry.getSize());
+				}
+			}
+		}
+		if (result.getMissingBucket().isEmpty()) {
+			return;
+		}
+		List<UploadPlan.Entry> missing = new ArrayList<>();
+		for (UploadPlan.Entry entry : entries) {
+			if (result.getMissingBucket().contains(entry.getRelativePath())) {
+				missing.add(entry);
+			}
+		}
+		if (summary.isBucketMissing()) {
+			// created again already, the bucket is deleted as fast as it comes
+			for (UploadPlan.Entry entry : missing) {
+				summary.failed(entry.getObjectName());
+			}
+			return;
+		}
+		recreateBucket(client, bucketName, summary);
+		send(ws, client, bucketName, missing, partSize, concurrency, verbose, listener, summary);
+	}
+
+	private static void recreateBucket(MinioRestClient client, String bucketName, UploadSummary summary)
+			throws IOException {
+		client.makeBucket(bucketName);
+		summary.setBucketMissing(true);
+	}
+
+	@Override
+	public void checkRoles(RoleChecker checker) throws SecurityException {
+		// not implemented
+	}
+
+	/**
+	 * invoke sends every file and part of the plan, largest files first.
+	 */
+	@Override
+	public Result invoke(final File ws, VirtualChannel channel) throws IOException, InterruptedException {
+		final Result result = new Result(new UploadSummary());
+		final UploadProgress progress = new UploadProgress(listener.getLogger(), plan.getBucketName(),
+				result.summary);
+		progress.setVerbose(verbose);
+		List<PresignedPlan.Entry> entries = new ArrayList<>(plan.getEntries());
+		Collections.sort(entries, LARGEST_FIRST);
+		for (PresignedPlan.Entry entry : entries) {
+			progress.planned(
+					new UploadPlan.Entry(entry.getRelativePath(), entry.getObjectName(), entry.getSize(), 0));
+		}
+		progress.planComplete();
+
+		final List<NioHttpSender> senders = Collections.synchronizedList(new ArrayList<NioHttpSender>());
+		final ThreadLocal<NioHttpSender> sender = new ThreadLocal<>();
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Minio presigned upload " + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		progress.start();
+		try {
+			for (final PresignedPlan.Entry entry : entries) {
+				final File file = new File(ws, entry.getRelativePath());
+				final FileUpload upload = new FileUpload(entry);
+				for (int part = 1; part <= entry.getParts(); part++) {
+					final int number = part;
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							IOException failure = null;
+							try {
+								NioHttpSender connection = sender.get();
+								if (connection == null) {
+									connection = new NioHttpSender(plan.getEndpoint());
+									sender.set(connection);
+									senders.add(connection);
+								}
+								upload.sent(number, send(connection, file, entry, number));
+							} catch (IOException e) {
+								failure = e;
+							} catch (RuntimeException e) {
+								// the file is done all the same, or its upload is never reported
+								failure = new IOException("Failed to send part " + number + " of " + file, e);
+							}
+							if (upload.done(failure)) {
+								if (upload.failure == null && entry.getUploadId() != null) {
+									result.etags.put(entry.getUploadId(), Arrays.asList(upload.etags));
+								}
+								if (ObjectUploader.isNoSuchBucket(upload.failure)) {
+									result.missingBucket.add(entry.getRelativePath());
+									return;
+								}
+								progress.done(file.getName(), entry.getObjectName(), entry.getSize(),
+										upload.startMillis, true, upload.failure);
+							}
+						}
+					});
+				}
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				// still sending
+			}
+		} finally {
+			executor.shutdownNow();
+			progress.close();
+			synchronized (senders) {
+				for (NioHttpSender connection : senders) {
+					connection.close();
+				}
+			}
+		}
+		return result;
+	}
+
+	private String send(NioHttpSender connection, File file, PresignedPlan.Entry entry, int part)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long position = (part - 1) * entry.getPartSize();
+			long length = entry.getUploadId() == null ? entry.getSize()
+					: Math.min(entry.getPartSize(), entry.getSize() - position);
+			return connection.put(plan.target(entry, part), new FileRegion(channel, position, length));
+		}
+	}
+
+	/**
+	 * Parts of one file still being sent.
+	 */
+	private static final class FileUpload {
+		private final String[] etags;
+		private final AtomicInteger remaining;
+		private final long startMillis = System.currentTimeMillis();
+		private volatile IOException failure;
+
+		FileUpload(PresignedPlan.Entry entry) {
+			this.etags = new String[entry.getParts()];
+			this.remaining = new AtomicInteger(entry.getParts());
+		}
+
+		void sent(int part, String etag) {
+			etags[part - 1] = etag;
+		}
+
+		/**
+		 * @return Returns true when the last part of the file is done
+		 */
+		boolean done(IOException partFailure) {
+			if (partFailure != null && failure == null) {
+				failure = partFailure;
+			}
+			return remaining.decrementAndGet() == 0;
+		}
+	}
+
+	private static final Comparator<PresignedPlan.Entry> LARGEST_FIRST = new Comparator<PresignedPlan.Entry>() {
+		@Override
+		public int compare(PresignedPlan.Entry a, PresignedPlan.Entry b) {
+			return Long.compare(b.getSize(), a.getSize());
+		}
+	};
+}
@@ -0,0 +1,272 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Daemon of an agent which uploads the jobs of its spool directory in the
+ * background, oldest first. A job whose files failed is tried again later,
+ * {@link #MAX_ATTEMPTS} times in all; its result is then written next to it
+ * for the controller to collect, and the spooled files are deleted. Jobs are
+ * kept on disk until then, so that a drainer started again after a restart
+ * of the agent goes on with them.
+ * <p>
+ * Jobs hold no credentials: they are resolved by the URL of the server from
+ * the client factories the controller {@linkplain #provide(MinioClientFactory)
+ * provides} with each spooled upload, and when the agent comes online. A job
+ * whose server is not known yet waits without counting an attempt.
+ */
+public final class SpoolDrainer implements Runnable {
+
+	private static final Logger LOGGER = Logger.getLogger(SpoolDrainer.class.getName());
+
+	/**
+	 * Name of the spool directory below the root of the agent.
+	 */
+	public static final String DIRECTORY = "minio-spool";
+
+	/**
+	 * Suffix of the jobs being spooled.
+	 */
+	static final String TMP_SUFFIX = ".tmp";
+
+	/**
+	 * Suffix of the jobs which could not be read.
+	 */
+	static final String BROKEN_SUFFIX = ".broken";
+
+	/**
+	 * Number of times a job is uploaded before its failures are reported.
+	 */
+	static final int MAX_ATTEMPTS = Integer.getInteger(SpoolDrainer.class.getName() + ".maxAttempts", 10);
+
+	private static final long RETRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	/**
+	 * Age after which the leftovers of an interrupted spooling, or unreadable
+	 * jobs, are deleted.
+	 */
+	private static final long ABANDONED_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+	private static final Map<File, SpoolDrainer> DRAINERS = new HashMap<>();
+
+	/**
+	 * Latest client factory of each server, by URL, kept in memory only.
+	 */
+	private static final Map<String, MinioClientFactory> FACTORIES = new ConcurrentHashMap<>();
+
+	private final File root;
+	private final Map<String, Integer> attempts = new HashMap<>();
+	private boolean woken;
+
+	private SpoolDrainer(File root) {
+		this.root = root;
+	}
+
+	/**
+	 * Starts the drainer of the spool directory unless it is running, and
+	 * makes it look for new jobs.
+	 */
+	static void start(File root) {
+		SpoolDrainer drainer;
+		synchronized (DRAINERS) {
+			drainer = DRAINERS.get(root);
+			if (drainer == null) {
+				drainer = new SpoolDrainer(root);
+				DRAINERS.put(root, drainer);
+				Thread thread = new Thread(drainer, "Minio spool drainer for " + root);
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+		drainer.wake();
+	}
+
+	/**
+	 * Makes the credentials of the server of the factory available to the
+	 * jobs uploaded to it, replacing older ones.
+	 */
+	static void provide(MinioClientFactory factory) {
+		if (factory != null && factory.getServerURL() != null) {
+			FACTORIES.put(factory.getServerURL(), factory);
+		}
+	}
+
+	private synchronized void wake() {
+		woken = true;
+		notifyAll();
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			boolean retry = false;
+			for (File dir : pendingJobs()) {
+				retry |= !drain(dir);
+			}
+			synchronized (this) {
+				try {
+					if (!woken) {
+						wait(retry ? RETRY_MILLIS : IDLE_MILLIS);
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+				woken = false;
+			}
+		}
+	}
+
+	/**
+	 * Returns the jobs which are not drained yet, oldest first, and deletes
+	 * abandoned ones.
+	 */
+	private List<File> pendingJobs() {
+		File[] dirs = root.listFiles();
+		List<File> pending = new ArrayList<>();
+		if (dirs == null) {
+			return pending;
+		}
+		Arrays.sort(dirs);
+		for (File dir : dirs) {
+			if (dir.getName().endsWith(TMP_SUFFIX) || dir.getName().endsWith(BROKEN_SUFFIX)) {
+				if (dir.lastModified() < System.currentTimeMillis() - ABANDONED_MILLIS) {
+					delete(dir);
+				}
+			} else if (new File(dir, SpoolJob.JOB_FILE).exists() && !new File(dir, SpoolJob.RESULT_FILE).exists()) {
+				pending.add(dir);
+			}
+		}
+		return pending;
+	}
+
+	/**
+	 * Uploads the job and returns true if it is done, false if it is to be
+	 * tried again.
+	 */
+	private boolean drain(File dir) {
+		String id = dir.getName();
+		SpoolJob job;
+		try {
+			job = SpoolJob.read(dir);
+		} catch (IOException e) {
+			// written by another version of the plugin, or damaged
+			LOGGER.log(Level.WARNING, "Unreadable spool job " + dir + ", put aside", e);
+			if (!dir.renameTo(new File(root, id + BROKEN_SUFFIX))) {
+				delete(dir);
+			}
+			return true;
+		}
+		MinioClientFactory factory = FACTORIES.get(job.getServerURL());
+		if (factory == null) {
+			LOGGER.log(Level.FINE, "No credentials yet for {0}, spool job {1} waits",
+					new Object[] { job.getServerURL(), id });
+			return false;
+		}
+		try {
+			UploadSummary summary = job.upload(dir, factory);
+			int attempt = attempts.containsKey(id) ? attempts.get(id) + 1 : 1;
+			if (summary.getFailedFiles() > 0 && attempt < MAX_ATTEMPTS) {
+				attempts.put(id, attempt);
+				return false;
+			}
+			attempts.remove(id);
+			SpoolJob.writeResult(dir, summary);
+			delete(new File(dir, SpoolJob.FILES_DIRECTORY));
+			LOGGER.log(Level.FINE, "Drained spool job {0}: {1}", new Object[] { id, summary });
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to drain spool job " + dir, e);
+			return false;
+		}
+	}
+
+	private static void delete(File dir) {
+		try {
+			Util.deleteRecursive(dir);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to delete " + dir, e);
+		}
+	}
+
+	/**
+	 * Starts the drainer of a spool directory which has jobs left, called
+	 * when the agent comes online.
+	 */
+	public static final class Resume implements FileCallable<Void> {
+		private static final long serialVersionUID = 2;
+
+		private final MinioClientFactory minioClientFactory;
+
+		public Resume(MinioClientFactory minioClientFactory) {
+			this.minioClientFactory = minioClientFactory;
+		}
+
+		@Override
+		public void checkRoles(RoleChecker checker) throws SecurityException {
+			// not implemented
+		}
+
+		@Override
+		public Void invoke(File root, VirtualChannel channel) {
+			if (root.isDirectory()) {
+				provide(minioClientFactory);
+				start(root);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the result of a drained job and deletes the job, or returns
+	 * null while it is waiting. Throws {@link NoSuchFileException} if the
+	 * job is gone.
+	 */
+	public static final class Collect implements FileCallable<UploadSummary> {
+		private static final long serialVersionUID = 1;
+
+		private final String id;
+
+		public Collect(String id) {
+			this.id = id;
+		}
+
+		@Override
+		public void checkRoles(RoleChecker checker) throws SecurityException {
+			// not implemented
+		}
+
+		@Override
+		public UploadSummary invoke(File root, VirtualChannel channel) throws IOException {
+			File dir = new File(root, id);
+			if (!dir.isDirectory()) {
+				throw new NoSuchFileException(dir.getPath());
+			}
+			UploadSummary summary = SpoolJob.readResult(dir);
+			if (summary != null) {
+				Util.deleteRecursive(dir);
+			}
+			return summary;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Upload waiting in the spool of an agent: the plan of the files, whose
+ * content is copied below the <tt>files</tt> directory of the job, and what is
+ * needed to upload them once the build is over. The job names its server but
+ * holds no credentials; the drainer resolves them when it uploads the job.
+ * Each uploaded file is recorded in the <tt>uploaded</tt> file of the job and
+ * its copy deleted, so that an attempt after a failure, or after a restart of
+ * the agent, only sends the files which are left.
+ */
+public class SpoolJob implements Serializable {
+	private static final long serialVersionUID = 2;
+
+	private static final Logger LOGGER = Logger.getLogger(SpoolJob.class.getName());
+
+	static final String JOB_FILE = "job";
+	static final String RESULT_FILE = "result";
+	static final String FILES_DIRECTORY = "files";
+	static final String UPLOADED_FILE = "uploaded";
+
+	/**
+	 * URL of the server, whose credentials are resolved by the drainer.
+	 */
+	private final String serverURL;
+	private final String bucketName;
+	private final long partSize;
+	private final int concurrency;
+	private final UploadCodec codec;
+	private final UploadPlan plan;
+
+	public SpoolJob(String serverURL, String bucketName, long partSize, int concurrency, UploadCodec codec,
+			UploadPlan plan) {
+		this.serverURL = serverURL;
+		this.bucketName = bucketName;
+		this.partSize = partSize;
+		this.concurrency = concurrency;
+		this.codec = codec;
+		this.plan = plan;
+	}
+
+	/**
+	 * @return Returns the URL of the server the files are uploaded to
+	 */
+	String getServerURL() {
+		return serverURL;
+	}
+
+	/**
+	 * Uploads the spooled files of the job directory which were not uploaded
+	 * by a previous attempt. The summary counts the files of every attempt.
+	 */
+	UploadSummary upload(File dir, MinioClientFactory minioClientFactory) throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		final UploadSummary summary = new UploadSummary();
+		ObjectUploader uploader = new ObjectUploader(minioClientFactory, bucketName, partSize, concurrency);
+		uploader.setCodec(codec);
+		File files = new File(dir, FILES_DIRECTORY);
+		Set<String> done = readUploaded(dir);
+		List<UploadScheduler.Task> tasks = new ArrayList<>(plan.size());
+		for (UploadPlan.Entry entry : plan.getEntries()) {
+			if (done.contains(entry.getRelativePath())) {
+				summary.uploaded(entry.getSize());
+			} else {
+				tasks.add(new UploadScheduler.Task(new File(files, entry.getRelativePath()), entry));
+			}
+		}
+		try (UploadScheduler scheduler = new UploadScheduler(uploader, concurrency);
+				final DataOutputStream uploaded = new DataOutputStream(Files.newOutputStream(
+						new File(dir, UPLOADED_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+			scheduler.submitAll(tasks, new UploadScheduler.Listener() {
+				@Override
+				public void done(UploadScheduler.Task task, boolean sent, IOException failure) {
+					if (failure != null) {
+						summary.failed(task.getObjectName());
+						LOGGER.log(Level.WARNING, "Failed to upload spooled file " + task.getFile(), failure);
+						return;
+					}
+					summary.uploaded(task.getLength());
+					try {
+						synchronized (uploaded) {
+							uploaded.writeUTF(relativePath(files, task.getFile()));
+							uploaded.flush();
+						}
+						Files.deleteIfExists(task.getFile().toPath());
+					} catch (IOException e) {
+						// sent again by the next attempt if this one has failures
+						LOGGER.log(Level.WARNING, "Failed to record spooled file " + task.getFile(), e);
+					}
+				}
+			});
+			scheduler.awaitAll();
+		}
+		summary.setBucketMissing(uploader.isBucketMissing());
+		summary.setElapsedMillis(System.currentTimeMillis() - start);
+		return summary;
+	}
+
+	private static String relativePath(File files, File file) {
+		return files.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Returns the relative paths of the files uploaded by the previous
+	 * attempts. A record cut short by a crash is dropped, the records being
+	 * written again atomically so that new ones are appended after the last
+	 * complete one.
+	 */
+	private static Set<String> readUploaded(File dir) throws IOException {
+		Set<String> uploaded = new HashSet<>();
+		File file = new File(dir, UPLOADED_FILE);
+		if (!file.exists()) {
+			return uploaded;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+			while (true) {
+				uploaded.add(in.readUTF());
+			}
+		} catch (EOFException e) {
+			// end of the records
+		}
+		Path tmp = new File(dir, UPLOADED_FILE + ".tmp").toPath();
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+			for (String path : uploaded) {
+				out.writeUTF(path);
+			}
+		}
+		Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return uploaded;
+	}
+
+	/**
+	 * Writes the job into the directory, atomically.
+	 */
+	void write(File dir) throws IOException {
+		writeObject(dir, JOB_FILE, this);
+	}
+
+	static SpoolJob read(File dir) throws IOException {
+		return (SpoolJob) readObject(dir, JOB_FILE);
+	}
+
+	static void writeResult(File dir, UploadSummary summary) throws IOException {
+		writeObject(dir, RESULT_FILE, summary);
+	}
+
+	/**
+	 * @return Returns the result of the drained job, or null if it is still
+	 *         waiting
+	 */
+	static UploadSummary readResult(File dir) throws IOException {
+		return new File(dir, RESULT_FILE).exists() ? (UploadSummary) readObject(dir, RESULT_FILE) : null;
+	}
+
+	private static void writeObject(File dir, String name, Object object) throws IOException {
+		Path tmp = new File(dir, name + ".tmp").toPath();
+		try (OutputStream out = Files.newOutputStream(tmp); ObjectOutputStream oos = new ObjectOutputStream(out)) {
+			oos.writeObject(object);
+		}
+		Files.move(tmp, new File(dir, name).toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static Object readObject(File dir, String name) throws IOException {
+		try (InputStream in = Files.newInputStream(new File(dir, name).toPath());
+				ObjectInputStream ois = new ObjectInputStream(in)) {
+			return ois.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Unreadable spool file " + new File(dir, name), e);
+		}
+	}
+}
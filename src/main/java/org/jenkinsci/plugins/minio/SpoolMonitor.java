@@ -0,0 +1,164 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.PeriodicWork;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.ComputerListener;
+import jenkins.model.Jenkins;
+
+/**
+ * Collects the results of the spooled uploads from the agents into the
+ * {@link MinioSpoolAction} of their builds, once a minute. Agents which are
+ * offline are asked again later. The jobs not collected yet are recorded in
+ * {@link PendingSpoolJobs}, whose builds are loaded on the first run after a
+ * restart of the controller.
+ */
+@Extension
+public class SpoolMonitor extends PeriodicWork {
+
+	private static final Logger LOGGER = Logger.getLogger(SpoolMonitor.class.getName());
+
+	private static final Set<MinioSpoolAction> PENDING = new CopyOnWriteArraySet<>();
+
+	private static PendingSpoolJobs jobs;
+
+	/**
+	 * Whether the builds of the recorded jobs were loaded since the start of
+	 * the controller.
+	 */
+	private static volatile boolean reloaded;
+
+	/**
+	 * Watches the spool job of the action until its result is collected.
+	 */
+	static void track(MinioSpoolAction action) {
+		PENDING.add(action);
+		String runId = action.getRunId();
+		if (runId == null) {
+			return;
+		}
+		try {
+			jobs().add(action.getSpoolId(), runId);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to record spool job " + action.getSpoolId(), e);
+		}
+	}
+
+	private static void forget(MinioSpoolAction action) {
+		PENDING.remove(action);
+		try {
+			jobs().remove(action.getSpoolId());
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to forget spool job " + action.getSpoolId(), e);
+		}
+	}
+
+	private static synchronized PendingSpoolJobs jobs() throws IOException {
+		if (jobs == null) {
+			jobs = new PendingSpoolJobs(
+					new File(Jenkins.getInstance().getRootDir(), SpoolMonitor.class.getName() + ".pending"));
+		}
+		return jobs;
+	}
+
+	/**
+	 * Loads the builds of the recorded jobs, whose actions are tracked again
+	 * as they are loaded. Jobs whose build was deleted, or which were
+	 * collected meanwhile, are forgotten.
+	 */
+	private static void reload() throws IOException {
+		for (Map.Entry<String, String> job : jobs().getJobs().entrySet()) {
+			Run<?, ?> run = Run.fromExternalizableId(job.getValue());
+			boolean pending = false;
+			if (run != null) {
+				for (MinioSpoolAction action : run.getActions(MinioSpoolAction.class)) {
+					if (action.getSpoolId().equals(job.getKey()) && action.isPending()) {
+						PENDING.add(action);
+						pending = true;
+					}
+				}
+			}
+			if (!pending) {
+				jobs().remove(job.getKey());
+			}
+		}
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return MIN;
+	}
+
+	@Override
+	protected void doRun() {
+		if (!reloaded) {
+			try {
+				reload();
+				reloaded = true;
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Failed to read the pending spool jobs", e);
+			}
+		}
+		for (MinioSpoolAction action : PENDING) {
+			Computer computer = Jenkins.getInstance().getComputer(action.getNodeName());
+			VirtualChannel channel = computer != null ? computer.getChannel() : null;
+			if (channel == null) {
+				continue;
+			}
+			try {
+				UploadSummary summary = new FilePath(channel, action.getSpoolRoot())
+						.act(new SpoolDrainer.Collect(action.getSpoolId()));
+				if (summary != null) {
+					action.complete(summary);
+					forget(action);
+				}
+			} catch (NoSuchFileException e) {
+				action.lost();
+				forget(action);
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Failed to collect spool job " + action.getSpoolId(), e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Starts the spool drainer of an agent coming online, so that the jobs
+	 * left by a restart of the agent are uploaded.
+	 */
+	@Extension
+	public static class Resumer extends ComputerListener {
+
+		@Override
+		public void onOnline(Computer computer, TaskListener listener) {
+			Node node = computer.getNode();
+			FilePath root = node != null ? node.getRootPath() : null;
+			if (root == null) {
+				return;
+			}
+			try {
+				MinioClientFactory minioClientFactory = Jenkins.getInstance()
+						.getDescriptorByType(MinioUploader.DescriptorImpl.class).createClientFactory();
+				root.child(SpoolDrainer.DIRECTORY).act(new SpoolDrainer.Resume(minioClientFactory));
+			} catch (IOException | InterruptedException e) {
+				e.printStackTrace(listener.error("Failed to resume the Minio spool of " + computer.getName()));
+			}
+		}
+	}
+}
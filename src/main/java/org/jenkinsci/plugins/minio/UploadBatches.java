@@ -0,0 +1,193 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.FilePath.FileCallable;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Walk of a workspace on the agent whose entries the controller takes batch
+ * after batch, so that the workspace is walked once however many batches
+ * the upload takes. The walk runs on a thread of its own and waits while a
+ * batch worth of entries is not taken; a walk whose entries are not taken for
+ * an hour is given up, in case the controller went away.
+ */
+public final class UploadBatches {
+
+	private static final Map<String, UploadBatches> WALKS = new ConcurrentHashMap<>();
+
+	private static final long ABANDONED_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private static final long POLL_MILLIS = 100;
+
+	private final int maxEntries;
+	private final BlockingQueue<UploadPlan.Entry> queue;
+	private final Thread thread;
+
+	/**
+	 * Set once the walk is over and every entry it found is queued.
+	 */
+	private volatile boolean finished;
+	private volatile Throwable failure;
+
+	/**
+	 * Set when the controller ends the walk before it is over.
+	 */
+	private volatile boolean stopped;
+
+	private UploadBatches(final String id, final UploadPlanner planner, final File ws, int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.queue = new ArrayBlockingQueue<>(maxEntries);
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					planner.plan(ws, new UploadPlanner.Listener() {
+						@Override
+						public void planned(File file, UploadPlan.Entry entry) throws IOException {
+							if (stopped) {
+								throw new InterruptedIOException("The walk of " + ws + " was ended");
+							}
+							try {
+								if (!queue.offer(entry, ABANDONED_MILLIS, TimeUnit.MILLISECONDS)) {
+									WALKS.remove(id);
+									throw new IOException("No batch was taken for an hour, giving up the walk");
+								}
+							} catch (InterruptedException e) {
+								throw new InterruptedIOException("Interrupted while queueing "
+										+ entry.getRelativePath());
+							}
+						}
+					});
+				} catch (IOException | InterruptedException | RuntimeException e) {
+					failure = e;
+				} finally {
+					finished = true;
+				}
+			}
+		}, "Minio upload walk of " + ws);
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Returns the next batch, waiting until it is full or the walk is over.
+	 * The batch is empty once every entry was taken.
+	 */
+	private UploadPlan next() throws IOException, InterruptedException {
+		UploadPlan batch = new UploadPlan(maxEntries);
+		while (batch.getEntries().size() < maxEntries) {
+			UploadPlan.Entry entry = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			if (entry == null && finished) {
+				// the last entries may have been queued since the poll
+				entry = queue.poll();
+				if (entry == null) {
+					break;
+				}
+			}
+			if (entry != null) {
+				batch.add(entry);
+			}
+		}
+		if (failure != null) {
+			throw new IOException("Failed to walk the workspace", failure);
+		}
+		return batch;
+	}
+
+	/**
+	 * Starts the walk of the workspace and returns its id.
+	 */
+	public static final class Start implements FileCallable<String> {
+		private static final long serialVersionUID = 1;
+
+		private final UploadPlanner planner;
+		private final int maxEntries;
+
+		public Start(UploadPlanner planner, int maxEntries) {
+			this.planner = planner;
+			this.maxEntries = maxEntries;
+		}
+
+		@Override
+		public void checkRoles(RoleChecker checker) throws SecurityException {
+			// not implemented
+		}
+
+		@Override
+		public String invoke(File ws, VirtualChannel channel) {
+			String id = UUID.randomUUID().toString();
+			UploadBatches walk = new UploadBatches(id, planner, ws, maxEntries);
+			WALKS.put(id, walk);
+			walk.thread.start();
+			return id;
+		}
+	}
+
+	/**
+	 * Returns the next batch of entries of a walk, empty once the walk is
+	 * over and every entry was taken.
+	 */
+	public static final class Next implements FileCallable<UploadPlan> {
+		private static final long serialVersionUID = 1;
+
+		private final String id;
+
+		public Next(String id) {
+			this.id = id;
+		}
+
+		@Override
+		public void checkRoles(RoleChecker checker) throws SecurityException {
+			// not implemented
+		}
+
+		@Override
+		public UploadPlan invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+			UploadBatches walk = WALKS.get(id);
+			if (walk == null) {
+				throw new IOException("Unknown walk " + id);
+			}
+			return walk.next();
+		}
+	}
+
+	/**
+	 * Stops a walk, whether or not every entry was taken.
+	 */
+	public static final class End implements FileCallable<Void> {
+		private static final long serialVersionUID = 1;
+
+		private final String id;
+
+		public End(String id) {
+			this.id = id;
+		}
+
+		@Override
+		public void checkRoles(RoleChecker checker) throws SecurityException {
+			// not implemented
+		}
+
+		@Override
+		public Void invoke(File ws, VirtualChannel channel) {
+			UploadBatches walk = WALKS.remove(id);
+			if (walk != null) {
+				// the walkers waiting for room find it and stop at their next file
+				walk.stopped = true;
+				walk.queue.clear();
+				walk.thread.interrupt();
+			}
+			return null;
+		}
+	}
+}
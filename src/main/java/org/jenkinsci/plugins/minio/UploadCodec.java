@@ -0,0 +1,120 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Compression applied to files before upload. The encoding is recorded on
+ * the object as its Content-Encoding and as object metadata.
+ */
+public enum UploadCodec {
+
+	NONE(null),
+
+	GZIP("gzip") {
+		@Override
+		public OutputStream compress(OutputStream out) {
+			return new ParallelGzipOutputStream(out);
+		}
+	};
+
+	/**
+	 * Object metadata naming the codec of the uploaded content.
+	 */
+	static final String CODEC_HEADER = "X-Amz-Meta-Jenkins-Codec";
+
+	private static final int SAMPLE_SIZE = 16 * 1024;
+
+	/**
+	 * Entropy, in bits per byte, above which a sample is considered already
+	 * compressed.
+	 */
+	private static final double MAX_ENTROPY = 7.5;
+
+	/**
+	 * Leading bytes of common compressed formats: gzip, zip and jar, bzip2,
+	 * xz, 7z, zstd, lz4, png, jpeg.
+	 */
+	private static final int[][] MAGIC = { { 0x1f, 0x8b }, { 0x50, 0x4b, 0x03, 0x04 }, { 0x42, 0x5a, 0x68 },
+			{ 0xfd, 0x37, 0x7a, 0x58, 0x5a, 0x00 }, { 0x37, 0x7a, 0xbc, 0xaf, 0x27, 0x1c },
+			{ 0x28, 0xb5, 0x2f, 0xfd }, { 0x04, 0x22, 0x4d, 0x18 }, { 0x89, 0x50, 0x4e, 0x47 },
+			{ 0xff, 0xd8, 0xff } };
+
+	private final String encoding;
+
+	UploadCodec(String encoding) {
+		this.encoding = encoding;
+	}
+
+	/**
+	 * @return Returns the Content-Encoding of compressed objects, or null
+	 */
+	public String getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * Wraps the stream so that data written to it is compressed.
+	 */
+	public OutputStream compress(OutputStream out) {
+		return out;
+	}
+
+	/**
+	 * Returns true if the file is worth compressing, that is it does not start
+	 * with the magic bytes of a compressed format and a sample of its content
+	 * does not look random.
+	 */
+	public static boolean isCompressible(File file) throws IOException {
+		byte[] sample = new byte[SAMPLE_SIZE];
+		int length = 0;
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			int n;
+			while (length < sample.length && (n = in.read(sample, length, sample.length - length)) != -1) {
+				length += n;
+			}
+		}
+		for (int[] magic : MAGIC) {
+			if (startsWith(sample, length, magic)) {
+				return false;
+			}
+		}
+		return entropy(sample, length) < MAX_ENTROPY;
+	}
+
+	private static boolean startsWith(byte[] sample, int length, int[] magic) {
+		if (length < magic.length) {
+			return false;
+		}
+		for (int i = 0; i < magic.length; i++) {
+			if ((sample[i] & 0xff) != magic[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the Shannon entropy of the sample in bits per byte.
+	 */
+	static double entropy(byte[] sample, int length) {
+		if (length == 0) {
+			return 0;
+		}
+		int[] counts = new int[256];
+		for (int i = 0; i < length; i++) {
+			counts[sample[i] & 0xff]++;
+		}
+		double entropy = 0;
+		for (int count : counts) {
+			if (count > 0) {
+				double p = (double) count / length;
+				entropy -= p * Math.log(p) / Math.log(2);
+			}
+		}
+		return entropy;
+	}
+}
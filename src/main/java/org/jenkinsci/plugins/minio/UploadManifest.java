@@ -0,0 +1,344 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Persistent per-workspace record of the content hash of each uploaded file,
+ * keyed by its relative path, size and modification time, so that unchanged
+ * files are not hashed again. Entries are kept in primitive arrays with open
+ * addressing on a 64-bit hash of the path, and the UTF-8 bytes of the paths
+ * are appended to a single arena, taking the path and 64 bytes per file. The
+ * file is read through a memory mapping. The path itself is compared on
+ * lookup, so two paths with the same hash never share an entry.
+ */
+public class UploadManifest {
+
+	private static final int MAGIC = 0x4d4e4d32;
+	private static final int HEADER = 8;
+	private static final int ENTRY_FIXED = 4 * 8 + 4;
+
+	private final File file;
+
+	private long[] keys;
+	private int[] pathOffsets;
+	private int[] pathLengths;
+	private byte[] arena = new byte[64 * 1024];
+	private int arenaLength;
+	private long[] sizes;
+	private long[] mtimes;
+	private long[] hashesHigh;
+	private long[] hashesLow;
+	private long[] seen;
+	private int count;
+
+	private UploadManifest(File file, int expected) {
+		this.file = file;
+		allocate(capacityFor(expected));
+	}
+
+	/**
+	 * Returns the manifest of a workspace, kept next to it in the workspace
+	 * temporary directory.
+	 */
+	public static UploadManifest forWorkspace(File ws) throws IOException {
+		File tmp = new File(ws.getParentFile(), ws.getName() + "@tmp");
+		return load(new File(tmp, "minio-upload.manifest"));
+	}
+
+	/**
+	 * Loads the manifest from the file, starting empty if the file does not
+	 * exist or cannot be read.
+	 */
+	public static UploadManifest load(File file) throws IOException {
+		if (!file.isFile()) {
+			return new UploadManifest(file, 0);
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (map.remaining() < HEADER || map.getInt() != MAGIC) {
+				return new UploadManifest(file, 0);
+			}
+			int entries = map.getInt();
+			if (entries < 0 || (long) entries * ENTRY_FIXED > map.remaining()) {
+				return new UploadManifest(file, 0);
+			}
+			UploadManifest manifest = new UploadManifest(file, entries);
+			try {
+				for (int i = 0; i < entries; i++) {
+					long size = map.getLong();
+					long mtime = map.getLong();
+					long high = map.getLong();
+					long low = map.getLong();
+					byte[] path = new byte[map.getInt()];
+					map.get(path);
+					long key = key(path);
+					manifest.put(manifest.slot(key, path), key, path, size, mtime, high, low, false);
+				}
+			} catch (BufferUnderflowException | NegativeArraySizeException e) {
+				// truncated, hash every file again
+				return new UploadManifest(file, 0);
+			}
+			return manifest;
+		}
+	}
+
+	/**
+	 * Returns the MD5 content hash of a file, hashing it only if its size or
+	 * modification time differ from the recorded ones.
+	 */
+	public String hash(File f, String relativePath) throws IOException {
+		final byte[] path = relativePath.getBytes(StandardCharsets.UTF_8);
+		final long key = key(path);
+		final long size = f.length();
+		final long mtime = f.lastModified();
+		synchronized (this) {
+			int slot = slot(key, path);
+			if (keys[slot] != 0 && sizes[slot] == size && mtimes[slot] == mtime) {
+				markSeen(slot);
+				return hex(hashesHigh[slot], hashesLow[slot]);
+			}
+		}
+
+		// hash outside of the lock so that files are hashed concurrently
+		ByteBuffer hash = ByteBuffer.wrap(md5(f));
+		long high = hash.getLong();
+		long low = hash.getLong();
+		synchronized (this) {
+			put(slot(key, path), key, path, size, mtime, high, low, true);
+		}
+		return hex(high, low);
+	}
+
+	/**
+	 * Writes the entries of the files hashed or looked up since the manifest
+	 * was loaded, dropping the others.
+	 */
+	public synchronized void save() throws IOException {
+		File dir = file.getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Could not create " + dir);
+		}
+		int entries = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (isSeen(i)) {
+				entries++;
+			}
+		}
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+			buffer.putInt(MAGIC).putInt(entries);
+			for (int i = 0; i < keys.length; i++) {
+				if (!isSeen(i)) {
+					continue;
+				}
+				if (buffer.remaining() < ENTRY_FIXED + pathLengths[i]) {
+					flush(channel, buffer);
+				}
+				buffer.putLong(sizes[i]).putLong(mtimes[i]).putLong(hashesHigh[i]).putLong(hashesLow[i]);
+				if (buffer.remaining() < 4 + pathLengths[i]) {
+					// a path longer than the buffer is written on its own
+					flush(channel, buffer);
+					buffer.putInt(pathLengths[i]);
+					flush(channel, buffer);
+					writeFully(channel, ByteBuffer.wrap(arena, pathOffsets[i], pathLengths[i]));
+					continue;
+				}
+				buffer.putInt(pathLengths[i]).put(arena, pathOffsets[i], pathLengths[i]);
+			}
+			flush(channel, buffer);
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		writeFully(channel, buffer);
+		buffer.clear();
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private void put(int slot, long key, byte[] path, long size, long mtime, long high, long low,
+			boolean markSeen) {
+		if (keys[slot] == 0) {
+			// a path already in its slot is in the arena as well
+			count++;
+			if (arenaLength + path.length > arena.length) {
+				arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + path.length));
+			}
+			System.arraycopy(path, 0, arena, arenaLength, path.length);
+			pathOffsets[slot] = arenaLength;
+			pathLengths[slot] = path.length;
+			arenaLength += path.length;
+		}
+		keys[slot] = key;
+		sizes[slot] = size;
+		mtimes[slot] = mtime;
+		hashesHigh[slot] = high;
+		hashesLow[slot] = low;
+		if (markSeen) {
+			markSeen(slot);
+		}
+		if (count * 4L > keys.length * 3L) {
+			grow();
+		}
+	}
+
+	/**
+	 * Returns the slot holding the path, or the empty slot where it belongs.
+	 */
+	private int slot(long key, byte[] path) {
+		int mask = keys.length - 1;
+		int slot = (int) (key ^ (key >>> 32)) & mask;
+		while (keys[slot] != 0 && (keys[slot] != key || !isPath(slot, path))) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private boolean isPath(int slot, byte[] path) {
+		if (pathLengths[slot] != path.length) {
+			return false;
+		}
+		int offset = pathOffsets[slot];
+		for (int i = 0; i < path.length; i++) {
+			if (arena[offset + i] != path[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the empty slot for a key known not to be in the table.
+	 */
+	private int freeSlot(long key) {
+		int mask = keys.length - 1;
+		int slot = (int) (key ^ (key >>> 32)) & mask;
+		while (keys[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldPathOffsets = pathOffsets;
+		int[] oldPathLengths = pathLengths;
+		long[] oldSizes = sizes;
+		long[] oldMtimes = mtimes;
+		long[] oldHashesHigh = hashesHigh;
+		long[] oldHashesLow = hashesLow;
+		long[] oldSeen = seen;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				int slot = freeSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				pathOffsets[slot] = oldPathOffsets[i];
+				pathLengths[slot] = oldPathLengths[i];
+				sizes[slot] = oldSizes[i];
+				mtimes[slot] = oldMtimes[i];
+				hashesHigh[slot] = oldHashesHigh[i];
+				hashesLow[slot] = oldHashesLow[i];
+				count++;
+				if ((oldSeen[i >>> 6] & (1L << i)) != 0) {
+					markSeen(slot);
+				}
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		pathOffsets = new int[capacity];
+		pathLengths = new int[capacity];
+		sizes = new long[capacity];
+		mtimes = new long[capacity];
+		hashesHigh = new long[capacity];
+		hashesLow = new long[capacity];
+		seen = new long[(capacity + 63) >>> 6];
+		count = 0;
+	}
+
+	private void markSeen(int slot) {
+		seen[slot >>> 6] |= 1L << slot;
+	}
+
+	private boolean isSeen(int slot) {
+		return (seen[slot >>> 6] & (1L << slot)) != 0;
+	}
+
+	private static int capacityFor(int entries) {
+		int capacity = 1024;
+		while (capacity * 3L < entries * 4L) {
+			capacity *= 2;
+		}
+		return capacity;
+	}
+
+	private static String hex(long high, long low) {
+		return String.format("%016x%016x", high, low);
+	}
+
+	/**
+	 * Returns the 64-bit FNV-1a hash of the UTF-8 bytes of a relative path,
+	 * never zero since zero marks an empty slot.
+	 */
+	static long key(byte[] path) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : path) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash == 0 ? 1 : hash;
+	}
+
+	/**
+	 * Returns the MD5 digest of the file.
+	 */
+	static byte[] md5(File f) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		ByteBuffer buffer;
+		try {
+			buffer = BufferPool.SHARED.acquire(64 * 1024);
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while waiting for a buffer");
+		}
+		try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		} finally {
+			BufferPool.SHARED.release(buffer);
+		}
+		return digest.digest();
+	}
+}
@@ -0,0 +1,200 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Files selected for upload, resolved on the agent to their object names,
+ * sizes and modification times by an {@link UploadPlanner}. A dry run returns
+ * the plan instead of executing it, together with an estimate of the upload
+ * duration. The totals cover every file, but only the first entries are
+ * kept, so that the size of a plan sent to the controller does not depend on
+ * the size of the workspace.
+ * <p>
+ * Plans cross the channel in the compact format of {@link CompactOutput}:
+ * entries are sorted by path and front coded, object name prefixes go through
+ * the string table, and a name equal to the file name is not repeated.
+ */
+public class UploadPlan implements Externalizable {
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * Assumed throughput of one upload connection, used for estimates.
+	 */
+	static final long BYTES_PER_SECOND = Long.getLong(UploadPlan.class.getName() + ".bytesPerSecond",
+			32L * 1024 * 1024);
+
+	/**
+	 * Assumed cost of one request, used for estimates.
+	 */
+	static final long REQUEST_MILLIS = Long.getLong(UploadPlan.class.getName() + ".requestMillis", 20);
+
+	/**
+	 * Number of entries kept by default.
+	 */
+	public static final int MAX_ENTRIES = Integer.getInteger(UploadPlan.class.getName() + ".maxEntries", 10000);
+
+	/**
+	 * One file of the plan.
+	 */
+	public static final class Entry {
+		private final String relativePath;
+		private final String objectName;
+		private final long size;
+		private final long lastModified;
+
+		public Entry(String relativePath, String objectName, long size, long lastModified) {
+			this.relativePath = relativePath;
+			this.objectName = objectName;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * @return Returns the path of the file relative to the workspace, with
+		 *         / separators
+		 */
+		public String getRelativePath() {
+			return relativePath;
+		}
+
+		public String getObjectName() {
+			return objectName;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+	}
+
+	private int maxEntries;
+	private final List<Entry> entries = new ArrayList<>();
+	private int files;
+	private long totalBytes;
+	private long largestBytes;
+
+	/**
+	 * Creates a plan keeping {@link #MAX_ENTRIES} entries, also used by
+	 * deserialization.
+	 */
+	public UploadPlan() {
+		this(MAX_ENTRIES);
+	}
+
+	/**
+	 * @param maxEntries
+	 *            Number of entries kept, the others are only counted
+	 */
+	public UploadPlan(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public void add(Entry entry) {
+		if (entries.size() < maxEntries) {
+			entries.add(entry);
+		}
+		files++;
+		totalBytes += entry.size;
+		largestBytes = Math.max(largestBytes, entry.size);
+	}
+
+	/**
+	 * @return Returns the first entries of the plan
+	 */
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * @return Returns the number of files of the plan, including those whose
+	 *         entry was not kept
+	 */
+	public int size() {
+		return files;
+	}
+
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * Returns a rough estimate of the time needed to upload the plan with the
+	 * given number of concurrent uploads: the bytes and the requests are
+	 * spread over the connections, but the largest file cannot finish sooner
+	 * than one connection can send it.
+	 */
+	public long estimateMillis(int concurrency) {
+		int connections = Math.max(1, concurrency);
+		long transfer = Math.max(totalBytes / connections, largestBytes) * 1000 / BYTES_PER_SECOND;
+		return transfer + files * REQUEST_MILLIS / connections;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		CompactOutput compact = new CompactOutput(out);
+		compact.writeVarLong(maxEntries);
+		compact.writeVarLong(files);
+		compact.writeVarLong(totalBytes);
+		compact.writeVarLong(largestBytes);
+		List<Entry> sorted = new ArrayList<>(entries);
+		Collections.sort(sorted, BY_PATH);
+		compact.writeVarLong(sorted.size());
+		long previousModified = 0;
+		for (Entry entry : sorted) {
+			compact.writePath(entry.relativePath);
+			int slash = entry.objectName.lastIndexOf('/') + 1;
+			compact.writeShared(entry.objectName.substring(0, slash));
+			String name = entry.objectName.substring(slash);
+			if (name.equals(fileName(entry.relativePath))) {
+				compact.writeVarLong(0);
+			} else {
+				compact.writeVarLong(1);
+				compact.writeString(name);
+			}
+			compact.writeVarLong(entry.size);
+			compact.writeSignedVarLong(entry.lastModified - previousModified);
+			previousModified = entry.lastModified;
+		}
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		CompactInput compact = new CompactInput(in);
+		maxEntries = compact.readVarInt();
+		files = compact.readVarInt();
+		totalBytes = compact.readVarLong();
+		largestBytes = compact.readVarLong();
+		int count = compact.readVarInt();
+		entries.clear();
+		long lastModified = 0;
+		for (int i = 0; i < count; i++) {
+			String relativePath = compact.readPath();
+			String objectName = compact.readShared()
+					+ (compact.readVarLong() == 0 ? fileName(relativePath) : compact.readString());
+			long size = compact.readVarLong();
+			lastModified += compact.readSignedVarLong();
+			entries.add(new Entry(relativePath, objectName, size, lastModified));
+		}
+	}
+
+	private static String fileName(String relativePath) {
+		return relativePath.substring(relativePath.lastIndexOf('/') + 1);
+	}
+
+	private static final Comparator<Entry> BY_PATH = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry a, Entry b) {
+			return a.relativePath.compareTo(b.relativePath);
+		}
+	};
+}
@@ -0,0 +1,140 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.FilePath.FileCallable;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Resolves the files matching the include and exclude patterns to the
+ * entries of an {@link UploadPlan}: object name, size and modification time,
+ * read with one stat per file during the walk of the workspace. Uploads
+ * consume the entries as they are found, or batch after batch through
+ * {@link UploadBatches}; invoked on its own, the planner returns the whole
+ * plan for a dry run.
+ * <p>
+ * Object names are the file names. In directory mode, a pattern matching a
+ * directory selects its whole subtree, and object names keep the path of the
+ * files below the search root of their pattern, so that a pattern such as
+ * <tt>target/site</tt> uploads <tt>site/index.html</tt> and
+ * <tt>site/css/style.css</tt>.
+ */
+public class UploadPlanner implements FileCallable<UploadPlan> {
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * Receives the entries of the plan, possibly from several threads at once.
+	 */
+	public interface Listener {
+		void planned(File file, UploadPlan.Entry entry) throws IOException;
+	}
+
+	private final GlobMatcher matcher;
+
+	/**
+	 * Prefix prepended to the file names, with its trailing separator, or the
+	 * empty string.
+	 */
+	private final String objectNamePrefix;
+
+	/**
+	 * Whether matching directories are uploaded with their relative paths.
+	 */
+	private final boolean directories;
+
+	/**
+	 * Number of entries kept by the plan returned by {@link #invoke}.
+	 */
+	private int maxEntries = UploadPlan.MAX_ENTRIES;
+
+	/**
+	 * @param includes
+	 *            Comma separated patterns of the files to upload, with macros
+	 *            expanded
+	 * @param excludes
+	 *            Patterns of the files to exclude from upload, with macros
+	 *            expanded
+	 * @param objectNamePrefix
+	 *            Prefix to be added to the object name, may be null
+	 */
+	public UploadPlanner(String includes, String excludes, String objectNamePrefix) {
+		this(includes, excludes, objectNamePrefix, false);
+	}
+
+	/**
+	 * @param directories
+	 *            Whether matching directories are uploaded with the relative
+	 *            paths of their files
+	 */
+	public UploadPlanner(String includes, String excludes, String objectNamePrefix, boolean directories) {
+		this.matcher = new GlobMatcher(includes, excludes, directories);
+		this.objectNamePrefix = objectNamePrefix == null || objectNamePrefix.isEmpty() ? "" : objectNamePrefix + "/";
+		this.directories = directories;
+	}
+
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	@Override
+	public void checkRoles(RoleChecker checker) throws SecurityException {
+		// not implemented
+	}
+
+	/**
+	 * invoke returns the plan of the whole workspace without uploading.
+	 */
+	@Override
+	public UploadPlan invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+		final UploadPlan plan = new UploadPlan(maxEntries);
+		plan(ws, new Listener() {
+			@Override
+			public void planned(File file, UploadPlan.Entry entry) {
+				synchronized (plan) {
+					plan.add(entry);
+				}
+			}
+		});
+		return plan;
+	}
+
+	/**
+	 * Walks the workspace once and passes the entry of each matching file to
+	 * the listener as soon as it is found.
+	 */
+	public void plan(File ws, final Listener listener) throws IOException, InterruptedException {
+		new WorkspaceWalker(matcher).walk(ws, new WorkspaceWalker.Visitor() {
+			@Override
+			public void visit(File file, String[] path, int include) throws IOException {
+				BasicFileAttributes attrs;
+				try {
+					attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+				} catch (NoSuchFileException e) {
+					// deleted since it was listed
+					return;
+				}
+				listener.planned(file, new UploadPlan.Entry(String.join("/", path), objectName(path, include),
+						attrs.size(), attrs.lastModifiedTime().toMillis()));
+			}
+		});
+	}
+
+	/**
+	 * Returns the object name of a file matched by the include pattern, with
+	 * the prefix prepended if one is set up.
+	 */
+	String objectName(String[] path, int include) {
+		if (!directories) {
+			return objectNamePrefix + path[path.length - 1];
+		}
+		int depth = Math.min(matcher.getSearchRootDepth(include), path.length - 1);
+		return objectNamePrefix + String.join("/", Arrays.asList(path).subList(depth, path.length));
+	}
+}
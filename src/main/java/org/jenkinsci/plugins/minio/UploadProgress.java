@@ -0,0 +1,254 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hudson.Util;
+
+/**
+ * Aggregates the outcome of the files of an upload on the agent, and prints a
+ * summary line to the console every {@link #INTERVAL_MILLIS} instead of a
+ * line per file: files and bytes done, throughput, and the time left once
+ * the walk of the workspace is over. When the upload is over, the largest and
+ * the slowest files are listed. The upload threads only update counters, the
+ * console is written by one thread of the reporter.
+ */
+public class UploadProgress implements UploadScheduler.Listener, Closeable {
+
+	/**
+	 * Time between two summary lines.
+	 */
+	static final long INTERVAL_MILLIS = Long.getLong(UploadProgress.class.getName() + ".intervalMillis",
+			TimeUnit.SECONDS.toMillis(10));
+
+	/**
+	 * Number of files listed as the largest and as the slowest.
+	 */
+	private static final int TOP = 5;
+
+	/**
+	 * Number of failures which are printed with their stack trace, the others
+	 * are only counted.
+	 */
+	private static final int MAX_TRACES = 10;
+
+	private static final Comparator<Done> BY_SIZE = new Comparator<Done>() {
+		@Override
+		public int compare(Done a, Done b) {
+			return Long.compare(a.size, b.size);
+		}
+	};
+
+	private static final Comparator<Done> BY_DURATION = new Comparator<Done>() {
+		@Override
+		public int compare(Done a, Done b) {
+			return Long.compare(a.millis, b.millis);
+		}
+	};
+
+	private final PrintStream console;
+	private final String bucketName;
+	private final UploadSummary summary;
+	private final long start = System.currentTimeMillis();
+
+	/**
+	 * Print a line for every file.
+	 */
+	private boolean verbose;
+
+	private final AtomicLong plannedFiles = new AtomicLong();
+	private final AtomicLong plannedBytes = new AtomicLong();
+	private final AtomicLong doneFiles = new AtomicLong();
+	private final AtomicLong doneBytes = new AtomicLong();
+	private volatile boolean planComplete;
+	private int traces;
+
+	/**
+	 * Smallest of the largest, and fastest of the slowest files at the head.
+	 */
+	private final PriorityQueue<Done> largest = new PriorityQueue<>(TOP + 1, BY_SIZE);
+	private final PriorityQueue<Done> slowest = new PriorityQueue<>(TOP + 1, BY_DURATION);
+
+	private final Thread reporter;
+
+	public UploadProgress(PrintStream console, String bucketName, UploadSummary summary) {
+		this.console = console;
+		this.bucketName = bucketName;
+		this.summary = summary;
+		this.reporter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						Thread.sleep(INTERVAL_MILLIS);
+						printProgress();
+					}
+				} catch (InterruptedException e) {
+					// the upload is over
+				}
+			}
+		}, "Minio upload progress");
+		this.reporter.setDaemon(true);
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	 * Starts printing summary lines.
+	 */
+	public void start() {
+		reporter.start();
+	}
+
+	/**
+	 * Counts a file found by the walk of the workspace.
+	 */
+	public void planned(UploadPlan.Entry entry) {
+		plannedFiles.incrementAndGet();
+		plannedBytes.addAndGet(entry.getSize());
+	}
+
+	/**
+	 * Marks the walk of the workspace over, so that the time left can be
+	 * estimated.
+	 */
+	public void planComplete() {
+		planComplete = true;
+	}
+
+	@Override
+	public void done(UploadScheduler.Task task, boolean uploaded, IOException failure) {
+		done(task.getFile().getName(), task.getObjectName(), task.getLength(), task.getStartMillis(), uploaded,
+				failure);
+	}
+
+	/**
+	 * Counts a file whose upload started at the given time and is over.
+	 */
+	public void done(String fileName, String objectName, long length, long startMillis, boolean uploaded,
+			IOException failure) {
+		if (failure != null) {
+			summary.failed(objectName);
+			synchronized (this) {
+				if (traces++ < MAX_TRACES) {
+					console.println("Minio error, failed to upload " + fileName);
+					failure.printStackTrace(console);
+				}
+			}
+		} else if (uploaded) {
+			summary.uploaded(length);
+			if (verbose) {
+				console.println(String.format("File %s, is uploaded to bucket %s as %s", fileName, bucketName,
+						objectName));
+			}
+			Done done = new Done(objectName, length, System.currentTimeMillis() - startMillis);
+			synchronized (this) {
+				keep(largest, done);
+				keep(slowest, done);
+			}
+		} else {
+			summary.skipped();
+		}
+		doneFiles.incrementAndGet();
+		doneBytes.addAndGet(length);
+	}
+
+	private static void keep(PriorityQueue<Done> top, Done done) {
+		top.add(done);
+		if (top.size() > TOP) {
+			top.poll();
+		}
+	}
+
+	/**
+	 * Prints the state of the upload in one line.
+	 */
+	void printProgress() {
+		long elapsed = Math.max(1, System.currentTimeMillis() - start);
+		long files = doneFiles.get();
+		long bytes = doneBytes.get();
+		long rate = bytes * 1000 / elapsed;
+		StringBuilder line = new StringBuilder(MinioUploader.DISPLAY_NAME).append(": ");
+		line.append(String.format("%d/%d files, %s/%s, %s/s", files, plannedFiles.get(), formatBytes(bytes),
+				formatBytes(plannedBytes.get()), formatBytes(rate)));
+		if (!planComplete) {
+			line.append(", still looking for files");
+		} else if (rate > 0) {
+			long left = (plannedBytes.get() - bytes) * 1000 / rate;
+			line.append(", about ").append(Util.getTimeSpanString(left)).append(" left");
+		}
+		console.println(line);
+	}
+
+	/**
+	 * Stops the summary lines and lists the largest and the slowest files.
+	 * The reporter is waited for, so that no summary line is printed after
+	 * the tables or the summary of the upload.
+	 */
+	@Override
+	public void close() {
+		reporter.interrupt();
+		try {
+			reporter.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			if (traces > MAX_TRACES) {
+				console.println(String.format("... and %d more failures", traces - MAX_TRACES));
+			}
+			if (doneFiles.get() <= TOP) {
+				// the summary of the upload says it all
+				return;
+			}
+			printTable("Largest files:", largest, BY_SIZE);
+			printTable("Slowest files:", slowest, BY_DURATION);
+		}
+	}
+
+	private void printTable(String title, PriorityQueue<Done> top, Comparator<Done> order) {
+		if (top.isEmpty()) {
+			return;
+		}
+		List<Done> rows = new ArrayList<>(top);
+		Collections.sort(rows, Collections.reverseOrder(order));
+		console.println(title);
+		for (Done row : rows) {
+			console.println(String.format("  %10s %10s  %s", formatBytes(row.size),
+					Util.getTimeSpanString(row.millis), row.objectName));
+		}
+	}
+
+	static String formatBytes(long bytes) {
+		if (bytes < 1024) {
+			return bytes + " B";
+		}
+		int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+		return String.format("%.1f %siB", bytes / (double) (1L << (10 * unit)), "KMGTPE".charAt(unit - 1));
+	}
+
+	/**
+	 * Uploaded file kept for the final tables.
+	 */
+	private static final class Done {
+		private final String objectName;
+		private final long size;
+		private final long millis;
+
+		Done(String objectName, long size, long millis) {
+			this.objectName = objectName;
+			this.size = size;
+			this.millis = millis;
+		}
+	}
+}
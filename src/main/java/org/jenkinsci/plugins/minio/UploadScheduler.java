@@ -0,0 +1,169 @@
+package org.jenkinsci.plugins.minio;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Schedules the files of an upload, and the parts of the large ones, as tasks
+ * of one bounded pool. The tasks block on file and network I/O, so the pool
+ * is a plain fixed one: its size is the number of requests in flight. Files
+ * are started largest first; the parts of a large file are queued once its
+ * upload is initiated, and any free worker takes them, while small files fill
+ * the gaps. The number of files started but not finished is bounded, so that
+ * submitting blocks instead of queueing the whole workspace.
+ */
+public class UploadScheduler implements Closeable {
+
+	/**
+	 * Default number of concurrent uploads on an agent, can be overridden per
+	 * job.
+	 */
+	public static final int DEFAULT_CONCURRENCY = Integer.getInteger(UploadScheduler.class.getName()
+			+ ".concurrency", Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+
+	private final ObjectUploader uploader;
+	private final ExecutorService pool;
+	private final Semaphore window;
+	private final int windowSize;
+
+	public UploadScheduler(ObjectUploader uploader, int concurrency) {
+		this.uploader = uploader;
+		final int parallelism = concurrency > 0 ? concurrency : DEFAULT_CONCURRENCY;
+		this.windowSize = 2 * parallelism;
+		this.window = new Semaphore(windowSize);
+		this.pool = Executors.newFixedThreadPool(parallelism,
+				new NamingThreadFactory(new DaemonThreadFactory(), "Minio upload"));
+	}
+
+	/**
+	 * Receives the outcome of each task, from the thread which finished it.
+	 */
+	public interface Listener {
+		/**
+		 * @param uploaded
+		 *            True if the file was uploaded, false if it was skipped as
+		 *            unchanged
+		 * @param failure
+		 *            Failure of the upload, or null
+		 */
+		void done(Task task, boolean uploaded, IOException failure);
+	}
+
+	/**
+	 * Sorts the tasks largest first and starts them.
+	 */
+	public void submitAll(List<Task> tasks, Listener listener) throws InterruptedException {
+		Collections.sort(tasks, LARGEST_FIRST);
+		for (Task task : tasks) {
+			submit(task, listener);
+		}
+	}
+
+	/**
+	 * Starts the task, waiting while twice as many files as there are workers
+	 * are being uploaded. The listener is called before the task leaves the
+	 * window, so the scheduler keeps no reference to finished tasks.
+	 */
+	public void submit(final Task task, final Listener listener) throws InterruptedException {
+		window.acquire();
+		task.startMillis = System.currentTimeMillis();
+		try {
+			task.future = uploader.uploadAsync(task.file, task.entry.getRelativePath(), task.getObjectName(), pool);
+		} catch (RuntimeException e) {
+			window.release();
+			throw e;
+		}
+		task.future.whenComplete((result, error) -> {
+			try {
+				boolean uploaded = false;
+				IOException failure = null;
+				try {
+					uploaded = task.await();
+				} catch (IOException e) {
+					failure = e;
+				} catch (InterruptedException e) {
+					// the future is done, waiting for it is not interruptible
+					Thread.currentThread().interrupt();
+				}
+				listener.done(task, uploaded, failure);
+			} finally {
+				window.release();
+			}
+		});
+	}
+
+	/**
+	 * Waits until every submitted task is done and its listener returned.
+	 */
+	public void awaitAll() throws InterruptedException {
+		window.acquire(windowSize);
+		window.release(windowSize);
+	}
+
+	@Override
+	public void close() {
+		pool.shutdownNow();
+	}
+
+	private static final Comparator<Task> LARGEST_FIRST = new Comparator<Task>() {
+		@Override
+		public int compare(Task a, Task b) {
+			return Long.compare(b.getLength(), a.getLength());
+		}
+	};
+
+	/**
+	 * Upload of one file.
+	 */
+	public static final class Task {
+		private final File file;
+		private final UploadPlan.Entry entry;
+		private CompletableFuture<Boolean> future;
+		private long startMillis;
+
+		public Task(File file, UploadPlan.Entry entry) {
+			this.file = file;
+			this.entry = entry;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public String getObjectName() {
+			return entry.getObjectName();
+		}
+
+		public long getLength() {
+			return entry.getSize();
+		}
+
+		/**
+		 * @return Returns the time at which the upload started
+		 */
+		public long getStartMillis() {
+			return startMillis;
+		}
+
+		/**
+		 * Waits for the upload to finish.
+		 *
+		 * @return Returns true if the file was uploaded, false if it was
+		 *         skipped as unchanged
+		 */
+		public boolean await() throws IOException, InterruptedException {
+			return MultipartUploader.get(future);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact result of a batch upload, sent back from the agent instead of one
+ * result per file. Its size does not depend on the number of files: only the
+ * first {@link #MAX_FAILURES} failed objects are named. It crosses the
+ * channel in the compact format of {@link CompactOutput}.
+ */
+public class UploadSummary implements Externalizable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Number of failed objects named in the summary.
+	 */
+	static final int MAX_FAILURES = 100;
+
+	private int uploadedFiles;
+	private long uploadedBytes;
+	private int skippedFiles;
+	private int failedFiles;
+	private long elapsedMillis;
+	private boolean bucketMissing;
+	private final List<String> failures = new ArrayList<>();
+
+	public synchronized void uploaded(long bytes) {
+		uploadedFiles++;
+		uploadedBytes += bytes;
+	}
+
+	public synchronized void skipped() {
+		skippedFiles++;
+	}
+
+	public synchronized void failed(String objectName) {
+		failedFiles++;
+		if (failures.size() < MAX_FAILURES) {
+			failures.add(objectName);
+		}
+	}
+
+	/**
+	 * Counts an uploaded file as failed, when its multipart upload could not
+	 * be completed afterwards.
+	 */
+	public synchronized void incomplete(String objectName, long bytes) {
+		uploadedFiles--;
+		uploadedBytes -= bytes;
+		failed(objectName);
+	}
+
+	/**
+	 * Adds the counts of the summary of another part of the upload.
+	 */
+	public synchronized void add(UploadSummary other) {
+		synchronized (other) {
+			uploadedFiles += other.uploadedFiles;
+			uploadedBytes += other.uploadedBytes;
+			skippedFiles += other.skippedFiles;
+			failedFiles += other.failedFiles;
+			bucketMissing |= other.bucketMissing;
+			for (String objectName : other.failures) {
+				if (failures.size() < MAX_FAILURES) {
+					failures.add(objectName);
+				}
+			}
+		}
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public void setBucketMissing(boolean bucketMissing) {
+		this.bucketMissing = bucketMissing;
+	}
+
+	/**
+	 * @return Returns true if the bucket had to be created again during the
+	 *         upload
+	 */
+	public boolean isBucketMissing() {
+		return bucketMissing;
+	}
+
+	public int getUploadedFiles() {
+		return uploadedFiles;
+	}
+
+	public long getUploadedBytes() {
+		return uploadedBytes;
+	}
+
+	public int getSkippedFiles() {
+		return skippedFiles;
+	}
+
+	public int getFailedFiles() {
+		return failedFiles;
+	}
+
+	/**
+	 * @return Returns the names of the first failed objects
+	 */
+	public synchronized List<String> getFailures() {
+		return Collections.unmodifiableList(new ArrayList<>(failures));
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("uploaded %d files (%d bytes) in %d ms, %d unchanged, %d failed", uploadedFiles,
+				uploadedBytes, elapsedMillis, skippedFiles, failedFiles);
+	}
+
+	@Override
+	public synchronized void writeExternal(ObjectOutput out) throws IOException {
+		CompactOutput compact = new CompactOutput(out);
+		compact.writeVarLong(uploadedFiles);
+		compact.writeVarLong(uploadedBytes);
+		compact.writeVarLong(skippedFiles);
+		compact.writeVarLong(failedFiles);
+		compact.writeVarLong(elapsedMillis);
+		out.writeBoolean(bucketMissing);
+		List<String> sorted = new ArrayList<>(failures);
+		Collections.sort(sorted);
+		compact.writeVarLong(sorted.size());
+		for (String objectName : sorted) {
+			compact.writePath(objectName);
+		}
+	}
+
+	@Override
+	public synchronized void readExternal(ObjectInput in) throws IOException {
+		CompactInput compact = new CompactInput(in);
+		uploadedFiles = compact.readVarInt();
+		uploadedBytes = compact.readVarLong();
+		skippedFiles = compact.readVarInt();
+		failedFiles = compact.readVarInt();
+		elapsedMillis = compact.readVarLong();
+		bucketMissing = in.readBoolean();
+		int count = compact.readVarInt();
+		failures.clear();
+		for (int i = 0; i < count; i++) {
+			failures.add(compact.readPath());
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Walks a directory tree once and reports the files matching a
+ * {@link GlobMatcher}, whatever the number of patterns. Directories which
+ * cannot contain matches, because no include pattern reaches into them or an
+ * exclude pattern covers them, are skipped without being read.
+ * <p>
+ * The walk runs on a fork-join pool. The first directories are walked by a
+ * single thread; once a walk has seen more than {@link #PARALLEL_THRESHOLD}
+ * directories, the subtrees it finds are forked so that idle workers steal
+ * them, which hides the latency of listing directories on network file
+ * systems. Small workspaces are thus walked sequentially.
+ */
+public class WorkspaceWalker {
+
+	/**
+	 * Number of threads listing directories in parallel.
+	 */
+	public static final int PARALLELISM = Integer.getInteger(WorkspaceWalker.class.getName() + ".parallelism",
+			Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Number of directories walked sequentially before subtrees are walked in
+	 * parallel.
+	 */
+	public static final int PARALLEL_THRESHOLD = Integer
+			.getInteger(WorkspaceWalker.class.getName() + ".parallelThreshold", 1000);
+
+	/**
+	 * Receives the matching files of a walk, possibly from several threads at
+	 * once.
+	 */
+	public interface Visitor {
+		/**
+		 * @param file
+		 *            Matching file
+		 * @param path
+		 *            Segments of the path of the file relative to the root
+		 * @param include
+		 *            Index of the include pattern which matched the file
+		 */
+		void visit(File file, String[] path, int include) throws IOException;
+	}
+
+	private final GlobMatcher matcher;
+
+	public WorkspaceWalker(GlobMatcher matcher) {
+		this.matcher = matcher;
+	}
+
+	/**
+	 * Walks the tree below the root, following symbolic links, and calls the
+	 * visitor for each matching file. Returns once every matching file has
+	 * been visited; the first failure of the visitor stops the walk and is
+	 * thrown.
+	 */
+	public void walk(File root, Visitor visitor) throws IOException, InterruptedException {
+		ForkJoinPool pool = new ForkJoinPool(PARALLELISM, p -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+			thread.setName("Minio walk " + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+		Walk walk = new Walk(visitor);
+		try {
+			Path dir = root.toPath();
+			BasicFileAttributes attrs = Files.readAttributes(dir, BasicFileAttributes.class);
+			pool.submit(new DirectoryTask(walk, dir, new String[0], new Ancestor(key(dir, attrs), null))).get();
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to walk " + root, e.getCause());
+		} finally {
+			walk.stopped = true;
+			pool.shutdownNow();
+		}
+		if (walk.failure != null) {
+			throw walk.failure;
+		}
+	}
+
+	/**
+	 * State shared by the tasks of one walk.
+	 */
+	private static final class Walk {
+		private final Visitor visitor;
+		private final AtomicInteger directories = new AtomicInteger();
+		private volatile IOException failure;
+		private volatile boolean stopped;
+
+		Walk(Visitor visitor) {
+			this.visitor = visitor;
+		}
+
+		synchronized void fail(IOException e) {
+			if (failure == null) {
+				failure = e;
+			}
+			stopped = true;
+		}
+	}
+
+	/**
+	 * Directory on the path from the root, used to detect symbolic link
+	 * cycles.
+	 */
+	private static final class Ancestor {
+		private final Object key;
+		private final Ancestor parent;
+
+		Ancestor(Object key, Ancestor parent) {
+			this.key = key;
+			this.parent = parent;
+		}
+
+		boolean contains(Object key) {
+			for (Ancestor a = this; a != null; a = a.parent) {
+				if (a.key.equals(key)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private final class DirectoryTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Walk walk;
+		private final Path dir;
+		private final String[] segments;
+		private final Ancestor ancestors;
+
+		DirectoryTask(Walk walk, Path dir, String[] segments, Ancestor ancestors) {
+			this.walk = walk;
+			this.dir = dir;
+			this.segments = segments;
+			this.ancestors = ancestors;
+		}
+
+		@Override
+		protected void compute() {
+			List<DirectoryTask> forked = new ArrayList<>();
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+				for (Path entry : entries) {
+					if (walk.stopped) {
+						break;
+					}
+					visitEntry(entry, forked);
+				}
+			} catch (IOException | DirectoryIteratorException e) {
+				// unreadable directories are left out, as Ant does
+			}
+			for (DirectoryTask task : forked) {
+				task.join();
+			}
+		}
+
+		private void visitEntry(Path entry, List<DirectoryTask> forked) {
+			BasicFileAttributes attrs;
+			Object key;
+			try {
+				attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+				key = attrs.isDirectory() ? key(entry, attrs) : null;
+			} catch (IOException e) {
+				// broken symbolic link
+				return;
+			}
+			String[] path = Arrays.copyOf(segments, segments.length + 1);
+			path[segments.length] = entry.getFileName().toString();
+			if (attrs.isDirectory()) {
+				if (!matcher.mayContainMatches(path)) {
+					return;
+				}
+				if (ancestors.contains(key)) {
+					// symbolic link cycle
+					return;
+				}
+				DirectoryTask task = new DirectoryTask(walk, entry, path, new Ancestor(key, ancestors));
+				if (walk.directories.incrementAndGet() > PARALLEL_THRESHOLD) {
+					task.fork();
+					forked.add(task);
+				} else {
+					task.compute();
+				}
+			} else if (attrs.isRegularFile()) {
+				int include = matcher.findInclude(path);
+				if (include < 0) {
+					return;
+				}
+				try {
+					walk.visitor.visit(entry.toFile(), path, include);
+				} catch (IOException e) {
+					walk.fail(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the identity of a directory, its file key where the platform
+	 * has one.
+	 */
+	private static Object key(Path dir, BasicFileAttributes attrs) throws IOException {
+		Object key = attrs.fileKey();
+		return key != null ? key : dir.toRealPath();
+	}
+}
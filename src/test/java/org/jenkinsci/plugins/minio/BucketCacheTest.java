@@ -0,0 +1,65 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BucketCacheTest {
+
+	private FakeMinioServer server;
+	private MinioRestClient client;
+
+	@Before
+	public void startServer() throws IOException {
+		BucketCache.invalidateAll();
+		server = new FakeMinioServer();
+		client = server.factory().createRestClient();
+	}
+
+	@After
+	public void stopServer() {
+		server.close();
+		BucketCache.invalidateAll();
+	}
+
+	@Test
+	public void createsTheBucketOnceUntilInvalidated() throws Exception {
+		BucketCache.ensureBucket(client, "bucket");
+		BucketCache.ensureBucket(client, "bucket");
+		assertEquals(1, bucketRequests());
+
+		client.putObject("bucket", "a", ByteBuffer.wrap(new byte[] { 1 }),
+				Collections.<String, String>emptyMap());
+		assertNotNull(server.get("bucket", "a"));
+
+		BucketCache.invalidate(client.getEndpoint(), "bucket");
+		BucketCache.ensureBucket(client, "bucket");
+		assertEquals(2, bucketRequests());
+	}
+
+	@Test
+	public void acceptsABucketWhichAlreadyExists() throws Exception {
+		server.createBucket("bucket");
+		BucketCache.ensureBucket(client, "bucket");
+		assertEquals(1, bucketRequests());
+	}
+
+	private int bucketRequests() {
+		List<String> puts = new ArrayList<>();
+		for (String request : server.getRequests()) {
+			if (request.equals("PUT /bucket") || request.equals("PUT /bucket/")) {
+				puts.add(request);
+			}
+		}
+		return puts.size();
+	}
+}
@@ -0,0 +1,89 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+	private static final int KB = 1024;
+
+	@Test
+	public void reusesReleasedBuffers() throws Exception {
+		BufferPool pool = new BufferPool(256 * KB);
+		ByteBuffer first = pool.acquire(100 * KB);
+		assertTrue(first.isDirect());
+		assertEquals(100 * KB, first.limit());
+		assertEquals(128 * KB, first.capacity());
+		first.put((byte) 1);
+		pool.release(first);
+
+		ByteBuffer second = pool.acquire(120 * KB);
+		assertSame(first, second);
+		assertEquals(0, second.position());
+		assertEquals(120 * KB, second.limit());
+	}
+
+	@Test
+	public void waitsWhileTheBudgetIsUsed() throws Exception {
+		final BufferPool pool = new BufferPool(128 * KB);
+		ByteBuffer held = pool.acquire(64 * KB);
+		pool.acquire(64 * KB);
+
+		final AtomicReference<ByteBuffer> acquired = new AtomicReference<>();
+		final CountDownLatch done = new CountDownLatch(1);
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					acquired.set(pool.acquire(64 * KB));
+				} catch (InterruptedException e) {
+					// the test fails on the missing buffer
+				}
+				done.countDown();
+			}
+		});
+		thread.start();
+		assertFalse("a buffer is allocated over the budget", done.await(200, TimeUnit.MILLISECONDS));
+
+		pool.release(held);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertSame(held, acquired.get());
+	}
+
+	@Test
+	public void evictsCachedBuffersOfOtherSizes() throws Exception {
+		BufferPool pool = new BufferPool(128 * KB);
+		ByteBuffer small = pool.acquire(64 * KB);
+		ByteBuffer other = pool.acquire(64 * KB);
+		pool.release(small);
+		pool.release(other);
+
+		// the two cached buffers are dropped to make room for the larger size
+		ByteBuffer large = pool.acquire(128 * KB);
+		assertEquals(128 * KB, large.capacity());
+	}
+
+	@Test
+	public void servesARequestLargerThanTheBudgetAlone() throws Exception {
+		BufferPool pool = new BufferPool(64 * KB);
+		ByteBuffer large = pool.acquire(256 * KB);
+		assertEquals(256 * KB, large.limit());
+	}
+
+	@Test(expected = InterruptedException.class)
+	public void waitingIsInterruptible() throws Exception {
+		BufferPool pool = new BufferPool(64 * KB);
+		pool.acquire(64 * KB);
+		Thread.currentThread().interrupt();
+		pool.acquire(64 * KB);
+	}
+}
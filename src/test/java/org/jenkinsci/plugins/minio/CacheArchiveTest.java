@@ -0,0 +1,257 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.tools.tar.TarConstants;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CacheArchiveTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private Path root;
+	private Path outside;
+
+	@Before
+	public void createDirectories() throws IOException {
+		root = tmp.newFolder("root").toPath();
+		outside = tmp.newFolder("outside").toPath();
+	}
+
+	@Test
+	public void extractsWhatWasWritten() throws IOException {
+		Path source = tmp.newFolder("source").toPath();
+		Files.createDirectories(source.resolve("a/b"));
+		Files.write(source.resolve("a/b/c.txt"), bytes("content"));
+		Files.write(source.resolve("d.txt"), bytes("other"));
+		Files.createSymbolicLink(source.resolve("a/link"), Paths.get("b/c.txt"));
+		Files.createSymbolicLink(source.resolve("a/b/up"), Paths.get("../../d.txt"));
+
+		List<List<CacheArchive.Entry>> chunks = CacheArchive.chunks(source);
+		assertEquals(1, chunks.size());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CacheArchive.write(chunks.get(0), out);
+
+		CacheArchive.Totals totals = CacheArchive.extract(new ByteArrayInputStream(out.toByteArray()), root);
+
+		// a/, a/b/, a/b/c.txt, a/b/up, a/link and d.txt
+		assertEquals(6, totals.getEntries());
+		assertEquals("content".length() + "other".length(), totals.getBytes());
+		assertArrayEquals(bytes("content"), Files.readAllBytes(root.resolve("a/b/c.txt")));
+		assertEquals(Paths.get("b/c.txt"), Files.readSymbolicLink(root.resolve("a/link")));
+		assertArrayEquals(bytes("other"), Files.readAllBytes(root.resolve("a/b/up")));
+	}
+
+	@Test
+	public void extractsEveryMemberOfAChunk() throws IOException {
+		byte[] content = new byte[200 * 1024];
+		new Random(1).nextBytes(content);
+		byte[] tar = tar("big.bin", content);
+		// split in the middle of the file, as ParallelGzipOutputStream does
+		ByteArrayOutputStream members = new ByteArrayOutputStream();
+		members.write(gzip(tar, 0, tar.length / 2));
+		int boundary = members.size();
+		members.write(gzip(tar, tar.length / 2, tar.length - tar.length / 2));
+
+		CacheArchive.Totals totals = CacheArchive.extract(new Dribble(members.toByteArray(), boundary), root);
+
+		assertEquals(1, totals.getEntries());
+		assertArrayEquals(content, Files.readAllBytes(root.resolve("big.bin")));
+	}
+
+	@Test
+	public void refusesTruncatedChunks() throws IOException {
+		byte[] tar = tar("a.txt", bytes("content"));
+		ByteArrayOutputStream members = new ByteArrayOutputStream();
+		members.write(gzip(tar, 0, tar.length / 2));
+		int boundary = members.size();
+		byte[] last = gzip(tar, tar.length / 2, tar.length - tar.length / 2);
+		members.write(last, 0, last.length - 4);
+
+		try {
+			CacheArchive.extract(new Dribble(members.toByteArray(), boundary), root);
+			fail("the truncated chunk is extracted");
+		} catch (IOException expected) {
+			// the trailer of the last member is missing
+		}
+	}
+
+	@Test
+	public void writesTheSameChunksForTheSameTree() throws IOException {
+		Path source = tmp.newFolder("source").toPath();
+		Files.write(source.resolve("b.txt"), bytes("b"));
+		Files.write(source.resolve("a.txt"), bytes("a"));
+
+		ByteArrayOutputStream first = new ByteArrayOutputStream();
+		CacheArchive.write(CacheArchive.chunks(source).get(0), first);
+		ByteArrayOutputStream second = new ByteArrayOutputStream();
+		CacheArchive.write(CacheArchive.chunks(source).get(0), second);
+
+		assertArrayEquals(first.toByteArray(), second.toByteArray());
+	}
+
+	@Test
+	public void refusesNamesLeadingOut() throws IOException {
+		assertRefused(archive(file("../outside/x.txt")));
+		assertFalse(Files.exists(outside.resolve("x.txt")));
+	}
+
+	@Test
+	public void refusesAbsoluteLinkTargets() throws IOException {
+		assertRefused(archive(link("link", outside.toString())));
+		assertFalse(Files.exists(root.resolve("link"), LinkOption.NOFOLLOW_LINKS));
+	}
+
+	@Test
+	public void refusesLinkTargetsLeadingOut() throws IOException {
+		assertRefused(archive(link("a/link", "../../outside")));
+		assertRefused(archive(link("link", "a/../../outside")));
+	}
+
+	@Test
+	public void refusesWritingThroughLinksOfTheArchive() throws IOException {
+		// a link accepted in one chunk must not carry a later entry out
+		Files.createSymbolicLink(root.resolve("escape"), outside);
+		assertRefused(archive(file("escape/x.txt")));
+		assertFalse(Files.exists(outside.resolve("x.txt")));
+	}
+
+	@Test
+	public void refusesCreatingDirectoriesThroughLinks() throws IOException {
+		Files.createSymbolicLink(root.resolve("escape"), outside);
+		assertRefused(archive(file("escape/a/b/x.txt")));
+		assertFalse(Files.exists(outside.resolve("a")));
+	}
+
+	@Test
+	public void replacesLinksInsteadOfWritingThroughThem() throws IOException {
+		Path target = outside.resolve("target.txt");
+		Files.write(target, bytes("kept"));
+		Files.createSymbolicLink(root.resolve("x.txt"), target);
+
+		CacheArchive.extract(new ByteArrayInputStream(archive(file("x.txt"))), root);
+
+		assertArrayEquals(bytes("kept"), Files.readAllBytes(target));
+		assertFalse(Files.isSymbolicLink(root.resolve("x.txt")));
+		assertArrayEquals(bytes("x"), Files.readAllBytes(root.resolve("x.txt")));
+	}
+
+	@Test
+	public void acceptsLinksBetweenSiblings() throws IOException {
+		CacheArchive.extract(new ByteArrayInputStream(archive(link("bin/tool", "../lib/tool.js"))), root);
+
+		assertTrue(Files.isSymbolicLink(root.resolve("bin/tool")));
+		assertTrue(CacheArchive.isInside(root, root.resolve("a"), Paths.get("./../b")));
+		assertFalse(CacheArchive.isInside(root, root.resolve("a"), Paths.get("b/../../..")));
+	}
+
+	private void assertRefused(byte[] archive) {
+		try {
+			CacheArchive.extract(new ByteArrayInputStream(archive), root);
+			fail("the archive is extracted");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Refusing to extract"));
+		}
+	}
+
+	private static TarEntry file(String name) {
+		TarEntry entry = new TarEntry(name, true);
+		entry.setSize(1);
+		return entry;
+	}
+
+	private static TarEntry link(String name, String target) {
+		TarEntry entry = new TarEntry(name, TarConstants.LF_SYMLINK);
+		entry.setLinkName(target);
+		return entry;
+	}
+
+	/**
+	 * Writes the entries as a compressed archive, with the single byte
+	 * <tt>x</tt> as the content of files.
+	 */
+	private static byte[] archive(TarEntry... entries) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (TarOutputStream tar = new TarOutputStream(new GZIPOutputStream(out), "UTF-8")) {
+			tar.setLongFileMode(TarOutputStream.LONGFILE_POSIX);
+			for (TarEntry entry : entries) {
+				tar.putNextEntry(entry);
+				if (entry.getSize() > 0) {
+					tar.write('x');
+				}
+				tar.closeEntry();
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] tar(String name, byte[] content) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (TarOutputStream tar = new TarOutputStream(out, "UTF-8")) {
+			TarEntry entry = new TarEntry(name, true);
+			entry.setSize(content.length);
+			tar.putNextEntry(entry);
+			tar.write(content);
+			tar.closeEntry();
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] gzip(byte[] bytes, int offset, int length) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(bytes, offset, length);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Stream telling no bytes available, as the body of a response does
+	 * between packets, whose reads end at the boundary between two members,
+	 * where {@link java.util.zip.GZIPInputStream} would stop.
+	 */
+	private static final class Dribble extends ByteArrayInputStream {
+		private final int boundary;
+
+		Dribble(byte[] bytes, int boundary) {
+			super(bytes);
+			this.boundary = boundary;
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) {
+			return super.read(b, off, pos < boundary ? Math.min(len, boundary - pos) : len);
+		}
+
+		@Override
+		public synchronized int available() {
+			return 0;
+		}
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
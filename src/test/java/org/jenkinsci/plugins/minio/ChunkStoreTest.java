@@ -0,0 +1,88 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ChunkStoreTest {
+
+	private static final String A = "ab" + repeat('0', 62);
+	private static final String B = "cd" + repeat('1', 62);
+
+	@Test
+	public void tracksTheOffsetsOfTheChunks() {
+		ChunkStore.Recipe recipe = new ChunkStore.Recipe();
+		recipe.add(A, 100);
+		recipe.add(B, 50);
+		recipe.add(A, 100);
+
+		assertEquals(3, recipe.getChunks());
+		assertEquals(250, recipe.getSize());
+		assertEquals(0, recipe.getOffset(0));
+		assertEquals(100, recipe.getOffset(1));
+		assertEquals(150, recipe.getOffset(2));
+		assertEquals(B, recipe.getHash(1));
+		assertEquals(50, recipe.getLength(1));
+	}
+
+	@Test
+	public void parsesWhatItWrites() throws IOException {
+		ChunkStore.Recipe recipe = new ChunkStore.Recipe();
+		recipe.add(A, 100);
+		recipe.add(B, 50);
+
+		ChunkStore.Recipe parsed = ChunkStore.Recipe.parse(new ByteArrayInputStream(bytes(recipe.toBytes())));
+
+		assertEquals(recipe.getHashes(), parsed.getHashes());
+		assertEquals(150, parsed.getSize());
+		assertEquals(recipe.toBytes(), parsed.toBytes());
+	}
+
+	@Test
+	public void parsesEmptyFiles() throws IOException {
+		ChunkStore.Recipe parsed = ChunkStore.Recipe
+				.parse(new ByteArrayInputStream(bytes(new ChunkStore.Recipe().toBytes())));
+
+		assertEquals(0, parsed.getChunks());
+		assertEquals(0, parsed.getSize());
+	}
+
+	@Test(expected = IOException.class)
+	public void refusesOtherObjects() throws IOException {
+		ChunkStore.Recipe.parse(new ByteArrayInputStream("<html/>".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test(expected = IOException.class)
+	public void refusesInvalidLines() throws IOException {
+		ChunkStore.Recipe.parse(new ByteArrayInputStream(
+				("# minio-storage recipe 1\n" + A + "\n").getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void namesChunksAndRecipes() {
+		assertEquals(".minio-chunks/ab/" + A, ChunkStore.chunkName(A));
+		assertTrue(ChunkStore.isRecipe("dist/app.jar.recipe"));
+		assertFalse(ChunkStore.isRecipe("dist/app.jar"));
+		assertFalse(ChunkStore.isRecipe(ChunkStore.chunkName(A) + ".recipe"));
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+}
@@ -0,0 +1,172 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Round trips of the compact format of {@link CompactOutput} and
+ * {@link CompactInput}.
+ */
+public class CompactOutputTest {
+
+	private static final long[] UNSIGNED = { 0, 1, 127, 128, 255, 16383, 16384, Integer.MAX_VALUE,
+			1L << 35, (1L << 56) - 1, 1L << 56, Long.MAX_VALUE, Long.MIN_VALUE, -1 };
+
+	private static final long[] SIGNED = { 0, 1, -1, 63, -64, 64, -65, Integer.MIN_VALUE, Long.MAX_VALUE,
+			Long.MIN_VALUE };
+
+	@Test
+	public void roundTripsVarLongs() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CompactOutput out = new CompactOutput(new DataOutputStream(bytes));
+		for (long value : UNSIGNED) {
+			out.writeVarLong(value);
+		}
+		for (long value : SIGNED) {
+			out.writeSignedVarLong(value);
+		}
+
+		CompactInput in = input(bytes);
+		for (long value : UNSIGNED) {
+			assertEquals(value, in.readVarLong());
+		}
+		for (long value : SIGNED) {
+			assertEquals(value, in.readSignedVarLong());
+		}
+	}
+
+	@Test
+	public void writesVarLongsInSevenBitGroups() throws IOException {
+		assertEquals(1, varLongSize(0));
+		assertEquals(1, varLongSize(127));
+		assertEquals(2, varLongSize(128));
+		assertEquals(2, varLongSize(16383));
+		assertEquals(3, varLongSize(16384));
+		assertEquals(9, varLongSize(Long.MAX_VALUE));
+		assertEquals(10, varLongSize(-1));
+	}
+
+	@Test
+	public void roundTripsFrontCodedPaths() throws IOException {
+		List<String> paths = Arrays.asList("", "a", "a/b/c.txt", "a/b/c.txt", "a/b/d.txt", "a/bb", "b",
+				"b/\u00e9t\u00e9", "b/\u00e9t\u00e9/x", "c/\ud83d\ude00", "c/\ud83d\ude01", "c/\ud83d\ude01a", "");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CompactOutput out = new CompactOutput(new DataOutputStream(bytes));
+		for (String path : paths) {
+			out.writePath(path);
+		}
+
+		CompactInput in = input(bytes);
+		for (String path : paths) {
+			assertEquals(path, in.readPath());
+		}
+	}
+
+	@Test
+	public void sharesRepeatedStrings() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CompactOutput out = new CompactOutput(new DataOutputStream(bytes));
+		out.writeShared("reports/");
+		int first = bytes.size();
+		out.writeShared("reports/");
+		out.writeShared("");
+		out.writeShared("reports/");
+		// an index for each repetition, an index and an empty string for ""
+		assertEquals(first + 1 + 2 + 1, bytes.size());
+
+		CompactInput in = input(bytes);
+		assertEquals("reports/", in.readShared());
+		assertEquals("reports/", in.readShared());
+		assertEquals("", in.readShared());
+		assertEquals("reports/", in.readShared());
+	}
+
+	@Test
+	public void rejectsCorruptInput() throws IOException {
+		// a prefix longer than the previous path
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new CompactOutput(new DataOutputStream(bytes)).writeVarLong(3);
+		try {
+			input(bytes).readPath();
+			fail("accepted an invalid prefix length");
+		} catch (StreamCorruptedException expected) {
+			// refused
+		}
+
+		// a string table index past the end of the table
+		try {
+			input(bytes).readShared();
+			fail("accepted an invalid string table index");
+		} catch (StreamCorruptedException expected) {
+			// refused
+		}
+
+		// more than ten 7-bit groups
+		byte[] endless = new byte[11];
+		Arrays.fill(endless, (byte) 0x80);
+		try {
+			new CompactInput(new DataInputStream(new ByteArrayInputStream(endless))).readVarLong();
+			fail("accepted an endless number");
+		} catch (StreamCorruptedException expected) {
+			// refused
+		}
+	}
+
+	@Test
+	public void roundTripsUploadPlan() throws Exception {
+		UploadPlan plan = new UploadPlan(3);
+		plan.add(new UploadPlan.Entry("target/b.jar", "builds/b.jar", 20, 2000));
+		plan.add(new UploadPlan.Entry("target/a.jar", "builds/renamed.jar", 10, 1000));
+		plan.add(new UploadPlan.Entry("a.txt", "a.txt", 0, 3000));
+		plan.add(new UploadPlan.Entry("target/c.jar", "builds/c.jar", 40, 500));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(plan);
+		}
+		UploadPlan read;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			read = (UploadPlan) in.readObject();
+		}
+
+		assertEquals(4, read.size());
+		assertEquals(70, read.getTotalBytes());
+		assertEquals(plan.estimateMillis(2), read.estimateMillis(2));
+		List<UploadPlan.Entry> entries = read.getEntries();
+		assertEquals(3, entries.size());
+		assertEntry(entries.get(0), "a.txt", "a.txt", 0, 3000);
+		assertEntry(entries.get(1), "target/a.jar", "builds/renamed.jar", 10, 1000);
+		assertEntry(entries.get(2), "target/b.jar", "builds/b.jar", 20, 2000);
+	}
+
+	private static void assertEntry(UploadPlan.Entry entry, String relativePath, String objectName, long size,
+			long lastModified) {
+		assertEquals(relativePath, entry.getRelativePath());
+		assertEquals(objectName, entry.getObjectName());
+		assertEquals(size, entry.getSize());
+		assertEquals(lastModified, entry.getLastModified());
+	}
+
+	private static int varLongSize(long value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new CompactOutput(new DataOutputStream(bytes)).writeVarLong(value);
+		return bytes.size();
+	}
+
+	private static CompactInput input(ByteArrayOutputStream bytes) {
+		return new CompactInput(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+	}
+}
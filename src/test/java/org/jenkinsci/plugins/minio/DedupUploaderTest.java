@@ -0,0 +1,115 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.util.StreamTaskListener;
+
+public class DedupUploaderTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private FakeMinioServer server;
+	private ByteArrayOutputStream log;
+	private File ws;
+
+	@Before
+	public void startServer() throws IOException {
+		server = new FakeMinioServer();
+		log = new ByteArrayOutputStream();
+		ws = tmp.newFolder("ws");
+	}
+
+	@After
+	public void stopServer() {
+		server.close();
+	}
+
+	@Test
+	public void createsTheMissingBucketAgain() throws Exception {
+		byte[] big = random(3 * ChunkStore.AVERAGE_CHUNK_SIZE);
+		Files.write(new File(ws, "big.bin").toPath(), big);
+		Files.write(new File(ws, "small.txt").toPath(), "small".getBytes(StandardCharsets.UTF_8));
+
+		UploadSummary summary = upload();
+
+		assertTrue(summary.isBucketMissing());
+		assertEquals(2, summary.getUploadedFiles());
+		assertEquals(0, summary.getFailedFiles());
+		assertNotNull(server.get("bucket", "prefix/big.bin" + ChunkStore.RECIPE_SUFFIX));
+		assertEquals(1, count("PUT /bucket"));
+
+		DownloadSummary download = new MinioDownloader(server.factory(), "bucket", "prefix", "out", 0, 2,
+				new StreamTaskListener(log, StandardCharsets.UTF_8)).invoke(ws, null);
+		assertEquals(0, download.getFailedFiles());
+		assertArrayEquals(big, Files.readAllBytes(new File(ws, "out/big.bin").toPath()));
+	}
+
+	@Test
+	public void sendsOnlyTheMissingChunks() throws Exception {
+		server.createBucket("bucket");
+		byte[] big = random(3 * ChunkStore.AVERAGE_CHUNK_SIZE);
+		Files.write(new File(ws, "big.bin").toPath(), big);
+		upload();
+		int chunks = chunkPuts();
+
+		// a second file sharing the content makes no chunk of its own
+		Files.write(new File(ws, "copy.bin").toPath(), big);
+		UploadSummary summary = upload();
+
+		assertFalse(summary.isBucketMissing());
+		assertEquals(0, summary.getFailedFiles());
+		assertEquals(chunks, chunkPuts());
+		assertNotNull(server.get("bucket", "prefix/copy.bin" + ChunkStore.RECIPE_SUFFIX));
+	}
+
+	private UploadSummary upload() throws IOException, InterruptedException {
+		DedupUploader uploader = new DedupUploader(server.factory(), "bucket",
+				new UploadPlanner("*.bin,*.txt", null, "prefix"), 4,
+				new StreamTaskListener(log, StandardCharsets.UTF_8));
+		return uploader.invoke(ws, null);
+	}
+
+	private int count(String request) {
+		int count = 0;
+		for (String received : server.getRequests()) {
+			if (received.equals(request)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private int chunkPuts() {
+		int count = 0;
+		for (String received : server.getRequests()) {
+			if (received.startsWith("PUT /bucket/" + ChunkStore.PREFIX)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static byte[] random(int size) {
+		byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,354 @@
+package org.jenkinsci.plugins.minio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-memory server answering the S3 requests of {@link MinioRestClient}:
+ * buckets, objects with their metadata, ranged and conditional reads,
+ * listings and multipart uploads. Signatures are not checked.
+ */
+class FakeMinioServer implements Closeable {
+
+	/**
+	 * Called with each request before it is served.
+	 */
+	interface Hook {
+		void received(String request);
+	}
+
+	/**
+	 * Stored object.
+	 */
+	static final class StoredObject {
+		final byte[] content;
+		final String etag;
+		final Map<String, String> headers;
+
+		StoredObject(byte[] content, Map<String, String> headers) {
+			this.content = content;
+			this.etag = "\"" + md5(content) + "\"";
+			this.headers = headers;
+		}
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final Set<String> buckets = ConcurrentHashMap.newKeySet();
+	private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+	private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, String>> uploadHeaders = new ConcurrentHashMap<>();
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicInteger maxActive = new AtomicInteger();
+	private final AtomicInteger nextUpload = new AtomicInteger();
+	private volatile Hook hook;
+
+	FakeMinioServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(executor);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				int now = active.incrementAndGet();
+				maxActive.accumulateAndGet(now, Math::max);
+				try {
+					serve(exchange);
+				} catch (RuntimeException e) {
+					send(exchange, 500, error("InternalError", e.toString()));
+				} finally {
+					active.decrementAndGet();
+					exchange.close();
+				}
+			}
+		});
+		server.start();
+	}
+
+	String getURL() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	MinioClientFactory factory() {
+		return new MinioClientFactory(getURL(), "access", "secret", null);
+	}
+
+	void createBucket(String bucket) {
+		buckets.add(bucket);
+	}
+
+	void put(String bucket, String name, byte[] content) {
+		put(bucket, name, content, new HashMap<String, String>());
+	}
+
+	void put(String bucket, String name, byte[] content, Map<String, String> headers) {
+		objects.put(bucket + "/" + name, new StoredObject(content, headers));
+	}
+
+	void setHook(Hook hook) {
+		this.hook = hook;
+	}
+
+	StoredObject get(String bucket, String name) {
+		return objects.get(bucket + "/" + name);
+	}
+
+	/**
+	 * @return Returns the method and path of each request received, in
+	 *         order, such as <tt>GET /bucket/name?query</tt>
+	 */
+	List<String> getRequests() {
+		synchronized (requests) {
+			return new ArrayList<>(requests);
+		}
+	}
+
+	/**
+	 * @return Returns the largest number of requests served at the same time
+	 */
+	int getMaxActive() {
+		return maxActive.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void serve(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getRawPath();
+		String rawQuery = exchange.getRequestURI().getRawQuery();
+		String request = method + " " + path + (rawQuery != null ? "?" + rawQuery : "");
+		requests.add(request);
+		Hook hook = this.hook;
+		if (hook != null) {
+			hook.received(request);
+		}
+		Map<String, String> query = query(rawQuery);
+		byte[] body = read(exchange.getRequestBody());
+
+		String decoded = URLDecoder.decode(path.substring(1).replace("+", "%2B"), "UTF-8");
+		int slash = decoded.indexOf('/');
+		String bucket = slash < 0 ? decoded : decoded.substring(0, slash);
+		String name = slash < 0 || slash == decoded.length() - 1 ? null : decoded.substring(slash + 1);
+
+		if (name == null && "PUT".equals(method)) {
+			if (!buckets.add(bucket)) {
+				send(exchange, 409, error("BucketAlreadyOwnedByYou", bucket));
+				return;
+			}
+			send(exchange, 200, new byte[0]);
+			return;
+		}
+		if (!buckets.contains(bucket)) {
+			send(exchange, 404, "HEAD".equals(method) ? null : error("NoSuchBucket", bucket));
+			return;
+		}
+		if (name == null) {
+			list(exchange, bucket, query);
+			return;
+		}
+		String key = bucket + "/" + name;
+		Headers in = exchange.getRequestHeaders();
+		Headers out = exchange.getResponseHeaders();
+		switch (method) {
+		case "PUT":
+			if (query.containsKey("partNumber")) {
+				Map<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+				if (parts == null) {
+					send(exchange, 404, error("NoSuchUpload", name));
+					return;
+				}
+				parts.put(Integer.parseInt(query.get("partNumber")), body);
+				out.set("ETag", "\"" + md5(body) + "\"");
+				send(exchange, 200, new byte[0]);
+				return;
+			}
+			StoredObject object = new StoredObject(body, metadata(in));
+			objects.put(key, object);
+			out.set("ETag", object.etag);
+			send(exchange, 200, new byte[0]);
+			return;
+		case "POST":
+			if (query.containsKey("uploads")) {
+				String uploadId = "upload-" + nextUpload.incrementAndGet();
+				uploads.put(uploadId, new ConcurrentHashMap<Integer, byte[]>());
+				uploadHeaders.put(uploadId, metadata(in));
+				send(exchange, 200, ("<InitiateMultipartUploadResult><UploadId>" + uploadId
+						+ "</UploadId></InitiateMultipartUploadResult>").getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			Map<Integer, byte[]> parts = uploads.remove(query.get("uploadId"));
+			if (parts == null) {
+				send(exchange, 404, error("NoSuchUpload", name));
+				return;
+			}
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			for (byte[] part : new TreeMap<>(parts).values()) {
+				content.write(part);
+			}
+			objects.put(key,
+					new StoredObject(content.toByteArray(), uploadHeaders.remove(query.get("uploadId"))));
+			send(exchange, 200, "<CompleteMultipartUploadResult/>".getBytes(StandardCharsets.UTF_8));
+			return;
+		case "DELETE":
+			if (query.containsKey("uploadId")) {
+				uploads.remove(query.get("uploadId"));
+			} else {
+				objects.remove(key);
+			}
+			send(exchange, 204, null);
+			return;
+		case "HEAD":
+		case "GET":
+			StoredObject stored = objects.get(key);
+			if (stored == null) {
+				send(exchange, 404, "HEAD".equals(method) ? null : error("NoSuchKey", name));
+				return;
+			}
+			String ifMatch = in.getFirst("If-Match");
+			if (ifMatch != null && !ifMatch.equals(stored.etag)) {
+				send(exchange, 412, error("PreconditionFailed", name));
+				return;
+			}
+			String ifNoneMatch = in.getFirst("If-None-Match");
+			if (ifNoneMatch != null && ifNoneMatch.equals(stored.etag)) {
+				send(exchange, 304, null);
+				return;
+			}
+			out.set("ETag", stored.etag);
+			for (Map.Entry<String, String> header : stored.headers.entrySet()) {
+				out.set(header.getKey(), header.getValue());
+			}
+			int first = 0;
+			int last = stored.content.length - 1;
+			String range = in.getFirst("Range");
+			int status = 200;
+			if (range != null) {
+				String[] bounds = range.substring("bytes=".length()).split("-", -1);
+				first = Integer.parseInt(bounds[0]);
+				if (!bounds[1].isEmpty()) {
+					last = Math.min(last, Integer.parseInt(bounds[1]));
+				}
+				status = 206;
+				out.set("Content-Range", "bytes " + first + "-" + last + "/" + stored.content.length);
+			}
+			byte[] bytes = new byte[last - first + 1];
+			System.arraycopy(stored.content, first, bytes, 0, bytes.length);
+			if ("HEAD".equals(method)) {
+				out.set("Content-Length", Integer.toString(bytes.length));
+				exchange.sendResponseHeaders(status, -1);
+				return;
+			}
+			send(exchange, status, bytes);
+			return;
+		default:
+			send(exchange, 405, error("MethodNotAllowed", method));
+		}
+	}
+
+	private void list(HttpExchange exchange, String bucket, Map<String, String> query) throws IOException {
+		String prefix = query.containsKey("prefix") ? query.get("prefix") : "";
+		StringBuilder xml = new StringBuilder("<ListBucketResult><IsTruncated>false</IsTruncated>");
+		for (Map.Entry<String, StoredObject> entry : new TreeMap<>(objects).entrySet()) {
+			if (!entry.getKey().startsWith(bucket + "/" + prefix)) {
+				continue;
+			}
+			StoredObject object = entry.getValue();
+			xml.append("<Contents><Key>").append(escape(entry.getKey().substring(bucket.length() + 1)))
+					.append("</Key><LastModified>2020-01-01T00:00:00.000Z</LastModified><ETag>")
+					.append(escape(object.etag)).append("</ETag><Size>").append(object.content.length)
+					.append("</Size></Contents>");
+		}
+		xml.append("</ListBucketResult>");
+		send(exchange, 200, xml.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Map<String, String> metadata(Headers headers) {
+		Map<String, String> metadata = new HashMap<>();
+		for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+			String name = header.getKey();
+			if (name.toLowerCase().startsWith("x-amz-meta-") || name.equalsIgnoreCase("Content-Encoding")) {
+				metadata.put(name, header.getValue().get(0));
+			}
+		}
+		return metadata;
+	}
+
+	private static Map<String, String> query(String rawQuery) throws IOException {
+		Map<String, String> query = new HashMap<>();
+		if (rawQuery == null) {
+			return query;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int equals = pair.indexOf('=');
+			query.put(URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), "UTF-8"),
+					equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+		}
+		return query;
+	}
+
+	private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+		if (body == null || body.length == 0) {
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private static byte[] error(String code, String message) {
+		return ("<Error><Code>" + code + "</Code><Message>" + escape(message) + "</Message></Error>")
+				.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String escape(String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[64 * 1024];
+		int n;
+		while ((n = in.read(buffer)) != -1) {
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	static String md5(byte[] content) {
+		try {
+			return MinioRestClient.hex(MessageDigest.getInstance("MD5").digest(content));
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+}
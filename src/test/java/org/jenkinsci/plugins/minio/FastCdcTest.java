@@ -0,0 +1,113 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class FastCdcTest {
+
+	private static final int AVERAGE = 4096;
+
+	@Test
+	public void cutsChunksBetweenTheBounds() {
+		FastCdc chunker = new FastCdc(AVERAGE);
+		byte[] data = random(1, 1024 * 1024);
+
+		List<Integer> lengths = lengths(chunker, data);
+
+		int total = 0;
+		for (int i = 0; i < lengths.size(); i++) {
+			int length = lengths.get(i);
+			assertTrue("chunk " + i + " of " + length + " bytes", length <= 4 * AVERAGE);
+			if (i < lengths.size() - 1) {
+				assertTrue("chunk " + i + " of " + length + " bytes", length > AVERAGE / 4);
+			}
+			total += length;
+		}
+		assertEquals(data.length, total);
+		// the average stays close to the one asked for
+		int average = data.length / lengths.size();
+		assertTrue("average of " + average + " bytes", average > AVERAGE / 2 && average < 2 * AVERAGE);
+	}
+
+	@Test
+	public void cutsTheSameDataTheSameWay() {
+		byte[] data = random(2, 256 * 1024);
+
+		assertEquals(lengths(new FastCdc(AVERAGE), data), lengths(new FastCdc(AVERAGE), data));
+	}
+
+	@Test
+	public void keepsTheChunksAwayFromAnInsertion() {
+		FastCdc chunker = new FastCdc(AVERAGE);
+		byte[] data = random(3, 1024 * 1024);
+		byte[] changed = new byte[data.length + 10];
+		int middle = data.length / 2;
+		System.arraycopy(data, 0, changed, 0, middle);
+		System.arraycopy(data, middle, changed, middle + 10, data.length - middle);
+
+		List<String> before = chunks(chunker, data);
+		Set<String> after = new HashSet<>(chunks(chunker, changed));
+
+		int kept = 0;
+		for (String chunk : before) {
+			if (after.contains(chunk)) {
+				kept++;
+			}
+		}
+		// only the chunks around the insertion change
+		assertTrue(kept + " of " + before.size() + " chunks kept", kept >= before.size() - 3);
+	}
+
+	@Test
+	public void returnsShortInputsWhole() {
+		FastCdc chunker = new FastCdc(AVERAGE);
+
+		assertEquals(100, chunker.cut(new byte[200], 50, 100));
+		assertEquals(AVERAGE / 4, chunker.cut(new byte[AVERAGE], 0, AVERAGE / 4));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesAveragesWhichAreNotPowersOfTwo() {
+		new FastCdc(3000);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesTinyAverages() {
+		new FastCdc(128);
+	}
+
+	private static List<Integer> lengths(FastCdc chunker, byte[] data) {
+		List<Integer> lengths = new ArrayList<>();
+		for (int offset = 0; offset < data.length;) {
+			int cut = chunker.cut(data, offset, data.length - offset);
+			lengths.add(cut);
+			offset += cut;
+		}
+		return lengths;
+	}
+
+	private static List<String> chunks(FastCdc chunker, byte[] data) {
+		List<String> chunks = new ArrayList<>();
+		int offset = 0;
+		for (int length : lengths(chunker, data)) {
+			chunks.add(Arrays.toString(Arrays.copyOfRange(data, offset, offset + length)));
+			offset += length;
+		}
+		return chunks;
+	}
+
+	private static byte[] random(long seed, int length) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+}
@@ -0,0 +1,94 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class GlobMatcherTest {
+
+	@Test
+	public void matchesAntPatterns() {
+		GlobMatcher matcher = new GlobMatcher("**/build/test-reports/*.xml, target/*.jar", null);
+
+		assertTrue(matcher.matches(path("build/test-reports/TEST-a.xml")));
+		assertTrue(matcher.matches(path("a/b/build/test-reports/TEST-a.xml")));
+		assertFalse(matcher.matches(path("a/build/test-reports/sub/TEST-a.xml")));
+		assertTrue(matcher.matches(path("target/app.jar")));
+		assertFalse(matcher.matches(path("target/lib/app.jar")));
+		assertFalse(matcher.matches(path("target/app.war")));
+	}
+
+	@Test
+	public void matchesSingleCharacterWildcardsAndLiterals() {
+		GlobMatcher matcher = new GlobMatcher("log?.txt, a+b(1).txt", null);
+
+		assertTrue(matcher.matches(path("log1.txt")));
+		assertFalse(matcher.matches(path("log12.txt")));
+		assertTrue(matcher.matches(path("a+b(1).txt")));
+		assertFalse(matcher.matches(path("aab(1).txt")));
+	}
+
+	@Test
+	public void appliesExcludesAndDefaultExcludes() {
+		GlobMatcher matcher = new GlobMatcher("**", "**/*.tmp, logs/**");
+
+		assertTrue(matcher.matches(path("a/b.txt")));
+		assertFalse(matcher.matches(path("a/b.tmp")));
+		assertFalse(matcher.matches(path("logs/x/y.txt")));
+		assertFalse(matcher.matches(path(".git/config")));
+		assertFalse(matcher.matches(path("a/.gitignore")));
+		assertFalse(matcher.matches(path("a/b.txt~")));
+	}
+
+	@Test
+	public void prunesDirectories() {
+		GlobMatcher matcher = new GlobMatcher("target/site/**, **/reports/*.xml", "**/node_modules/**");
+
+		assertTrue(matcher.mayContainMatches(path("")));
+		assertTrue(matcher.mayContainMatches(path("target")));
+		assertTrue(matcher.mayContainMatches(path("target/site/css")));
+		assertTrue(matcher.mayContainMatches(path("src/anything")));
+		assertFalse(matcher.mayContainMatches(path("a/node_modules")));
+		assertFalse(matcher.mayContainMatches(path(".git")));
+
+		GlobMatcher rooted = new GlobMatcher("target/*.jar", null);
+		assertTrue(rooted.mayContainMatches(path("target")));
+		assertFalse(rooted.mayContainMatches(path("src")));
+	}
+
+	@Test
+	public void findsSearchRoots() {
+		GlobMatcher matcher = new GlobMatcher("target/site, build/**/*.xml, *.txt, a/b/c.txt", null);
+
+		assertEquals(1, matcher.getSearchRootDepth(0));
+		assertEquals(1, matcher.getSearchRootDepth(1));
+		assertEquals(0, matcher.getSearchRootDepth(2));
+		assertEquals(2, matcher.getSearchRootDepth(3));
+		assertEquals(1, matcher.findInclude(path("build/x/y.xml")));
+		assertEquals(-1, matcher.findInclude(path("target/site/index.html")));
+	}
+
+	@Test
+	public void matchesSubtreesOfDirectories() {
+		GlobMatcher matcher = new GlobMatcher("target/site, docs/", null, true);
+
+		assertEquals(0, matcher.findInclude(path("target/site/index.html")));
+		assertEquals(0, matcher.findInclude(path("target/site/css/style.css")));
+		assertEquals(1, matcher.findInclude(path("docs/a/b.md")));
+		assertEquals(-1, matcher.findInclude(path("target/other.txt")));
+		assertEquals(1, matcher.getSearchRootDepth(0));
+	}
+
+	@Test
+	public void splitsLikeAnt() {
+		assertArrayEquals(new String[] { "a", "b", "**" }, GlobMatcher.split("./a\\b/"));
+		assertArrayEquals(new String[] { "a", "b" }, GlobMatcher.split("a//b"));
+	}
+
+	private static String[] path(String path) {
+		return path.isEmpty() ? new String[0] : path.split("/");
+	}
+}
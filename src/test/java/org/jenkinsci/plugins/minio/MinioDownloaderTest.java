@@ -0,0 +1,134 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.util.StreamTaskListener;
+
+public class MinioDownloaderTest {
+
+	private static final int PART_SIZE = 1000;
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private FakeMinioServer server;
+	private ByteArrayOutputStream log;
+
+	@Before
+	public void startServer() throws IOException {
+		server = new FakeMinioServer();
+		server.createBucket("bucket");
+		log = new ByteArrayOutputStream();
+	}
+
+	@After
+	public void stopServer() {
+		server.close();
+	}
+
+	@Test
+	public void reassemblesTheRangesOfLargeObjects() throws Exception {
+		byte[] big = random(2 * PART_SIZE + 500);
+		server.put("bucket", "builds/1/big.bin", big);
+		server.put("bucket", "builds/1/dir/small.txt", "small".getBytes(StandardCharsets.UTF_8));
+		server.put("bucket", "builds/10/other.txt", "other".getBytes(StandardCharsets.UTF_8));
+
+		DownloadSummary summary = download("builds/1");
+
+		assertEquals(2, summary.getDownloadedFiles());
+		assertEquals(0, summary.getFailedFiles());
+		assertArrayEquals(big, Files.readAllBytes(new File(tmp.getRoot(), "out/big.bin").toPath()));
+		assertEquals("small", new String(Files.readAllBytes(new File(tmp.getRoot(), "out/dir/small.txt").toPath()),
+				StandardCharsets.UTF_8));
+		// the prefix ends at a separator, as it does for the upload
+		assertFalse(new File(tmp.getRoot(), "out/0").exists());
+		assertEquals(3, count("GET /bucket/builds/1/big.bin"));
+	}
+
+	@Test
+	public void failsTheObjectReplacedBetweenItsRanges() throws Exception {
+		server.put("bucket", "big.bin", random(3 * PART_SIZE));
+		final AtomicInteger ranges = new AtomicInteger();
+		server.setHook(new FakeMinioServer.Hook() {
+			@Override
+			public void received(String request) {
+				if (request.equals("GET /bucket/big.bin") && ranges.incrementAndGet() == 2) {
+					// same size, other content
+					server.put("bucket", "big.bin", new byte[3 * PART_SIZE]);
+				}
+			}
+		});
+
+		DownloadSummary summary = download("");
+
+		assertEquals(0, summary.getDownloadedFiles());
+		assertEquals(Collections.singletonList("big.bin"), summary.getFailures());
+		assertFalse(new File(tmp.getRoot(), "out/big.bin").exists());
+		assertFalse(new File(tmp.getRoot(), "out/big.bin" + MinioDownloader.TMP_SUFFIX).exists());
+		assertTrue(log.toString("UTF-8"), log.toString("UTF-8").contains("Failed to download big.bin"));
+	}
+
+	@Test
+	public void decodesGzipObjectsFetchedWhole() throws Exception {
+		byte[] first = random(2 * PART_SIZE);
+		byte[] second = random(PART_SIZE);
+		ByteArrayOutputStream members = new ByteArrayOutputStream();
+		members.write(gzip(first));
+		members.write(gzip(second));
+		server.put("bucket", "app.jar", members.toByteArray(),
+				Collections.singletonMap("Content-Encoding", UploadCodec.GZIP.getEncoding()));
+
+		DownloadSummary summary = download(null);
+
+		assertEquals(0, summary.getFailedFiles());
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		content.write(first);
+		content.write(second);
+		assertArrayEquals(content.toByteArray(),
+				Files.readAllBytes(new File(tmp.getRoot(), "out/app.jar").toPath()));
+		assertEquals(1, count("GET /bucket/app.jar"));
+	}
+
+	private DownloadSummary download(String prefix) throws IOException, InterruptedException {
+		MinioDownloader downloader = new MinioDownloader(server.factory(), "bucket", prefix, "out", PART_SIZE, 1,
+				new StreamTaskListener(log, StandardCharsets.UTF_8));
+		return downloader.invoke(tmp.getRoot(), null);
+	}
+
+	private int count(String request) {
+		return Collections.frequency(server.getRequests(), request);
+	}
+
+	private static byte[] random(int size) {
+		byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		return bytes;
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(content);
+		}
+		return out.toByteArray();
+	}
+}
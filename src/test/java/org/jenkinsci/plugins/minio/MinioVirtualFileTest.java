@@ -0,0 +1,39 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import jenkins.util.VirtualFile;
+
+public class MinioVirtualFileTest {
+
+	private final MinioVirtualFile root = new MinioVirtualFile(
+			new MinioClientFactory("http://minio:9000", "access", "secret", null), "builds", "job/7/artifacts");
+
+	@Test
+	public void stopsAtTheRootOfTheArtifacts() {
+		assertSame(root, root.getParent());
+		VirtualFile file = root.child("a/b.txt");
+		assertEquals(root.child("a"), file.getParent());
+		assertEquals(root, file.getParent().getParent());
+		assertEquals(root, file.getParent().getParent().getParent());
+	}
+
+	@Test
+	public void normalizesChildPaths() {
+		assertEquals(root.child("a/b"), root.child("./a//b/"));
+		assertEquals("b", root.child("a/b/").getName());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesParentSegments() {
+		root.child("a/../../8/artifacts");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesLeadingParentSegments() {
+		root.child("..");
+	}
+}
@@ -0,0 +1,210 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NioHttpSenderTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private ServerSocket server;
+	private Thread thread;
+	private final List<String> requests = new ArrayList<>();
+	private final AtomicInteger connections = new AtomicInteger();
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = tmp.newFile("body");
+		Files.write(file.toPath(), "0123456789".getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@After
+	public void stopServer() throws Exception {
+		if (server != null) {
+			server.close();
+			thread.join(5000);
+		}
+	}
+
+	@Test
+	public void readsTheEtagAndKeepsTheConnection() throws Exception {
+		serve("HTTP/1.1 200 OK\r\nETag: \"a1\"\r\nContent-Length: 0\r\n\r\n",
+				"HTTP/1.1 200 OK\r\nETag: \"a2\"\r\nContent-Length: 0\r\n\r\n");
+
+		try (NioHttpSender sender = sender()) {
+			assertEquals("\"a1\"", put(sender, 0, 10));
+			assertEquals("\"a2\"", put(sender, 2, 3));
+		}
+
+		assertEquals(1, connections.get());
+		assertEquals(Arrays.asList("0123456789", "234"), bodies());
+		assertTrue(requests.get(0).startsWith("PUT /bucket/object?X-Amz-Signature=0 HTTP/1.1\r\n"));
+		assertTrue(requests.get(0).contains("\r\nContent-Type: application/octet-stream\r\n"));
+		assertTrue(requests.get(0).contains("\r\nContent-Length: 10\r\n"));
+	}
+
+	@Test
+	public void skipsInterimResponses() throws Exception {
+		serve("HTTP/1.1 100 Continue\r\n\r\nHTTP/1.1 200 OK\r\nETag: \"b\"\r\nContent-Length: 0\r\n\r\n");
+
+		try (NioHttpSender sender = sender()) {
+			assertEquals("\"b\"", put(sender, 0, 10));
+		}
+	}
+
+	@Test
+	public void readsChunkedErrors() throws Exception {
+		String error = "<Error><Code>NoSuchBucket</Code><Message>gone</Message></Error>";
+		serve("HTTP/1.1 404 Not Found\r\nTransfer-Encoding: chunked\r\n\r\n" + Integer.toHexString(10) + "\r\n"
+				+ error.substring(0, 10) + "\r\n" + Integer.toHexString(error.length() - 10) + ";ext=1\r\n"
+				+ error.substring(10) + "\r\n0\r\nX-Trailer: t\r\n\r\n",
+				"HTTP/1.1 200 OK\r\nETag: \"c\"\r\nContent-Length: 0\r\n\r\n");
+
+		try (NioHttpSender sender = sender()) {
+			try {
+				put(sender, 0, 10);
+				fail("the error is not thrown");
+			} catch (MinioRestException e) {
+				assertEquals("NoSuchBucket", e.getCode());
+				assertTrue(ObjectUploader.isNoSuchBucket(e));
+			}
+			// the connection is still usable after the error body
+			assertEquals("\"c\"", put(sender, 0, 10));
+		}
+		assertEquals(1, connections.get());
+	}
+
+	@Test
+	public void reconnectsAfterTheServerClosesTheConnection() throws Exception {
+		serve("HTTP/1.1 200 OK\r\nETag: \"d1\"\r\nContent-Length: 0\r\nConnection: close\r\n\r\n",
+				"HTTP/1.1 200 OK\r\nETag: \"d2\"\r\nContent-Length: 0\r\n\r\n");
+
+		try (NioHttpSender sender = sender()) {
+			assertEquals("\"d1\"", put(sender, 0, 10));
+			assertEquals("\"d2\"", put(sender, 0, 10));
+		}
+		assertEquals(2, connections.get());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsMalformedStatusLines() throws Exception {
+		serve("garbage\r\n\r\n");
+
+		try (NioHttpSender sender = sender()) {
+			put(sender, 0, 10);
+		}
+	}
+
+	private NioHttpSender sender() throws IOException {
+		return new NioHttpSender("http://127.0.0.1:" + server.getLocalPort());
+	}
+
+	private String put(NioHttpSender sender, long position, long length) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return sender.put("/bucket/object?X-Amz-Signature=" + requests.size(),
+					new FileRegion(channel, position, length));
+		}
+	}
+
+	/**
+	 * Starts a server answering the requests with the responses in turn,
+	 * closing the connection after the responses which ask for it.
+	 */
+	private void serve(final String... responses) throws IOException {
+		server = new ServerSocket(0);
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				int next = 0;
+				try {
+					while (next < responses.length) {
+						try (Socket socket = server.accept()) {
+							connections.incrementAndGet();
+							InputStream in = socket.getInputStream();
+							OutputStream out = socket.getOutputStream();
+							while (next < responses.length) {
+								String request = readRequest(in);
+								if (request == null) {
+									break;
+								}
+								synchronized (requests) {
+									requests.add(request);
+								}
+								String response = responses[next++];
+								out.write(response.getBytes(StandardCharsets.US_ASCII));
+								out.flush();
+								if (response.contains("Connection: close")) {
+									break;
+								}
+							}
+						}
+					}
+				} catch (IOException e) {
+					// closed by the test
+				}
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Reads a request with its body, or returns null at the end of the
+	 * connection.
+	 */
+	private static String readRequest(InputStream in) throws IOException {
+		ByteArrayOutputStream head = new ByteArrayOutputStream();
+		while (!head.toString("US-ASCII").endsWith("\r\n\r\n")) {
+			int c = in.read();
+			if (c == -1) {
+				return null;
+			}
+			head.write(c);
+		}
+		String text = head.toString("US-ASCII");
+		int start = text.indexOf("Content-Length: ") + "Content-Length: ".length();
+		int length = Integer.parseInt(text.substring(start, text.indexOf("\r\n", start)));
+		byte[] body = new byte[length];
+		for (int n = 0; n < length;) {
+			int read = in.read(body, n, length - n);
+			if (read == -1) {
+				return null;
+			}
+			n += read;
+		}
+		return text + new String(body, StandardCharsets.US_ASCII);
+	}
+
+	private List<String> bodies() {
+		List<String> bodies = new ArrayList<>();
+		for (String request : requests) {
+			bodies.add(request.substring(request.indexOf("\r\n\r\n") + 4));
+		}
+		return bodies;
+	}
+}
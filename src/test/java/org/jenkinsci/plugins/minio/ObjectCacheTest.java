@@ -0,0 +1,76 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ObjectCacheTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private ObjectCache cache;
+	private Path ws;
+
+	@Before
+	public void createCache() throws IOException {
+		cache = ObjectCache.at(tmp.newFolder("cache"));
+		ws = tmp.newFolder("ws").toPath();
+	}
+
+	@Test
+	public void leavesTheCachedFileWritable() throws IOException {
+		Path file = write("downloaded.bin", "content");
+
+		cache.put("key", "\"etag\"", file);
+
+		// checked on the permissions, which do not stop root
+		assertTrue(Files.getPosixFilePermissions(file).contains(PosixFilePermission.OWNER_WRITE));
+		Path copy = ws.resolve("copy.bin");
+		assertTrue(cache.copyTo("key", "\"etag\"", copy));
+		assertArrayEquals(bytes("content"), Files.readAllBytes(copy));
+	}
+
+	@Test
+	public void refusesOtherEtags() throws IOException {
+		cache.put("key", "\"etag\"", write("downloaded.bin", "content"));
+
+		assertFalse(cache.copyTo("key", "\"other\"", ws.resolve("copy.bin")));
+		assertFalse(cache.copyTo("missing", "\"etag\"", ws.resolve("copy.bin")));
+	}
+
+	@Test
+	public void evictsObjectsModifiedThroughAWorkspace() throws IOException {
+		cache.put("key", "\"etag\"", write("downloaded.bin", "content"));
+		Path linked = ws.resolve("linked.bin");
+		assertTrue(cache.copyTo("key", "\"etag\"", linked));
+
+		// same size, so only the modification time tells
+		linked.toFile().setWritable(true);
+		Files.write(linked, bytes("CONTENT"));
+		Files.setLastModifiedTime(linked, FileTime.fromMillis(System.currentTimeMillis() + 60000));
+
+		assertFalse(cache.copyTo("key", "\"etag\"", ws.resolve("again.bin")));
+		assertFalse(cache.copyTo("key", "\"etag\"", ws.resolve("again.bin")));
+	}
+
+	private Path write(String name, String content) throws IOException {
+		return Files.write(ws.resolve(name), bytes(content));
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,111 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.ZipException;
+
+import org.junit.Test;
+
+public class ParallelGzipOutputStreamTest {
+
+	@Test
+	public void decodesEveryMemberOfShortReads() throws IOException {
+		byte[] content = content(3 * ParallelGzipOutputStream.BLOCK_SIZE + 12345);
+
+		byte[] decoded = decode(compress(content));
+
+		assertArrayEquals(content, decoded);
+	}
+
+	@Test
+	public void decodesAnEmptyInput() throws IOException {
+		assertArrayEquals(new byte[0], decode(compress(new byte[0])));
+	}
+
+	@Test
+	public void failsOnATruncatedMember() throws IOException {
+		byte[] compressed = compress(content(2 * ParallelGzipOutputStream.BLOCK_SIZE));
+		try {
+			decode(Arrays.copyOf(compressed, compressed.length - 3));
+			fail("the truncated stream is decoded");
+		} catch (EOFException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("member 2"));
+		}
+	}
+
+	@Test(expected = ZipException.class)
+	public void failsOnACorruptTrailer() throws IOException {
+		byte[] compressed = compress(content(1000));
+		compressed[compressed.length - 8] ^= 1;
+		decode(compressed);
+	}
+
+	@Test(expected = ZipException.class)
+	public void failsOnTrailingGarbage() throws IOException {
+		byte[] compressed = compress(content(1000));
+		byte[] garbage = Arrays.copyOf(compressed, compressed.length + 4);
+		decode(garbage);
+	}
+
+	private static byte[] content(int length) {
+		byte[] content = new byte[length];
+		Random random = new Random(42);
+		// half random and half repeated, so the blocks compress unevenly
+		for (int i = 0; i < length; i++) {
+			content[i] = (byte) (i % 2 == 0 ? random.nextInt() : i / 1024);
+		}
+		return content;
+	}
+
+	private static byte[] compress(byte[] content) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out)) {
+			gzip.write(content, 0, content.length / 2);
+			gzip.write(content, content.length / 2, content.length - content.length / 2);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] decode(byte[] compressed) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = new GzipMembersInputStream(new NetworkInputStream(compressed), 8192)) {
+			byte[] buffer = new byte[5000];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Stream behaving like a socket: reads return at most a few hundred bytes
+	 * and nothing is ever reported as available.
+	 */
+	private static class NetworkInputStream extends FilterInputStream {
+
+		NetworkInputStream(byte[] content) {
+			super(new ByteArrayInputStream(content));
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return super.read(b, off, Math.min(len, 317));
+		}
+
+		@Override
+		public int available() {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpoolJobTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private FakeMinioServer server;
+	private File dir;
+
+	@Before
+	public void startServer() throws IOException {
+		server = new FakeMinioServer();
+		dir = tmp.newFolder("job");
+	}
+
+	@After
+	public void stopServer() {
+		server.close();
+	}
+
+	@Test
+	public void uploadsOnlyTheFilesLeftByThePreviousAttempt() throws Exception {
+		SpoolJob job = job("a.txt", "b/c.txt");
+		Files.delete(new File(dir, "files/b/c.txt").toPath());
+		// the missing bucket is created again, the missing file fails
+		UploadSummary partial = SpoolJob.read(dir).upload(dir, server.factory());
+		assertTrue(partial.isBucketMissing());
+		assertEquals(1, partial.getUploadedFiles());
+		assertEquals(1, partial.getFailedFiles());
+		assertFalse(new File(dir, "files/a.txt").exists());
+		int sent = count("PUT /bucket/prefix/a.txt");
+
+		write("b/c.txt");
+		UploadSummary last = job.upload(dir, server.factory());
+		assertFalse(last.isBucketMissing());
+		assertEquals(2, last.getUploadedFiles());
+		assertEquals(0, last.getFailedFiles());
+		assertEquals(sent, count("PUT /bucket/prefix/a.txt"));
+		assertArrayEquals(bytes("b/c.txt"), server.get("bucket", "prefix/b/c.txt").content);
+	}
+
+	@Test
+	public void keepsTheResultOfTheJob() throws Exception {
+		assertNull(SpoolJob.readResult(dir));
+		UploadSummary summary = new UploadSummary();
+		summary.uploaded(3);
+		summary.failed("prefix/x");
+		SpoolJob.writeResult(dir, summary);
+
+		UploadSummary read = SpoolJob.readResult(dir);
+		assertNotNull(read);
+		assertEquals(1, read.getUploadedFiles());
+		assertEquals(Collections.singletonList("prefix/x"), read.getFailures());
+	}
+
+	@Test
+	public void recordsThePendingJobsOfTheController() throws Exception {
+		File file = new File(tmp.getRoot(), "pending");
+		PendingSpoolJobs jobs = new PendingSpoolJobs(file);
+		jobs.add("1", "folder/job#3");
+		jobs.add("2", "job#4");
+		jobs.add("3", "job#5");
+		jobs.remove("2");
+
+		Map<String, String> expected = new LinkedHashMap<>();
+		expected.put("1", "folder/job#3");
+		expected.put("3", "job#5");
+		assertEquals(expected, new PendingSpoolJobs(file).getJobs());
+		assertFalse(new File(tmp.getRoot(), "pending.tmp").exists());
+	}
+
+	private SpoolJob job(String... paths) throws IOException {
+		UploadPlan plan = new UploadPlan();
+		for (String path : paths) {
+			write(path);
+			plan.add(new UploadPlan.Entry(path, "prefix/" + path, bytes(path).length, 0));
+		}
+		SpoolJob job = new SpoolJob(server.getURL(), "bucket", 0, 2, UploadCodec.NONE, plan);
+		job.write(dir);
+		return job;
+	}
+
+	private void write(String path) throws IOException {
+		File file = new File(dir, SpoolJob.FILES_DIRECTORY + "/" + path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), bytes(path));
+	}
+
+	private static byte[] bytes(String path) {
+		return ("content of " + path).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private int count(String request) {
+		return Collections.frequency(server.getRequests(), request);
+	}
+}
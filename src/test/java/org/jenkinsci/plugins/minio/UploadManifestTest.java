@@ -0,0 +1,131 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UploadManifestTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void hashesWithFullMd5() throws Exception {
+		File f = write("a.txt", "hello");
+		UploadManifest manifest = UploadManifest.load(new File(tmp.getRoot(), "manifest"));
+
+		assertEquals("5d41402abc4b2a76b9719d911017c592", manifest.hash(f, "a.txt"));
+	}
+
+	@Test
+	public void keepsRecordedHashOfUnchangedFiles() throws Exception {
+		File f = write("a.txt", "hello");
+		File file = new File(tmp.getRoot(), "manifest");
+		UploadManifest manifest = UploadManifest.load(file);
+		String hash = manifest.hash(f, "a.txt");
+		manifest.save();
+
+		// same size and modification time: the recorded hash is trusted
+		long mtime = f.lastModified();
+		Files.write(f.toPath(), "world".getBytes(StandardCharsets.UTF_8));
+		assertTrue(f.setLastModified(mtime));
+		assertEquals(hash, UploadManifest.load(file).hash(f, "a.txt"));
+
+		assertTrue(f.setLastModified(mtime + 2000));
+		assertEquals("7d793037a0760186574b0282f2f435e7", UploadManifest.load(file).hash(f, "a.txt"));
+	}
+
+	@Test
+	public void separatesPaths() throws Exception {
+		File a = write("a.txt", "hello");
+		File b = write("b.txt", "world");
+		assertTrue(b.setLastModified(a.lastModified()));
+		File file = new File(tmp.getRoot(), "manifest");
+		UploadManifest manifest = UploadManifest.load(file);
+		String hashA = manifest.hash(a, "dir/a.txt");
+		manifest.save();
+
+		manifest = UploadManifest.load(file);
+		assertNotEquals(hashA, manifest.hash(b, "dir/b.txt"));
+		assertEquals(hashA, manifest.hash(a, "dir/a.txt"));
+	}
+
+	@Test
+	public void dropsEntriesNotSeenAndSurvivesGrowth() throws Exception {
+		File f = write("a.txt", "hello");
+		File file = new File(tmp.getRoot(), "manifest");
+		UploadManifest manifest = UploadManifest.load(file);
+		for (int i = 0; i < 3000; i++) {
+			manifest.hash(f, "dir/file-\u00e9-" + i);
+		}
+		manifest.save();
+		long full = file.length();
+
+		manifest = UploadManifest.load(file);
+		for (int i = 0; i < 10; i++) {
+			manifest.hash(f, "dir/file-\u00e9-" + i);
+		}
+		manifest.save();
+		assertTrue(file.length() < full / 100);
+	}
+
+	@Test
+	public void ignoresCorruptFile() throws Exception {
+		File f = write("a.txt", "hello");
+		File file = new File(tmp.getRoot(), "manifest");
+		UploadManifest manifest = UploadManifest.load(file);
+		manifest.hash(f, "a.txt");
+		manifest.save();
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+		assertEquals("5d41402abc4b2a76b9719d911017c592", UploadManifest.load(file).hash(f, "a.txt"));
+	}
+
+	@Test
+	public void readsBackPathsOfAnyLength() throws Exception {
+		File a = write("a.txt", "hello");
+		File b = write("b.txt", "world");
+		assertTrue(b.setLastModified(a.lastModified()));
+		File file = new File(tmp.getRoot(), "manifest");
+		UploadManifest manifest = UploadManifest.load(file);
+		// enough paths to grow the table and the arena of paths several times
+		StringBuilder longName = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			longName.append('x');
+		}
+		for (int i = 0; i < 5000; i++) {
+			manifest.hash(i % 2 == 0 ? a : b, "dir-" + i + "/" + longName.substring(0, i % 50));
+		}
+		manifest.hash(a, longName.toString());
+		manifest.save();
+
+		manifest = UploadManifest.load(file);
+		for (int i = 0; i < 5000; i++) {
+			assertEquals(i % 2 == 0 ? "5d41402abc4b2a76b9719d911017c592" : "7d793037a0760186574b0282f2f435e7",
+					manifest.hash(i % 2 == 0 ? a : b, "dir-" + i + "/" + longName.substring(0, i % 50)));
+		}
+		assertEquals("5d41402abc4b2a76b9719d911017c592", manifest.hash(a, longName.toString()));
+	}
+
+	@Test
+	public void keyIsNeverZero() {
+		assertFalse(UploadManifest.key(new byte[0]) == 0);
+	}
+
+	private File write(String name, String content) throws Exception {
+		File f = new File(tmp.getRoot(), name);
+		Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return f;
+	}
+}
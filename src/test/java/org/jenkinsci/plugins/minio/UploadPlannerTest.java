@@ -0,0 +1,112 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UploadPlannerTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void takesBatchesOfOneWalk() throws Exception {
+		File ws = tmp.getRoot();
+		for (String path : Arrays.asList("e.txt", "a/c.txt", "b.txt", "a/b.txt", "d.txt")) {
+			touch(ws, path);
+		}
+		final AtomicInteger walks = new AtomicInteger();
+		UploadPlanner planner = new UploadPlanner("**/*.txt", null, null, true) {
+			private static final long serialVersionUID = 1;
+
+			@Override
+			public void plan(File ws, Listener listener) throws IOException, InterruptedException {
+				walks.incrementAndGet();
+				super.plan(ws, listener);
+			}
+		};
+
+		String walk = new UploadBatches.Start(planner, 2).invoke(ws, null);
+		List<String> paths = new ArrayList<>();
+		List<Integer> sizes = new ArrayList<>();
+		try {
+			while (true) {
+				UploadPlan batch = new UploadBatches.Next(walk).invoke(ws, null);
+				if (batch.getEntries().isEmpty()) {
+					break;
+				}
+				paths.addAll(paths(batch));
+				sizes.add(batch.getEntries().size());
+				assertEquals(3 * batch.getEntries().size(), batch.getTotalBytes());
+			}
+		} finally {
+			new UploadBatches.End(walk).invoke(ws, null);
+		}
+
+		Collections.sort(paths);
+		assertEquals(Arrays.asList("a/b.txt", "a/c.txt", "b.txt", "d.txt", "e.txt"), paths);
+		assertEquals(Arrays.asList(2, 2, 1), sizes);
+		assertEquals(1, walks.get());
+	}
+
+	@Test
+	public void endsAWalkWhoseBatchesAreNotTaken() throws Exception {
+		File ws = tmp.getRoot();
+		for (int i = 0; i < 20; i++) {
+			touch(ws, "f" + i + ".txt");
+		}
+		UploadPlanner planner = new UploadPlanner("*.txt", null, null);
+
+		String walk = new UploadBatches.Start(planner, 2).invoke(ws, null);
+		assertEquals(2, new UploadBatches.Next(walk).invoke(ws, null).getEntries().size());
+		new UploadBatches.End(walk).invoke(ws, null);
+		try {
+			new UploadBatches.Next(walk).invoke(ws, null);
+			fail("the ended walk gives batches");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Unknown walk"));
+		}
+	}
+
+	@Test
+	public void keepsTheFirstEntriesFoundWithoutBatches() throws Exception {
+		File ws = tmp.getRoot();
+		for (String path : Arrays.asList("a.txt", "b.txt", "c.txt")) {
+			touch(ws, path);
+		}
+		UploadPlanner planner = new UploadPlanner("*.txt", null, "prefix");
+		planner.setMaxEntries(2);
+
+		UploadPlan plan = planner.invoke(ws, null);
+		assertEquals(2, plan.getEntries().size());
+		assertEquals(3, plan.size());
+		assertEquals("prefix/", plan.getEntries().get(0).getObjectName().substring(0, 7));
+	}
+
+	private static void touch(File ws, String path) throws IOException {
+		File file = new File(ws, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), new byte[3]);
+	}
+
+	private static List<String> paths(UploadPlan plan) {
+		List<String> paths = new ArrayList<>();
+		for (UploadPlan.Entry entry : plan.getEntries()) {
+			paths.add(entry.getRelativePath());
+		}
+		return paths;
+	}
+}
@@ -0,0 +1,117 @@
+package org.jenkinsci.plugins.minio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UploadSchedulerTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private FakeMinioServer server;
+
+	@Before
+	public void startServer() throws IOException {
+		server = new FakeMinioServer();
+		server.createBucket("bucket");
+	}
+
+	@After
+	public void stopServer() {
+		server.close();
+	}
+
+	@Test
+	public void uploadsFilesAndPartsOnOneBoundedPool() throws Exception {
+		List<UploadScheduler.Task> tasks = new ArrayList<>();
+		List<byte[]> contents = new ArrayList<>();
+		int[] sizes = { 10, 0, 12 * 1024 * 1024, 3000, 7 * 1024 * 1024, 1 };
+		for (int i = 0; i < sizes.length; i++) {
+			contents.add(write("file-" + i, sizes[i]));
+			tasks.add(task("file-" + i, sizes[i]));
+		}
+		final List<String> done = Collections.synchronizedList(new ArrayList<String>());
+		final List<IOException> failures = Collections.synchronizedList(new ArrayList<IOException>());
+
+		ObjectUploader uploader = new ObjectUploader(server.factory(), "bucket", MultipartUploader.MIN_PART_SIZE, 2);
+		try (UploadScheduler scheduler = new UploadScheduler(uploader, 2)) {
+			scheduler.submitAll(tasks, new UploadScheduler.Listener() {
+				@Override
+				public void done(UploadScheduler.Task task, boolean uploaded, IOException failure) {
+					done.add(task.getObjectName());
+					if (failure != null) {
+						failures.add(failure);
+					}
+				}
+			});
+			scheduler.awaitAll();
+		}
+
+		assertEquals(Collections.emptyList(), failures);
+		assertEquals(sizes.length, done.size());
+		for (int i = 0; i < sizes.length; i++) {
+			assertArrayEquals(contents.get(i), server.get("bucket", "prefix/file-" + i).content);
+		}
+		// the two largest files are started first, and their parts share the workers
+		List<String> first = new ArrayList<>(server.getRequests().subList(0, 2));
+		Collections.sort(first);
+		assertEquals(Arrays.asList("POST /bucket/prefix/file-2?uploads=", "POST /bucket/prefix/file-4?uploads="),
+				first);
+		assertTrue("at most 2 requests at a time, not " + server.getMaxActive(), server.getMaxActive() <= 2);
+	}
+
+	@Test
+	public void reportsTheFailureOfEachFile() throws Exception {
+		write("a", 10);
+		UploadScheduler.Task missing = new UploadScheduler.Task(new File(tmp.getRoot(), "missing"),
+				new UploadPlan.Entry("missing", "prefix/missing", 10, 0));
+		final List<String> failed = Collections.synchronizedList(new ArrayList<String>());
+		final List<String> uploaded = Collections.synchronizedList(new ArrayList<String>());
+
+		ObjectUploader uploader = new ObjectUploader(server.factory(), "bucket", 0, 2);
+		try (UploadScheduler scheduler = new UploadScheduler(uploader, 2)) {
+			UploadScheduler.Listener listener = new UploadScheduler.Listener() {
+				@Override
+				public void done(UploadScheduler.Task task, boolean done, IOException failure) {
+					(failure != null ? failed : uploaded).add(task.getObjectName());
+				}
+			};
+			scheduler.submit(missing, listener);
+			scheduler.submit(task("a", 10), listener);
+			scheduler.awaitAll();
+		}
+
+		assertEquals(Collections.singletonList("prefix/missing"), failed);
+		assertEquals(Collections.singletonList("prefix/a"), uploaded);
+		assertNull(server.get("bucket", "prefix/missing"));
+	}
+
+	private byte[] write(String name, int size) throws IOException {
+		byte[] content = new byte[size];
+		new Random(size).nextBytes(content);
+		Files.write(new File(tmp.getRoot(), name).toPath(), content);
+		return content;
+	}
+
+	private UploadScheduler.Task task(String name, int size) {
+		return new UploadScheduler.Task(new File(tmp.getRoot(), name),
+				new UploadPlan.Entry(name, "prefix/" + name, size, 0));
+	}
+}